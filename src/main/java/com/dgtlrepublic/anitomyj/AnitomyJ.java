@@ -13,11 +13,15 @@ import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementFileExte
 import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementFileName;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang3.StringUtils;
 
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
 /**
  * A library capable of parsing Anime filenames.
  * <p>
@@ -29,6 +33,8 @@ import org.apache.commons.lang3.StringUtils;
 public class AnitomyJ {
     static { KeywordManager.getInstance(); }
 
+    private static final Options kOptionsDefault = new Options();
+
     private AnitomyJ() {}
 
     /**
@@ -38,9 +44,142 @@ public class AnitomyJ {
      * @return the list of parsed elements
      */
     public static List<Element> parse(String filename) {
-        Options options = new Options();
-        List<Element> elements = new ArrayList<>(32);
-        List<Token> tokens = new ArrayList<>();
+        return parse(filename, ParserPipeline.getDefault(), ParsePlan.kPlanFull, ParseBudget.kBudgetUnlimited)
+                .getElements();
+    }
+
+    /**
+     * Parses an anime {@code filename} asynchronously, on the {@link AsyncParser#getDefaultExecutor() default
+     * executor}. Use an {@link AsyncParser} to pick the executor.
+     *
+     * @param filename the anime file name
+     * @return the list of parsed elements
+     */
+    public static CompletableFuture<List<Element>> parseAsync(String filename) {
+        return AsyncParser.getDefault().parseAsync(filename);
+    }
+
+    /**
+     * Parses an anime {@code filename} within a {@link ParseBudget}. Use this for filenames from untrusted sources.
+     *
+     * @param filename the anime file name
+     * @param budget   the limits of the parse
+     * @return the parse result, which is marked as truncated if the parse ran out of budget
+     */
+    public static ParseResult parse(String filename, ParseBudget budget) {
+        return parse(filename, ParserPipeline.getDefault(), ParsePlan.kPlanFull, budget);
+    }
+
+    /**
+     * Parses an anime {@code filename} with a custom {@link ParserPipeline}.
+     *
+     * @param filename the anime file name
+     * @param pipeline the parser stages to run
+     * @return the list of parsed elements
+     */
+    public static List<Element> parse(String filename, ParserPipeline pipeline) {
+        return parse(filename, pipeline, ParsePlan.kPlanFull, ParseBudget.kBudgetUnlimited).getElements();
+    }
+
+    /**
+     * Parses an anime {@code filename} with custom {@link Options}, e.g. {@code new Options().withDecodeEscapes(true)}
+     * for filenames from URLs and web pages.
+     *
+     * @param filename the anime file name
+     * @param options  the parser options
+     * @return the list of parsed elements
+     */
+    public static List<Element> parse(String filename, Options options) {
+        return parse(filename,
+                     ParserPipeline.getDefault(),
+                     ParsePlan.kPlanFull,
+                     ParseBudget.kBudgetUnlimited,
+                     options,
+                     new ArrayList<>(32),
+                     new ArrayList<>()).getElements();
+    }
+
+    /**
+     * Parses an anime {@code filename}, only computing the requested element {@code categories}. Parser phases whose
+     * results weren't asked for (and that no requested category depends on) are skipped.
+     *
+     * @param filename   the anime file name
+     * @param categories the element categories to parse
+     * @return the list of parsed elements, restricted to {@code categories}
+     */
+    public static List<Element> parse(String filename, EnumSet<ElementCategory> categories) {
+        return parse(filename, ParserPipeline.getDefault(), ParsePlan.of(categories), ParseBudget.kBudgetUnlimited)
+                .getElements();
+    }
+
+    /**
+     * Parses an anime {@code filename} according to a parse {@code plan}.
+     *
+     * @param filename the anime file name
+     * @param pipeline the parser stages to run
+     * @param plan     the parse plan
+     * @param budget   the limits of the parse
+     * @return the parse result
+     */
+    private static ParseResult parse(String filename, ParserPipeline pipeline, ParsePlan plan, ParseBudget budget) {
+        return parse(filename, pipeline, plan, budget, kOptionsDefault, new ArrayList<>(32), new ArrayList<>());
+    }
+
+    /**
+     * Parses an anime {@code filename} into caller-owned lists, which are cleared first. Lets bulk parsers reuse their
+     * buffers across parses.
+     *
+     * @param filename the anime file name
+     * @param budget   the limits of the parse
+     * @param elements the list that receives the parsed elements
+     * @param tokens   the list that receives the tokens
+     * @return whether or not the parse stopped early, because it ran out of budget
+     */
+    static boolean parseInto(String filename, ParseBudget budget, List<Element> elements, List<Token> tokens) {
+        elements.clear();
+        tokens.clear();
+        return parse(filename,
+                     ParserPipeline.getDefault(),
+                     ParsePlan.kPlanFull,
+                     budget,
+                     kOptionsDefault,
+                     elements,
+                     tokens).isTruncated();
+    }
+
+    /**
+     * Parses an anime {@code filename} according to a parse {@code plan}, into the given lists.
+     *
+     * @param filename the anime file name
+     * @param pipeline the parser stages to run
+     * @param plan     the parse plan
+     * @param budget   the limits of the parse
+     * @param options  the parser options
+     * @param elements the list that receives the parsed elements
+     * @param tokens   the list that receives the tokens
+     * @return the parse result
+     */
+    private static ParseResult parse(String filename,
+                                     ParserPipeline pipeline,
+                                     ParsePlan plan,
+                                     ParseBudget budget,
+                                     Options options,
+                                     List<Element> elements,
+                                     List<Token> tokens) {
+        long start = budget.hasTimeLimit() ? System.nanoTime() : 0;
+        boolean truncated = false;
+
+        /** cut the filename down to the budget before anything else reads it, keeping its extension */
+        if (filename != null && filename.length() > budget.getMaxInputLength()) {
+            String cut = truncateFilename(filename, budget.getMaxInputLength());
+            truncated = cut != filename;
+            filename = cut;
+        }
+
+        /** decode escapes(e.g. "%20" and "&amp;") and fold fullwidth characters(e.g. "Ｔｉｔｌｅ"), in one pass */
+        if ((options.decodeEscapes || options.foldWidth) && filename != null) {
+            filename = StringHelper.decode(filename, options.decodeEscapes, options.foldWidth);
+        }
 
         /** remove/parse extension */
         AtomicReference<String> fname = new AtomicReference<>(filename);
@@ -52,14 +191,68 @@ public class AnitomyJ {
         }
 
         /** set filename */
-        if (fname.get() == null || fname.get().length() == 0) return elements;
-        elements.add(new Element(kElementFileName, fname.get()));
-
-        /** tokenize */
-        boolean isTokenized = new Tokenizer(fname.get(), elements, options, tokens).tokenize();
-        if (!isTokenized) return elements;
-        new Parser(elements, options, tokens).parse();
-        return elements;
+        if (fname.get() != null && fname.get().length() > 0) {
+            elements.add(new Element(kElementFileName, fname.get()));
+
+            /** tokenize */
+            if (plan.needsTokens()) {
+                Tokenizer tokenizer = new Tokenizer(fname.get(), elements, options, tokens);
+                tokenizer.setBudget(budget.getMaxTokenCount(),
+                                    budget.hasTimeLimit(),
+                                    start + budget.getMaxParseTimeNanos());
+                boolean isTokenized = tokenizer.tokenize();
+                truncated |= tokenizer.isTruncated();
+                if (tokens.size() > budget.getMaxTokenCount()) {
+                    tokens.subList(budget.getMaxTokenCount(), tokens.size()).clear();
+                    truncated = true;
+                }
+
+                if (isTokenized) {
+                    Parser parser = new Parser(elements, options, tokens, pipeline, plan);
+                    if (budget.hasTimeLimit()) parser.setDeadline(start + budget.getMaxParseTimeNanos());
+                    parser.parse();
+                    truncated |= parser.isTruncated();
+                }
+            }
+        }
+
+        plan.retainRequested(elements);
+        return new ParseResult(elements, truncated);
+    }
+
+    /**
+     * Cuts the part of {@code filename} before its extension down to {@code maxLength} characters, without splitting a
+     * surrogate pair. The extension is kept.
+     *
+     * @return the cut filename; {@code filename} itself if it's short enough
+     */
+    private static String truncateFilename(String filename, int maxLength) {
+        int extension = findExtension(filename);
+        int end = extension == -1 ? filename.length() : extension;
+        if (end <= maxLength) return filename;
+
+        int length = maxLength;
+        if (Character.isHighSurrogate(filename.charAt(length - 1))) length--;
+        return extension == -1 ? filename.substring(0, length)
+                               : filename.substring(0, length).concat(filename.substring(extension));
+    }
+
+    /**
+     * Returns the index of the '.' that starts the anime file extension of {@code filename}(e.g. ".mkv"); -1 if it has
+     * none.
+     */
+    static int findExtension(String filename) {
+        int position;
+        if (StringUtils.isEmpty(filename) || (position = filename.lastIndexOf('.')) == -1) return -1;
+
+        String extension = filename.substring(position + 1);
+        if (extension.length() > 4) return -1;
+        if (!StringHelper.isAlphanumericString(extension)) return -1;
+
+        /** check if valid anime extension */
+        String keyword = KeywordManager.normalzie(extension);
+        if (!KeywordManager.getInstance().contains(kElementFileExtension, keyword)) return -1;
+        return position;
     }
 
     /**
@@ -69,20 +262,13 @@ public class AnitomyJ {
      * @param extension the ref that will be updated with the file extension
      * @return true if then extension was separated from the filename
      */
-    private static boolean removeExtensionFromFilename(AtomicReference<String> filename,
-                                                       AtomicReference<String> extension) {
-        int position;
-        if (StringUtils.isEmpty(filename.get()) || (position = filename.get().lastIndexOf('.')) == -1) return false;
+    static boolean removeExtensionFromFilename(AtomicReference<String> filename,
+                                               AtomicReference<String> extension) {
+        int position = findExtension(filename.get());
+        if (position == -1) return false;
 
         /** remove file extension */
         extension.set(filename.get().substring(position + 1));
-        if (extension.get().length() > 4) return false;
-        if (!StringHelper.isAlphanumericString(extension.get())) return false;
-
-        /** check if valid anime extension */
-        String keyword = KeywordManager.normalzie(extension.get());
-        if (!KeywordManager.getInstance().contains(kElementFileExtension, keyword)) return false;
-
         filename.set(filename.get().substring(0, position));
         return true;
     }
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
+/**
+ * Command line bulk parser. Reads one filename per line from the standard input(or the given files), and writes one
+ * JSON object(or CSV row) per line to the standard output, using an {@link ElementWriter}:
+ * <pre>
+ * {"file_name":"[Group] Title - 01.mkv","kElementAnimeTitle":"Title","kElementEpisodeNumber":"01",...}
+ * </pre>
+ * Categories with several elements are written as arrays. Counters are written to the standard error once all input is
+ * parsed.
+ * <pre>
+ * Usage: java -jar anitomyJ-with-dependencies.jar [options] [file...]
+ *   --threads N         the number of parser threads(default: the number of processors)
+ *   --order input       write results in input order(default)
+ *   --order completion  write results as soon as they're parsed
+ *   --format json|csv   the output format(default: json)
+ *   --fields a,b,...    only parse and write these categories(e.g. AnimeTitle,EpisodeNumber)
+ * </pre>
+ *
+ * @author Paul Miller
+ */
+public class AnitomyJCli {
+    private static final int kExitSuccess = 0;
+    private static final int kExitError = 1;
+    private static final int kExitUsage = 2;
+
+    /** The number of parses that may be in flight per thread. */
+    private static final int kWindowPerThread = 64;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean inputOrder = true;
+    private ElementWriter.Format format = ElementWriter.Format.kFormatJson;
+    private EnumSet<ElementCategory> fields = null;
+    private final List<String> files = new ArrayList<>();
+
+    private long lineCount = 0;
+    private long errorCount = 0;
+
+    private AnitomyJCli() {}
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.in, System.out, System.err));
+    }
+
+    /**
+     * Runs the command line parser.
+     *
+     * @param args the command line arguments
+     * @param in   the standard input
+     * @param out  the standard output
+     * @param err  the standard error
+     * @return the exit code
+     */
+    public static int run(String[] args, InputStream in, OutputStream out, PrintStream err) {
+        AnitomyJCli cli = new AnitomyJCli();
+        try {
+            cli.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            err.println("anitomyj: " + e.getMessage());
+            err.println("Usage: anitomyj [--threads N] [--order input|completion] [--format json|csv] "
+                                + "[--fields a,b,...] [file...]");
+            return kExitUsage;
+        }
+
+        long start = System.nanoTime();
+        ExecutorService executor = cli.threads > 1 ? Executors.newFixedThreadPool(cli.threads) : null;
+        Writer output = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        ElementWriter writer = new ElementWriter(output,
+                                                 cli.format,
+                                                 cli.fields != null ? cli.fields : EnumSet.allOf(ElementCategory.class));
+        int exitCode = kExitSuccess;
+
+        try {
+            writer.writeHeader();
+            if (cli.files.isEmpty()) {
+                cli.process(in, executor, writer);
+            } else {
+                for (String file : cli.files) {
+                    if (file.equals("-")) {
+                        cli.process(in, executor, writer);
+                    } else {
+                        try (InputStream stream = new FileInputStream(file)) {
+                            cli.process(stream, executor, writer);
+                        }
+                    }
+                }
+            }
+
+            output.flush();
+        } catch (IOException e) {
+            err.println("anitomyj: " + e.getMessage());
+            exitCode = kExitError;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exitCode = kExitError;
+        } finally {
+            if (executor != null) executor.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        err.println(String.format(Locale.ENGLISH,
+                                  "anitomyj: %d lines, %d parsed, %d errors, %.3f s, %.0f lines/s",
+                                  cli.lineCount,
+                                  cli.lineCount - cli.errorCount,
+                                  cli.errorCount,
+                                  seconds,
+                                  seconds > 0 ? cli.lineCount / seconds : 0));
+        return exitCode;
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** Parses the command line arguments; throws {@link IllegalArgumentException} if they're invalid. */
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--threads":
+                    try {
+                        threads = Integer.parseInt(value(args, ++i, arg));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("invalid thread count: " + args[i]);
+                    }
+                    if (threads < 1) throw new IllegalArgumentException("invalid thread count: " + args[i]);
+                    break;
+                case "--order": {
+                    String order = value(args, ++i, arg);
+                    if (!order.equals("input") && !order.equals("completion")) {
+                        throw new IllegalArgumentException("invalid order: " + order);
+                    }
+                    inputOrder = order.equals("input");
+                    break;
+                }
+                case "--format": {
+                    String name = value(args, ++i, arg);
+                    if (!name.equals("json") && !name.equals("csv")) {
+                        throw new IllegalArgumentException("invalid format: " + name);
+                    }
+                    format = name.equals("json") ? ElementWriter.Format.kFormatJson : ElementWriter.Format.kFormatCsv;
+                    break;
+                }
+                case "--fields":
+                    fields = EnumSet.noneOf(ElementCategory.class);
+                    for (String field : value(args, ++i, arg).split(",")) fields.add(toCategory(field.trim()));
+                    break;
+                default:
+                    if (arg.startsWith("--")) throw new IllegalArgumentException("unknown option: " + arg);
+                    files.add(arg);
+            }
+        }
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException("missing value for " + option);
+        return args[i];
+    }
+
+    /** Returns the category of a field name, e.g. "AnimeTitle", "animetitle" or "kElementAnimeTitle". */
+    private static ElementCategory toCategory(String field) {
+        for (ElementCategory category : ElementCategory.values()) {
+            String name = category.name();
+            if (name.equalsIgnoreCase(field) || name.substring("kElement".length()).equalsIgnoreCase(field)) {
+                return category;
+            }
+        }
+
+        throw new IllegalArgumentException("unknown field: " + field);
+    }
+
+    /** Parses every line of {@code in}, and writes the results to {@code writer}. */
+    private void process(InputStream in, ExecutorService executor, ElementWriter writer)
+            throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        if (executor == null) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                lineCount++;
+                write(writer, line, parse(line));
+            }
+            return;
+        }
+
+        int window = threads * kWindowPerThread;
+        if (inputOrder) {
+            ArrayDeque<Future<List<Element>>> pending = new ArrayDeque<>(window);
+            ArrayDeque<String> lines = new ArrayDeque<>(window);
+            for (String line; (line = reader.readLine()) != null; ) {
+                lineCount++;
+                if (pending.size() >= window) write(writer, lines.poll(), get(pending.poll()));
+                String filename = line;
+                pending.add(executor.submit(() -> parse(filename)));
+                lines.add(line);
+            }
+
+            while (!pending.isEmpty()) write(writer, lines.poll(), get(pending.poll()));
+        } else {
+            CompletionService<ParsedLine> completion = new ExecutorCompletionService<>(executor);
+            int inFlight = 0;
+            for (String line; (line = reader.readLine()) != null; ) {
+                lineCount++;
+                if (inFlight >= window) {
+                    write(writer, completion.take());
+                    inFlight--;
+                }
+                String filename = line;
+                completion.submit(() -> new ParsedLine(filename, parse(filename)));
+                inFlight++;
+            }
+
+            for (; inFlight > 0; inFlight--) write(writer, completion.take());
+        }
+    }
+
+    /** Parses a single filename; returns null if the parser failed. */
+    private List<Element> parse(String filename) {
+        try {
+            return fields == null ? AnitomyJ.parse(filename) : AnitomyJ.parse(filename, fields);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static List<Element> get(Future<List<Element>> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void write(ElementWriter writer, Future<ParsedLine> future) throws IOException, InterruptedException {
+        try {
+            ParsedLine result = future.get();
+            write(writer, result.filename, result.elements);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Writes a single result. */
+    private void write(ElementWriter writer, String filename, List<Element> elements) throws IOException {
+        if (elements == null) errorCount++;
+        writer.write(filename, elements);
+    }
+
+    /** A parsed line, for writing results in completion order. */
+    private static class ParsedLine {
+        final String filename;
+        final List<Element> elements;
+
+        ParsedLine(String filename, List<Element> elements) {
+            this.filename = filename;
+            this.elements = elements;
+        }
+    }
+}
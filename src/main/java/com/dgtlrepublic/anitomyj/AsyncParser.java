@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parses filenames asynchronously, on a configurable {@link Executor}.
+ * <p>
+ * On runtimes with virtual threads(Java 21+), the default executor starts a virtual thread per task, so callers that
+ * already run on virtual threads don't pay for a hand-off to a platform pool. Older runtimes fall back to the {@link
+ * ForkJoinPool#commonPool()}. The virtual thread executor is looked up reflectively, so the library itself still runs
+ * on Java 8.
+ * <p>
+ * The parser keeps all of its scratch state on the stack of a single parse(there are no {@link ThreadLocal} caches), so
+ * millions of short-lived threads cost nothing beyond the parses themselves. This class is thread-safe.
+ *
+ * @author Paul Miller
+ */
+public class AsyncParser {
+    /** The default number of filenames per task of {@link #parseAllAsync(List)}. */
+    public static final int kDefaultBatchSize = 64;
+
+    private final Executor executor;
+    private final int batchSize;
+
+    /** Constructs a new parser on the {@link #getDefaultExecutor() default executor}. */
+    public AsyncParser() {
+        this(getDefaultExecutor(), kDefaultBatchSize);
+    }
+
+    /**
+     * Constructs a new parser.
+     *
+     * @param executor  the executor that runs the parses
+     * @param batchSize the number of filenames per task of {@link #parseAllAsync(List)}
+     */
+    public AsyncParser(Executor executor, int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        this.executor = Objects.requireNonNull(executor);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the default executor: a virtual thread per task executor if the runtime supports it, the common fork/join
+     * pool otherwise.
+     */
+    public static Executor getDefaultExecutor() {
+        return DefaultExecutor.kExecutor;
+    }
+
+    /**
+     * Returns a new virtual thread per task executor; null if the runtime doesn't support virtual threads. The
+     * executor is looked up reflectively, so it works on Java 8 builds.
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Returns the shared parser on the default executor. */
+    static AsyncParser getDefault() {
+        return DefaultExecutor.kParser;
+    }
+
+    /** Returns whether or not the default executor runs tasks on virtual threads. */
+    public static boolean isVirtualThreadExecutor() {
+        return DefaultExecutor.kExecutor != ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Parses an anime {@code filename} asynchronously.
+     *
+     * @param filename the anime file name
+     * @return the list of parsed elements, or the parser's exception
+     */
+    public CompletableFuture<List<Element>> parseAsync(String filename) {
+        Objects.requireNonNull(filename);
+        return CompletableFuture.supplyAsync(() -> AnitomyJ.parse(filename), executor);
+    }
+
+    /**
+     * Parses a batch of anime {@code filenames} asynchronously. The filenames are split into tasks of up to {@code
+     * batchSize} filenames, which run concurrently.
+     *
+     * @param filenames the anime file names
+     * @return the lists of parsed elements, in the order of {@code filenames}; or the first exception of the parser
+     */
+    public CompletableFuture<List<List<Element>>> parseAllAsync(List<String> filenames) {
+        String[] names = filenames.toArray(new String[0]);
+        for (String name : names) Objects.requireNonNull(name);
+        if (names.length == 0) return CompletableFuture.completedFuture(Collections.emptyList());
+
+        List<List<Element>> results = new ArrayList<>(Collections.nCopies(names.length, null));
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[(names.length + batchSize - 1) / batchSize];
+        for (int i = 0; i < tasks.length; i++) {
+            int begin = i * batchSize;
+            int end = Math.min(begin + batchSize, names.length);
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                for (int j = begin; j < end; j++) results.set(j, AnitomyJ.parse(names[j]));
+            }, executor);
+        }
+
+        return CompletableFuture.allOf(tasks).thenApply(ignored -> Collections.unmodifiableList(results));
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncParser{" +
+                "executor=" + executor +
+                ", batchSize=" + batchSize +
+                '}';
+    }
+
+    /** Lazily resolves the default executor. */
+    private static class DefaultExecutor {
+        static final Executor kExecutor = create();
+        static final AsyncParser kParser = new AsyncParser(kExecutor, kDefaultBatchSize);
+
+        private static Executor create() {
+            Executor executor = newVirtualThreadExecutor();
+            return executor != null ? executor : ForkJoinPool.commonPool();
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Parses a filename manifest(one filename per line, UTF-8) into a JSON Lines or CSV file, recording durable
+ * checkpoints along the way, so that a job that dies hours in resumes where it stopped instead of starting over.
+ * <p>
+ * Output is written to {@code <output>.partial}. Every {@code checkpointInterval} lines, the output is flushed to disk,
+ * and a checkpoint with the input and output byte offsets is written to {@code <output>.checkpoint}(via a temporary
+ * file and an atomic rename). A resumed job truncates the partial output back to the last checkpoint, and continues
+ * reading the manifest from the matching offset, so every line is written exactly once. Once the manifest is done, the
+ * partial output is atomically renamed to {@code output}, and the checkpoint is removed.
+ * <p>
+ * A checkpoint is only resumed if the manifest, the output format and the {@link KeywordManager#getVersion()
+ * dictionary version} still match; otherwise the job starts over, so outputs never mix results of different
+ * dictionaries.
+ *
+ * @author Paul Miller
+ */
+public class CheckpointedBatchRunner {
+    /** The default number of lines between checkpoints. */
+    public static final int kDefaultCheckpointInterval = 100_000;
+
+    private static final int kCheckpointVersion = 1;
+
+    private final ElementWriter.Format format;
+    private final PipelinedParser parser;
+    private final int checkpointInterval;
+
+    /**
+     * Constructs a new runner with the default checkpoint interval.
+     *
+     * @param format the output format
+     */
+    public CheckpointedBatchRunner(ElementWriter.Format format) {
+        this(format, new PipelinedParser(), kDefaultCheckpointInterval);
+    }
+
+    /**
+     * Constructs a new runner.
+     *
+     * @param format             the output format
+     * @param parser             the parser that runs the job
+     * @param checkpointInterval the number of lines between checkpoints
+     */
+    public CheckpointedBatchRunner(ElementWriter.Format format, PipelinedParser parser, int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("checkpointInterval must be positive: " + checkpointInterval);
+        }
+        this.format = Objects.requireNonNull(format);
+        this.parser = Objects.requireNonNull(parser);
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /** Returns the checkpoint file of {@code output}. */
+    public static Path getCheckpointPath(Path output) {
+        return output.resolveSibling(output.getFileName() + ".checkpoint");
+    }
+
+    /** Returns the partial output file of {@code output}. */
+    public static Path getPartialPath(Path output) {
+        return output.resolveSibling(output.getFileName() + ".partial");
+    }
+
+    /**
+     * Runs(or resumes) a job until the whole manifest is parsed.
+     *
+     * @param manifest the manifest
+     * @param output   the output file
+     * @return the total number of lines in the output
+     */
+    public long run(Path manifest, Path output) throws IOException, InterruptedException {
+        return run(manifest, output, Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs(or resumes) a job, stopping at a checkpoint after at most {@code maxLines} lines. Use this to split a job
+     * into time slices; {@link #run(Path, Path)} resumes it.
+     *
+     * @param manifest the manifest
+     * @param output   the output file
+     * @param maxLines the maximum number of lines to parse in this run
+     * @return the total number of lines in the output so far
+     */
+    public long run(Path manifest, Path output, long maxLines) throws IOException, InterruptedException {
+        Path partial = getPartialPath(output);
+        Path checkpointPath = getCheckpointPath(output);
+        Checkpoint fresh = new Checkpoint(manifest, format);
+        Checkpoint checkpoint = Checkpoint.read(checkpointPath);
+        if (checkpoint == null || !checkpoint.matches(fresh) || !Files.exists(partial)
+                || Files.size(partial) < checkpoint.outputOffset) {
+            checkpoint = fresh;
+        }
+
+        try (FileChannel outputChannel = FileChannel.open(partial,
+                                                          StandardOpenOption.CREATE,
+                                                          StandardOpenOption.WRITE);
+             FileChannel inputChannel = FileChannel.open(manifest, StandardOpenOption.READ)) {
+            /** drop everything written after the last checkpoint */
+            outputChannel.truncate(checkpoint.outputOffset);
+            outputChannel.position(checkpoint.outputOffset);
+            inputChannel.position(checkpoint.inputOffset);
+
+            Writer writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(outputChannel),
+                                                                      StandardCharsets.UTF_8), 1 << 16);
+            ElementWriter elementWriter = new ElementWriter(writer, format);
+            if (checkpoint.outputOffset == 0) elementWriter.writeHeader();
+
+            ManifestReader reader = new ManifestReader(Channels.newInputStream(inputChannel),
+                                                       checkpoint.inputOffset,
+                                                       maxLines);
+            Checkpoint current = checkpoint;
+            try {
+                parser.parse(reader, (filename, elements) -> {
+                    elementWriter.write(filename, elements);
+                    current.inputOffset = reader.lineEnds.poll();
+                    if (++current.lineCount % checkpointInterval == 0) {
+                        commit(writer, outputChannel, current, checkpointPath);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            commit(writer, outputChannel, current, checkpointPath);
+            if (current.inputOffset < current.manifestSize) return current.lineCount;
+            checkpoint = current;
+        }
+
+        Files.move(partial, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(output);
+        Files.delete(checkpointPath);
+        return checkpoint.lineCount;
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** Makes the output durable, then atomically replaces the checkpoint. */
+    private static void commit(Writer writer, FileChannel outputChannel, Checkpoint checkpoint, Path checkpointPath)
+            throws IOException {
+        writer.flush();
+        outputChannel.force(false);
+        checkpoint.outputOffset = outputChannel.position();
+        checkpoint.write(checkpointPath);
+    }
+
+    /** Makes a rename in the directory of {@code path} durable, where the platform allows it. */
+    private static void syncDirectory(Path path) {
+        Path directory = path.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            // not supported on every platform(e.g. Windows)
+        }
+    }
+
+    /** The state of a job, as of its last checkpoint. */
+    private static class Checkpoint {
+        final long manifestSize;
+        final long manifestModified;
+        final ElementWriter.Format format;
+        final long dictionaryVersion;
+        long inputOffset = 0;
+        long outputOffset = 0;
+        long lineCount = 0;
+
+        /** Constructs the checkpoint of a job that didn't start yet. */
+        Checkpoint(Path manifest, ElementWriter.Format format) throws IOException {
+            this(Files.size(manifest),
+                 Files.getLastModifiedTime(manifest).toMillis(),
+                 format,
+                 KeywordManager.getInstance().getVersion());
+        }
+
+        private Checkpoint(long manifestSize, long manifestModified, ElementWriter.Format format, long version) {
+            this.manifestSize = manifestSize;
+            this.manifestModified = manifestModified;
+            this.format = format;
+            this.dictionaryVersion = version;
+        }
+
+        /** Returns whether or not this checkpoint belongs to the same job as {@code other}. */
+        boolean matches(Checkpoint other) {
+            return manifestSize == other.manifestSize
+                    && manifestModified == other.manifestModified
+                    && format == other.format
+                    && dictionaryVersion == other.dictionaryVersion;
+        }
+
+        /** Reads a checkpoint; returns null if there's none, or it can't be read. */
+        static Checkpoint read(Path path) throws IOException {
+            if (!Files.exists(path)) return null;
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(path)) {
+                properties.load(in);
+                if (Integer.parseInt(properties.getProperty("version")) != kCheckpointVersion) return null;
+                Checkpoint checkpoint = new Checkpoint(Long.parseLong(properties.getProperty("manifestSize")),
+                                                       Long.parseLong(properties.getProperty("manifestModified")),
+                                                       ElementWriter.Format.valueOf(properties.getProperty("format")),
+                                                       Long.parseLong(properties.getProperty("dictionaryVersion")));
+                checkpoint.inputOffset = Long.parseLong(properties.getProperty("inputOffset"));
+                checkpoint.outputOffset = Long.parseLong(properties.getProperty("outputOffset"));
+                checkpoint.lineCount = Long.parseLong(properties.getProperty("lineCount"));
+                return checkpoint;
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        /** Writes this checkpoint to a temporary file, and atomically renames it to {@code path}. */
+        void write(Path path) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("version", Integer.toString(kCheckpointVersion));
+            properties.setProperty("manifestSize", Long.toString(manifestSize));
+            properties.setProperty("manifestModified", Long.toString(manifestModified));
+            properties.setProperty("format", format.name());
+            properties.setProperty("dictionaryVersion", Long.toString(dictionaryVersion));
+            properties.setProperty("inputOffset", Long.toString(inputOffset));
+            properties.setProperty("outputOffset", Long.toString(outputOffset));
+            properties.setProperty("lineCount", Long.toString(lineCount));
+
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary,
+                                                        StandardOpenOption.CREATE,
+                                                        StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                properties.store(Channels.newOutputStream(channel), "anitomyj batch checkpoint");
+                channel.force(true);
+            }
+
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory(path);
+        }
+    }
+
+    /** Reads UTF-8 lines, and keeps track of the byte offset at the end of each line. */
+    private static class ManifestReader implements Iterator<String> {
+        /** The end offsets of the lines that were read, but not written yet. */
+        final ConcurrentLinkedQueue<Long> lineEnds = new ConcurrentLinkedQueue<>();
+
+        private final InputStream in;
+        private final long maxLines;
+        private byte[] line = new byte[256];
+        private long offset;
+        private long lineCount = 0;
+        private String next;
+        private boolean eof = false;
+
+        ManifestReader(InputStream in, long offset, long maxLines) {
+            this.in = new BufferedInputStream(in, 1 << 16);
+            this.offset = offset;
+            this.maxLines = maxLines;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) return true;
+            if (eof || lineCount >= maxLines) return false;
+            try {
+                next = readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            String result = next;
+            next = null;
+            lineCount++;
+            lineEnds.add(offset);
+            return result;
+        }
+
+        private String readLine() throws IOException {
+            int length = 0;
+            for (int b; ; ) {
+                b = in.read();
+                if (b == -1) {
+                    eof = true;
+                    if (length == 0) return null;
+                    break;
+                }
+
+                offset++;
+                if (b == '\n') break;
+                if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                line[length++] = (byte) b;
+            }
+
+            if (length > 0 && line[length - 1] == '\r') length--;
+            return StringHelper.fromUtf8(line, 0, length);
+        }
+    }
+}
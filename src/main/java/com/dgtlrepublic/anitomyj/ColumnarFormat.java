@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
+/**
+ * Constants of the columnar export format, shared by the {@link ColumnarWriter} and the {@link ColumnarReader}.
+ * <p>
+ * A file is a header, a sequence of row groups, and a footer:
+ * <pre>
+ * header:    int magic, int version
+ * row group: one chunk per column; columns without any value in the group have no chunk
+ * footer:    int columnCount, {utf8 name, byte type} * columnCount,
+ *            int groupCount, {int rowCount, {long offset, int length, int valueCount, int min, int max} *
+ *            columnCount} * groupCount,
+ *            {int size, utf8 value * size} * dictionary columns
+ * trailer:   long footerOffset, int magic
+ * </pre>
+ * Every chunk starts with a presence bitmap of {@code (rowCount + 7) / 8} bytes. Then:
+ * <ul>
+ * <li>{@link ColumnType#kColumnString}: a string section, i.e. {@code int[rowCount + 1]} offsets followed by the UTF-8
+ * bytes.</li>
+ * <li>{@link ColumnType#kColumnDictionary}: {@code int[rowCount]} dictionary codes.</li>
+ * <li>{@link ColumnType#kColumnInteger}: a second bitmap marking the values that don't read back as written(e.g.
+ * "01-02" and "01"), {@code int[rowCount]} values(-1 for the ones that aren't integers), and a string section holding
+ * the marked values, if there are any.</li>
+ * </ul>
+ * Strings are length-prefixed with an int. Numbers are big-endian. A category with several elements in the same row is
+ * stored as a single value, joined by {@link #kValueSeparator}.
+ *
+ * @author Paul Miller
+ */
+public class ColumnarFormat {
+    /** The storage type of a column. */
+    public enum ColumnType {
+        kColumnString,
+        kColumnInteger,
+        kColumnDictionary
+    }
+
+    /** The default number of rows per row group. */
+    public static final int kDefaultRowGroupSize = 65536;
+
+    /** Separates the values of a category with several elements in the same row. */
+    public static final char kValueSeparator = '\u001f';
+
+    static final int kMagic = 0x414e4943;
+    static final int kVersion = 1;
+
+    private ColumnarFormat() {}
+
+    /** Returns the storage type of the {@code category} column. */
+    public static ColumnType getColumnType(ElementCategory category) {
+        switch (category) {
+            case kElementAnimeSeason:
+            case kElementAnimeYear:
+            case kElementEpisodeNumber:
+            case kElementEpisodeNumberAlt:
+            case kElementReleaseVersion:
+            case kElementVolumeNumber:
+                return ColumnType.kColumnInteger;
+            case kElementFileExtension:
+            case kElementReleaseGroup:
+            case kElementSource:
+            case kElementVideoResolution:
+                return ColumnType.kColumnDictionary;
+            default:
+                return ColumnType.kColumnString;
+        }
+    }
+
+    /** Returns the value of {@code string} if it's a plain, non-negative decimal int; -1 otherwise. */
+    static int toInt(String string) {
+        if (string.isEmpty() || string.length() > 9) return -1;
+        int value = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalInt;
+
+import com.dgtlrepublic.anitomyj.ColumnarFormat.ColumnType;
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
+/**
+ * Reads files written by the {@link ColumnarWriter}.
+ * <p>
+ * Only the footer is read up front. Column chunks are memory-mapped on demand, so a scan only touches the columns it
+ * asks for, and the row group statistics can be used to skip whole row groups, e.g.
+ * <pre>
+ * try (ColumnarReader reader = new ColumnarReader(file)) {
+ *     for (int group = 0; group &lt; reader.getRowGroupCount(); group++) {
+ *         if (reader.getMaximum(group, kElementEpisodeNumber).orElse(0) &lt; 100) continue;
+ *         Column episodes = reader.getColumn(group, kElementEpisodeNumber);
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * Instances are thread-safe once constructed. Mapped chunks stay valid after the reader is closed, until they're
+ * garbage collected.
+ *
+ * @author Paul Miller
+ */
+public class ColumnarReader implements Closeable {
+    private static final ElementCategory[] kCategories = ElementCategory.values();
+
+    private final FileChannel channel;
+    private final int columnCount;
+    private final int[] columnIndex = new int[kCategories.length];
+    private final ColumnType[] types;
+    private final List<List<String>> dictionaries = new ArrayList<>();
+    private final int[] rowCounts;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final int[] valueCounts;
+    private final int[] minimums;
+    private final int[] maximums;
+    private final long rowCount;
+
+    /**
+     * Opens a columnar file, and reads its footer.
+     *
+     * @param file the file
+     */
+    public ColumnarReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, 8);
+            long size = channel.size();
+            ByteBuffer trailer = read(size - 12, 12);
+            if (header.getInt() != ColumnarFormat.kMagic || trailer.getInt(8) != ColumnarFormat.kMagic) {
+                throw new IOException("Not a columnar file: " + file);
+            }
+            int version = header.getInt();
+            if (version != ColumnarFormat.kVersion) throw new IOException("Unsupported version: " + version);
+
+            long footerOffset = trailer.getLong(0);
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, footerOffset, size - 12 - footerOffset);
+
+            Arrays.fill(columnIndex, -1);
+            columnCount = footer.getInt();
+            types = new ColumnType[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                String name = getString(footer);
+                types[i] = ColumnType.values()[footer.get()];
+                for (ElementCategory category : kCategories) {
+                    if (category.name().equals(name)) columnIndex[category.ordinal()] = i;
+                }
+            }
+
+            int groupCount = footer.getInt();
+            rowCounts = new int[groupCount];
+            offsets = new long[groupCount * columnCount];
+            lengths = new int[offsets.length];
+            valueCounts = new int[offsets.length];
+            minimums = new int[offsets.length];
+            maximums = new int[offsets.length];
+            long rows = 0;
+            for (int group = 0, chunk = 0; group < groupCount; group++) {
+                rowCounts[group] = footer.getInt();
+                rows += rowCounts[group];
+                for (int i = 0; i < columnCount; i++, chunk++) {
+                    offsets[chunk] = footer.getLong();
+                    lengths[chunk] = footer.getInt();
+                    valueCounts[chunk] = footer.getInt();
+                    minimums[chunk] = footer.getInt();
+                    maximums[chunk] = footer.getInt();
+                }
+            }
+            rowCount = rows;
+
+            for (int i = 0; i < columnCount; i++) {
+                if (types[i] != ColumnType.kColumnDictionary) {
+                    dictionaries.add(Collections.emptyList());
+                    continue;
+                }
+
+                String[] values = new String[footer.getInt()];
+                for (int j = 0; j < values.length; j++) values[j] = getString(footer);
+                dictionaries.add(Collections.unmodifiableList(Arrays.asList(values)));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Returns the total number of rows. */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /** Returns the number of row groups. */
+    public int getRowGroupCount() {
+        return rowCounts.length;
+    }
+
+    /** Returns the number of rows in {@code group}. */
+    public int getRowCount(int group) {
+        return rowCounts[group];
+    }
+
+    /** Returns the storage type of the {@code category} column. */
+    public ColumnType getColumnType(ElementCategory category) {
+        int column = columnIndex[category.ordinal()];
+        return column == -1 ? ColumnarFormat.getColumnType(category) : types[column];
+    }
+
+    /** Returns the number of rows of {@code group} with a value for {@code category}. */
+    public int getValueCount(int group, ElementCategory category) {
+        int chunk = chunk(group, category);
+        return chunk == -1 ? 0 : valueCounts[chunk];
+    }
+
+    /** Returns the smallest integer value of {@code category} in {@code group}; empty if there isn't any. */
+    public OptionalInt getMinimum(int group, ElementCategory category) {
+        int chunk = chunk(group, category);
+        return hasStatistics(chunk) ? OptionalInt.of(minimums[chunk]) : OptionalInt.empty();
+    }
+
+    /** Returns the largest integer value of {@code category} in {@code group}; empty if there isn't any. */
+    public OptionalInt getMaximum(int group, ElementCategory category) {
+        int chunk = chunk(group, category);
+        return hasStatistics(chunk) ? OptionalInt.of(maximums[chunk]) : OptionalInt.empty();
+    }
+
+    /** Returns the dictionary of a dictionary-encoded column, indexed by {@link Column#getCode(int)}. */
+    public List<String> getDictionary(ElementCategory category) {
+        int column = columnIndex[category.ordinal()];
+        return column == -1 ? Collections.emptyList() : dictionaries.get(column);
+    }
+
+    /**
+     * Maps a single column of a row group.
+     *
+     * @param group    the row group
+     * @param category the column
+     * @return the column; without any values if the file doesn't have any for it
+     */
+    public Column getColumn(int group, ElementCategory category) throws IOException {
+        int chunk = chunk(group, category);
+        int rows = rowCounts[group];
+        if (chunk == -1 || lengths[chunk] == 0) return new Column(getColumnType(category), rows, null, null);
+
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offsets[chunk], lengths[chunk]);
+        int column = columnIndex[category.ordinal()];
+        return new Column(types[column], rows, buffer, dictionaries.get(column));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    private int chunk(int group, ElementCategory category) {
+        if (group < 0 || group >= rowCounts.length) throw new IndexOutOfBoundsException("group: " + group);
+        int column = columnIndex[category.ordinal()];
+        return column == -1 ? -1 : group * columnCount + column;
+    }
+
+    private boolean hasStatistics(int chunk) {
+        return chunk != -1 && types[chunk % columnCount] == ColumnType.kColumnInteger
+                && minimums[chunk] <= maximums[chunk];
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (position < 0) throw new EOFException();
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+        }
+
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** A single column of a row group. */
+    public static class Column {
+        private final ColumnType type;
+        private final int size;
+        private final ByteBuffer buffer;
+        private final List<String> dictionary;
+        private final int bitmapLength;
+        private final int valuesOffset;
+        private final int stringsOffset;
+
+        private Column(ColumnType type, int size, ByteBuffer buffer, List<String> dictionary) {
+            this.type = type;
+            this.size = size;
+            this.buffer = buffer;
+            this.dictionary = dictionary;
+            this.bitmapLength = (size + 7) / 8;
+            switch (type) {
+                case kColumnString:
+                    valuesOffset = -1;
+                    stringsOffset = bitmapLength;
+                    break;
+                case kColumnDictionary:
+                    valuesOffset = bitmapLength;
+                    stringsOffset = -1;
+                    break;
+                default:
+                    valuesOffset = 2 * bitmapLength;
+                    int end = valuesOffset + 4 * size;
+                    stringsOffset = buffer != null && buffer.limit() > end ? end : -1;
+            }
+        }
+
+        /** Returns the storage type of the column. */
+        public ColumnType getType() {
+            return type;
+        }
+
+        /** Returns the number of rows. */
+        public int size() {
+            return size;
+        }
+
+        /** Returns whether or not {@code row} has a value. */
+        public boolean hasValue(int row) {
+            return buffer != null && isSet(0, row);
+        }
+
+        /**
+         * Returns whether or not {@code row} has an integer value(e.g. "1" or "01"), that {@link #getInt(int)} can
+         * return.
+         */
+        public boolean isInteger(int row) {
+            return type == ColumnType.kColumnInteger && hasValue(row) && getInt(row) != -1;
+        }
+
+        /** Returns the integer value of {@code row}; only meaningful if {@link #isInteger(int)}. */
+        public int getInt(int row) {
+            if (type != ColumnType.kColumnInteger) throw new IllegalStateException("Not an integer column: " + type);
+            return buffer == null ? 0 : buffer.getInt(valuesOffset + 4 * checkIndex(row));
+        }
+
+        /** Returns the dictionary code of {@code row}; -1 if it doesn't have a value. */
+        public int getCode(int row) {
+            if (type != ColumnType.kColumnDictionary) {
+                throw new IllegalStateException("Not a dictionary column: " + type);
+            }
+            return buffer == null ? -1 : buffer.getInt(valuesOffset + 4 * checkIndex(row));
+        }
+
+        /** Returns the value of {@code row}, as it was parsed; null if it doesn't have one. */
+        public String getString(int row) {
+            if (!hasValue(checkIndex(row))) return null;
+            switch (type) {
+                case kColumnDictionary:
+                    return dictionary.get(getCode(row));
+                case kColumnInteger:
+                    return isSet(bitmapLength, row) ? readString(row) : Integer.toString(getInt(row));
+                default:
+                    return readString(row);
+            }
+        }
+
+        /** Returns the values of {@code row}; empty if it doesn't have any. */
+        public List<String> getValues(int row) {
+            String value = getString(row);
+            if (value == null) return Collections.emptyList();
+            List<String> values = new ArrayList<>(1);
+            int start = 0;
+            for (int i; (i = value.indexOf(ColumnarFormat.kValueSeparator, start)) != -1; start = i + 1) {
+                values.add(value.substring(start, i));
+            }
+
+            values.add(value.substring(start));
+            return values;
+        }
+
+        private String readString(int row) {
+            int begin = buffer.getInt(stringsOffset + 4 * row);
+            int end = buffer.getInt(stringsOffset + 4 * (row + 1));
+            int bytes = stringsOffset + 4 * (size + 1);
+            ByteBuffer slice = buffer.duplicate();
+            ((Buffer) slice).limit(bytes + end).position(bytes + begin);
+            return StringHelper.fromUtf8(slice);
+        }
+
+        private boolean isSet(int bitmap, int row) {
+            return (buffer.get(bitmap + (row >> 3)) & 1 << (row & 7)) != 0;
+        }
+
+        private int checkIndex(int row) {
+            if (row < 0 || row >= size) throw new IndexOutOfBoundsException("row: " + row);
+            return row;
+        }
+
+        @Override
+        public String toString() {
+            return "Column{" +
+                    "type=" + type +
+                    ", size=" + size +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.dgtlrepublic.anitomyj.ColumnarFormat.ColumnType;
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
+/**
+ * Writes parse results in the columnar format described by {@link ColumnarFormat}, one row per parsed filename, e.g.
+ * <pre>
+ * try (ColumnarWriter writer = new ColumnarWriter(Paths.get("library.anic"))) {
+ *     new LibraryCrawler().crawl(root, (path, elements) -&gt; {
+ *         synchronized (writer) { writer.write(elements); }
+ *     });
+ * }
+ * </pre>
+ * Rows are buffered until a row group is full, so memory use is bounded by the row group size; the dictionaries of the
+ * dictionary-encoded columns are kept for the whole file. Instances aren't thread-safe.
+ *
+ * @author Paul Miller
+ */
+public class ColumnarWriter implements Closeable {
+    private static final ElementCategory[] kCategories = ElementCategory.values();
+
+    private final OutputStream out;
+    private final int rowGroupSize;
+    private final ColumnBuffer[] columns = new ColumnBuffer[kCategories.length];
+    private final String[] cells = new String[kCategories.length];
+    private final List<RowGroup> groups = new ArrayList<>();
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private long position = 0;
+    private long rowCount = 0;
+    private int groupRowCount = 0;
+    private boolean closed = false;
+
+    /**
+     * Constructs a new writer with the default row group size.
+     *
+     * @param file the output file; replaced if it exists
+     */
+    public ColumnarWriter(Path file) throws IOException {
+        this(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16), ColumnarFormat.kDefaultRowGroupSize);
+    }
+
+    /**
+     * Constructs a new writer.
+     *
+     * @param out          the output; closed along with the writer
+     * @param rowGroupSize the number of rows per row group
+     */
+    public ColumnarWriter(OutputStream out, int rowGroupSize) throws IOException {
+        if (rowGroupSize < 1) throw new IllegalArgumentException("rowGroupSize must be positive: " + rowGroupSize);
+        this.out = Objects.requireNonNull(out);
+        this.rowGroupSize = rowGroupSize;
+        for (ElementCategory category : kCategories) {
+            columns[category.ordinal()] = new ColumnBuffer(ColumnarFormat.getColumnType(category), rowGroupSize);
+        }
+
+        buffer.putInt(ColumnarFormat.kMagic).putInt(ColumnarFormat.kVersion);
+        writeBuffer();
+    }
+
+    /**
+     * Writes a single row.
+     *
+     * @param elements the parsed elements of a filename
+     */
+    public void write(List<Element> elements) throws IOException {
+        if (closed) throw new IllegalStateException("Writer is closed");
+        for (Element element : elements) {
+            int ordinal = element.getCategory().ordinal();
+            cells[ordinal] = cells[ordinal] == null
+                             ? element.getValue()
+                             : cells[ordinal] + ColumnarFormat.kValueSeparator + element.getValue();
+        }
+
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] == null) continue;
+            columns[i].add(groupRowCount, cells[i]);
+            cells[i] = null;
+        }
+
+        rowCount++;
+        if (++groupRowCount == rowGroupSize) flushRowGroup();
+    }
+
+    /** Returns the number of rows written so far. */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /** Writes the pending rows and the footer, and closes the output. */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (groupRowCount > 0) flushRowGroup();
+            writeFooter();
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** Writes the buffered rows as a row group. */
+    private void flushRowGroup() throws IOException {
+        RowGroup group = new RowGroup(groupRowCount, columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            ColumnBuffer column = columns[i];
+            group.offsets[i] = position;
+            group.valueCounts[i] = column.valueCount;
+            group.minimums[i] = column.minimum;
+            group.maximums[i] = column.maximum;
+            if (column.valueCount > 0) {
+                column.writeChunk(this, groupRowCount);
+                group.lengths[i] = writeBuffer();
+            }
+            column.reset(groupRowCount);
+        }
+
+        groups.add(group);
+        groupRowCount = 0;
+    }
+
+    private void writeFooter() throws IOException {
+        long footerOffset = position;
+        buffer.putInt(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            putString(kCategories[i].name());
+            ensure(1);
+            buffer.put((byte) columns[i].type.ordinal());
+        }
+
+        buffer.putInt(groups.size());
+        for (RowGroup group : groups) {
+            ensure(4 + columns.length * 24);
+            buffer.putInt(group.rowCount);
+            for (int i = 0; i < columns.length; i++) {
+                buffer.putLong(group.offsets[i])
+                        .putInt(group.lengths[i])
+                        .putInt(group.valueCounts[i])
+                        .putInt(group.minimums[i])
+                        .putInt(group.maximums[i]);
+            }
+        }
+
+        for (ColumnBuffer column : columns) {
+            if (column.type != ColumnType.kColumnDictionary) continue;
+            ensure(4);
+            buffer.putInt(column.dictionaryValues.size());
+            for (String value : column.dictionaryValues) putString(value);
+        }
+
+        ensure(12);
+        buffer.putLong(footerOffset).putInt(ColumnarFormat.kMagic);
+        writeBuffer();
+    }
+
+    /** Writes and clears the buffer; returns the number of bytes written. */
+    private int writeBuffer() throws IOException {
+        int length = buffer.position();
+        out.write(buffer.array(), 0, length);
+        ((Buffer) buffer).clear();
+        position += length;
+        return length;
+    }
+
+    /** Makes room for {@code length} more bytes in the buffer. */
+    private void ensure(int length) {
+        if (buffer.remaining() >= length) return;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        ((Buffer) buffer).flip();
+        buffer = grown.put(buffer);
+    }
+
+    private void putString(String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    /** Puts a string section: the offsets of every row, followed by the UTF-8 bytes of the non-null strings. */
+    private void putStrings(String[] strings, int rows) {
+        ensure(4 * (rows + 1));
+        int offsets = buffer.position();
+        ((Buffer) buffer).position(offsets + 4 * (rows + 1));
+        int bytesStart = buffer.position();
+
+        buffer.putInt(offsets, 0);
+        for (int row = 0; row < rows; row++) {
+            if (strings[row] != null) {
+                byte[] bytes = strings[row].getBytes(StandardCharsets.UTF_8);
+                ensure(bytes.length);
+                buffer.put(bytes);
+            }
+            buffer.putInt(offsets + 4 * (row + 1), buffer.position() - bytesStart);
+        }
+    }
+
+    /** The pending values of a single column. */
+    private static class ColumnBuffer {
+        final ColumnType type;
+        final byte[] present;
+        final byte[] raw;
+        final int[] ints;
+        final String[] strings;
+        final Map<String, Integer> dictionary;
+        final List<String> dictionaryValues;
+        int valueCount = 0;
+        int minimum = Integer.MAX_VALUE;
+        int maximum = Integer.MIN_VALUE;
+        boolean hasRaw = false;
+
+        ColumnBuffer(ColumnType type, int rowGroupSize) {
+            this.type = type;
+            this.present = new byte[(rowGroupSize + 7) / 8];
+            this.raw = type == ColumnType.kColumnInteger ? new byte[present.length] : null;
+            this.ints = type != ColumnType.kColumnString ? new int[rowGroupSize] : null;
+            this.strings = type != ColumnType.kColumnDictionary ? new String[rowGroupSize] : null;
+            this.dictionary = type == ColumnType.kColumnDictionary ? new HashMap<>() : null;
+            this.dictionaryValues = type == ColumnType.kColumnDictionary ? new ArrayList<>() : null;
+        }
+
+        void add(int row, String value) {
+            present[row >> 3] |= 1 << (row & 7);
+            valueCount++;
+            switch (type) {
+                case kColumnString:
+                    strings[row] = value;
+                    break;
+                case kColumnDictionary: {
+                    Integer code = dictionary.get(value);
+                    if (code == null) {
+                        code = dictionaryValues.size();
+                        dictionary.put(value, code);
+                        dictionaryValues.add(value);
+                    }
+                    ints[row] = code;
+                    break;
+                }
+                case kColumnInteger: {
+                    int number = ColumnarFormat.toInt(value);
+                    /** keep the values that don't read back the same(e.g. "01-02" and "01") as written */
+                    if (number == -1 || value.length() > 1 && value.charAt(0) == '0') {
+                        raw[row >> 3] |= 1 << (row & 7);
+                        strings[row] = value;
+                        hasRaw = true;
+                    }
+
+                    ints[row] = number;
+                    if (number != -1) {
+                        minimum = Math.min(minimum, number);
+                        maximum = Math.max(maximum, number);
+                    }
+                    break;
+                }
+            }
+        }
+
+        void writeChunk(ColumnarWriter writer, int rows) {
+            int bitmapLength = (rows + 7) / 8;
+            writer.ensure(bitmapLength);
+            writer.buffer.put(present, 0, bitmapLength);
+            if (type == ColumnType.kColumnString) {
+                writer.putStrings(strings, rows);
+                return;
+            }
+
+            if (type == ColumnType.kColumnInteger) {
+                writer.ensure(bitmapLength);
+                writer.buffer.put(raw, 0, bitmapLength);
+            }
+
+            writer.ensure(4 * rows);
+            for (int row = 0; row < rows; row++) {
+                boolean isPresent = (present[row >> 3] & 1 << (row & 7)) != 0;
+                writer.buffer.putInt(isPresent ? ints[row] : -1);
+            }
+
+            if (hasRaw) writer.putStrings(strings, rows);
+        }
+
+        void reset(int rows) {
+            Arrays.fill(present, 0, (rows + 7) / 8, (byte) 0);
+            if (raw != null) Arrays.fill(raw, 0, (rows + 7) / 8, (byte) 0);
+            if (strings != null) Arrays.fill(strings, 0, rows, null);
+            valueCount = 0;
+            minimum = Integer.MAX_VALUE;
+            maximum = Integer.MIN_VALUE;
+            hasRaw = false;
+        }
+    }
+
+    /** The location and statistics of the chunks of a row group. */
+    private static class RowGroup {
+        final int rowCount;
+        final long[] offsets;
+        final int[] lengths;
+        final int[] valueCounts;
+        final int[] minimums;
+        final int[] maximums;
+
+        RowGroup(int rowCount, int columnCount) {
+            this.rowCount = rowCount;
+            this.offsets = new long[columnCount];
+            this.lengths = new int[columnCount];
+            this.valueCounts = new int[columnCount];
+            this.minimums = new int[columnCount];
+            this.maximums = new int[columnCount];
+        }
+    }
+}
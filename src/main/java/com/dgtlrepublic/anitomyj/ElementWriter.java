@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
+/**
+ * Streams parse results to an {@link Appendable}, either as JSON objects(one per line) or as CSV rows.
+ * <p>
+ * Fields are named after their {@link ElementCategory}, plus a leading {@code file_name} field with the input. In JSON,
+ * categories with several elements are written as arrays; in CSV, their values are joined by {@code ';'}, and any
+ * {@code ';'} or {@code '\'} inside of a category value is escaped with a {@code '\'}(e.g. {@code "A;B"} becomes
+ * {@code "A\;B"}), so that the cell can be split back into its values. Categories are always written in the order
+ * of {@link ElementCategory}.
+ * <p>
+ * The writer works straight off the element list: no reflection, no intermediate maps, and no allocations per result
+ * beyond what the {@link Appendable} does itself. Instances can be reused for any number of results, but aren't
+ * thread-safe.
+ *
+ * @author Paul Miller
+ */
+public class ElementWriter {
+    /** The output format */
+    public enum Format {
+        kFormatJson,
+        kFormatCsv
+    }
+
+    private static final ElementCategory[] kCategories = ElementCategory.values();
+    private static final char[] kHexDigits = "0123456789abcdef".toCharArray();
+
+    private final Appendable out;
+    private final Format format;
+    private final boolean[] columns = new boolean[kCategories.length];
+    private final int[] counts = new int[kCategories.length];
+
+    /**
+     * Constructs a new writer for every category.
+     *
+     * @param out    the output
+     * @param format the output format
+     */
+    public ElementWriter(Appendable out, Format format) {
+        this(out, format, EnumSet.allOf(ElementCategory.class));
+    }
+
+    /**
+     * Constructs a new writer.
+     *
+     * @param out     the output
+     * @param format  the output format
+     * @param columns the categories to write; elements of other categories are skipped
+     */
+    public ElementWriter(Appendable out, Format format, EnumSet<ElementCategory> columns) {
+        this.out = Objects.requireNonNull(out);
+        this.format = Objects.requireNonNull(format);
+        for (ElementCategory category : columns) this.columns[category.ordinal()] = true;
+    }
+
+    /** Writes the CSV header row. Does nothing for JSON. */
+    public void writeHeader() throws IOException {
+        if (format != Format.kFormatCsv) return;
+        out.append("file_name");
+        for (ElementCategory category : kCategories) {
+            if (!columns[category.ordinal()]) continue;
+            out.append(',').append(category.name());
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Writes a single result.
+     *
+     * @param fileName the input file name
+     * @param elements the parsed elements; null if the file name couldn't be parsed, which is written as {@code
+     *                 "error":true} in JSON and as a row without values in CSV
+     */
+    public void write(String fileName, List<Element> elements) throws IOException {
+        write(fileName, elements, false);
+    }
+
+    /**
+     * Writes a single result that may have been cut short by its {@link ParseBudget}. A truncated result is written
+     * with a {@code "truncated":true} field in JSON; CSV rows don't record it.
+     *
+     * @param fileName  the input file name
+     * @param elements  the parsed elements; null if the file name couldn't be parsed
+     * @param truncated whether or not the parse stopped early
+     */
+    public void write(String fileName, List<Element> elements, boolean truncated) throws IOException {
+        if (format == Format.kFormatJson) {
+            writeJson(fileName, elements, truncated);
+        } else {
+            writeCsv(fileName, elements);
+        }
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    private void writeJson(String fileName, List<Element> elements, boolean truncated) throws IOException {
+        out.append("{\"file_name\":");
+        writeJsonString(fileName);
+        if (elements == null) {
+            out.append(",\"error\":true}\n");
+            return;
+        }
+        if (truncated) out.append(",\"truncated\":true");
+
+        count(elements);
+        for (ElementCategory category : kCategories) {
+            int count = counts[category.ordinal()];
+            if (count == 0) continue;
+
+            out.append(",\"").append(category.name()).append("\":");
+            if (count > 1) out.append('[');
+            boolean first = true;
+            for (Element element : elements) {
+                if (element.getCategory() != category) continue;
+                if (!first) out.append(',');
+                writeJsonString(element.getValue());
+                first = false;
+            }
+            if (count > 1) out.append(']');
+        }
+
+        out.append("}\n");
+    }
+
+    private void writeCsv(String fileName, List<Element> elements) throws IOException {
+        writeCsvField(fileName, null, null);
+        if (elements != null) count(elements);
+        for (ElementCategory category : kCategories) {
+            if (!columns[category.ordinal()]) continue;
+            out.append(',');
+            if (elements != null && counts[category.ordinal()] > 0) writeCsvField(null, elements, category);
+        }
+
+        out.append('\n');
+    }
+
+    /** Counts the elements per requested category. */
+    private void count(List<Element> elements) {
+        for (int i = 0; i < counts.length; i++) counts[i] = 0;
+        for (Element element : elements) {
+            int ordinal = element.getCategory().ordinal();
+            if (columns[ordinal]) counts[ordinal]++;
+        }
+    }
+
+    /** Writes a JSON string literal. */
+    private void writeJsonString(String string) throws IOException {
+        out.append('"');
+        int start = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') continue;
+
+            out.append(string, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    out.append("\\u")
+                            .append(kHexDigits[c >> 12 & 0xF])
+                            .append(kHexDigits[c >> 8 & 0xF])
+                            .append(kHexDigits[c >> 4 & 0xF])
+                            .append(kHexDigits[c & 0xF]);
+            }
+        }
+
+        out.append(string, start, string.length()).append('"');
+    }
+
+    /**
+     * Writes a single CSV field: either {@code value}, or the values of every element of {@code category} joined by
+     * ';', with their ';' and '\' escaped. The field is quoted if it contains a separator, a quote or a line break.
+     */
+    private void writeCsvField(String value, List<Element> elements, ElementCategory category) throws IOException {
+        boolean quote = false;
+        if (value != null) {
+            quote = needsQuotes(value);
+        } else {
+            for (Element element : elements) {
+                if (element.getCategory() == category && needsQuotes(element.getValue())) quote = true;
+            }
+        }
+
+        if (quote) out.append('"');
+        if (value != null) {
+            writeCsvValue(value, quote, false);
+        } else {
+            boolean first = true;
+            for (Element element : elements) {
+                if (element.getCategory() != category) continue;
+                if (!first) out.append(';');
+                writeCsvValue(element.getValue(), quote, true);
+                first = false;
+            }
+        }
+        if (quote) out.append('"');
+    }
+
+    private void writeCsvValue(String value, boolean quoted, boolean escapeSeparators) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' && quoted) {
+                out.append(value, start, i + 1).append('"');
+                start = i + 1;
+            } else if ((c == ';' || c == '\\') && escapeSeparators) {
+                out.append(value, start, i).append('\\').append(c);
+                start = i + 1;
+            }
+        }
+
+        out.append(value, start, value.length());
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == ';' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternFractionalEpisode;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternJapaneseCounter;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternMultiEpisode;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternNumberSign;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternSeasonAndEpisode;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternSingleEpisode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the episode patterns of {@link ParserNumber#matchEpisodePatterns(String, Token)}, counts how often each one
+ * matches, and tries the most frequent ones first.
+ * <p>
+ * Before a pattern's regular expression runs, a few character checks(e.g. "starts with '#'", "ends with '.5'") rule out
+ * the words that don't have its shape, so most words run a single regular expression, or none. The words the
+ * reorderable patterns {@link EpisodePattern#accepts(String) accept} are pairwise disjoint, so at most one of them can
+ * match any given word, and the order they're tried in doesn't change the result. {@link
+ * EpisodePattern#kTypeAndEpisode} depends on the keywords, and adds an element even when it doesn't match; it's never
+ * moved, and the patterns before and after it are only reordered among themselves.
+ * <p>
+ * The order is recomputed from the hit counts on about one in {@value #kReorderInterval} matches. Callers can read the
+ * order and the counters; only the parser changes them. This class is thread-safe.
+ *
+ * @author Paul Miller
+ */
+public class EpisodePatternDispatcher {
+    /** The episode patterns, in their default order. */
+    public enum EpisodePattern {
+        /** e.g. "01v2" */
+        kSingleEpisode(true, kPatternSingleEpisode) {
+            @Override
+            boolean fits(String word, boolean numericFront, boolean numericBack) {
+                return numericFront && numericBack && word.length() >= 3 && word.length() <= 5
+                        && isVersion(word.charAt(word.length() - 2));
+            }
+
+            @Override
+            boolean match(ParserNumber parserNumber, String word, Token token) {
+                return parserNumber.matchSingleEpisodePattern(word, token);
+            }
+        },
+
+        /** e.g. "01-02", "03-05v2" */
+        kMultiEpisode(true, kPatternMultiEpisode) {
+            @Override
+            boolean fits(String word, boolean numericFront, boolean numericBack) {
+                return numericFront && numericBack && hasRangeSeparator(word);
+            }
+
+            @Override
+            boolean match(ParserNumber parserNumber, String word, Token token) {
+                return parserNumber.matchMultiEpisodePattern(word, token);
+            }
+        },
+
+        /** e.g. "2x01", "S01E03", "S01-02xE001-150" */
+        kSeasonAndEpisode(true, kPatternSeasonAndEpisode) {
+            @Override
+            boolean fits(String word, boolean numericFront, boolean numericBack) {
+                char front = word.charAt(0);
+                return numericBack && (numericFront || front == 'S' || front == 's') && hasEpisodeSeparator(word);
+            }
+
+            @Override
+            boolean match(ParserNumber parserNumber, String word, Token token) {
+                return parserNumber.matchSeasonAndEpisodePattern(word, token);
+            }
+        },
+
+        /** e.g. "ED1", "OP4a", "OVA2" */
+        kTypeAndEpisode(false, null) {
+            @Override
+            boolean fits(String word, boolean numericFront, boolean numericBack) {
+                return !numericFront;
+            }
+
+            @Override
+            boolean match(ParserNumber parserNumber, String word, Token token) {
+                return parserNumber.matchTypeAndEpisodePattern(word, token);
+            }
+        },
+
+        /** e.g. "07.5" */
+        kFractionalEpisode(true, kPatternFractionalEpisode) {
+            @Override
+            boolean fits(String word, boolean numericFront, boolean numericBack) {
+                return numericFront && word.length() >= 3 && word.endsWith(".5");
+            }
+
+            @Override
+            boolean match(ParserNumber parserNumber, String word, Token token) {
+                return parserNumber.matchFractionalEpisodePattern(word, token);
+            }
+        },
+
+        /** e.g. "4a", "111C" */
+        kPartialEpisode(true, null) {
+            @Override
+            boolean fits(String word, boolean numericFront, boolean numericBack) {
+                if (!numericFront || numericBack) return false;
+                char suffix = word.charAt(word.length() - 1);
+                if ((suffix < 'A' || suffix > 'C') && (suffix < 'a' || suffix > 'c')) return false;
+                for (int i = 0; i < word.length() - 1; i++) {
+                    if (!Character.isDigit(word.charAt(i))) return false;
+                }
+
+                return true;
+            }
+
+            @Override
+            boolean match(ParserNumber parserNumber, String word, Token token) {
+                return parserNumber.matchPartialEpisodePattern(word, token);
+            }
+        },
+
+        /** e.g. "#01", "#02-03v2" */
+        kNumberSign(true, kPatternNumberSign) {
+            @Override
+            boolean fits(String word, boolean numericFront, boolean numericBack) {
+                return numericBack && word.charAt(0) == '#';
+            }
+
+            @Override
+            boolean match(ParserNumber parserNumber, String word, Token token) {
+                return parserNumber.matchNumberSignPattern(word, token);
+            }
+        },
+
+        /** e.g. "01\u8A71"; U+8A71 is used as counter for stories, episodes of TV series, etc. */
+        kJapaneseCounter(true, kPatternJapaneseCounter) {
+            @Override
+            boolean fits(String word, boolean numericFront, boolean numericBack) {
+                return numericFront && word.charAt(word.length() - 1) == '\u8A71';
+            }
+
+            @Override
+            boolean match(ParserNumber parserNumber, String word, Token token) {
+                return parserNumber.matchJapaneseCounterPattern(word, token);
+            }
+        };
+
+        private final boolean reorderable;
+        private final TokenClassifier.TokenPattern pattern;
+
+        EpisodePattern(boolean reorderable, TokenClassifier.TokenPattern pattern) {
+            this.reorderable = reorderable;
+            this.pattern = pattern;
+        }
+
+        /** Returns whether or not the pattern may be tried in another order than its default one. */
+        public boolean isReorderable() {
+            return reorderable;
+        }
+
+        /**
+         * Returns whether or not the pattern accepts {@code word}, i.e. whether it could match it. A pattern never
+         * matches a word it doesn't accept. Runs the pattern's regular expression; the dispatcher only runs the cheap
+         * shape checks before it tries a pattern.
+         */
+        public boolean accepts(String word) {
+            if (word == null || word.isEmpty()) return false;
+            boolean numericFront = Character.isDigit(word.charAt(0));
+            boolean numericBack = Character.isDigit(word.charAt(word.length() - 1));
+            return fits(word, numericFront, numericBack)
+                    && (pattern == null || TokenClassifier.getInstance().match(pattern, word) != null);
+        }
+
+        /**
+         * Returns whether or not {@code word} has the shape of the pattern(e.g. starts with '#'), without running its
+         * regular expression. Every word the pattern accepts fits it.
+         */
+        abstract boolean fits(String word, boolean numericFront, boolean numericBack);
+
+        abstract boolean match(ParserNumber parserNumber, String word, Token token);
+
+        private static boolean isVersion(char c) {
+            return c == 'v' || c == 'V';
+        }
+
+        private static boolean hasRangeSeparator(String word) {
+            for (int i = 1; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (c == '-' || c == '~' || c == '&' || c == '+') return true;
+            }
+
+            return false;
+        }
+
+        private static boolean hasEpisodeSeparator(String word) {
+            for (int i = 1; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (c == 'x' || c == 'X' || c == 'e' || c == 'E') return true;
+            }
+
+            return false;
+        }
+    }
+
+    /** The order is recomputed on about one in this many matches. */
+    public static final int kReorderInterval = 1024;
+
+    private static final EpisodePattern[] kDefaultOrder = EpisodePattern.values();
+    private static final EpisodePatternDispatcher instance = new EpisodePatternDispatcher();
+
+    private final LongAdder[] attemptCounts = new LongAdder[kDefaultOrder.length];
+    private final LongAdder[] hitCounts = new LongAdder[kDefaultOrder.length];
+    private final LongAdder reorderCount = new LongAdder();
+    private volatile EpisodePattern[] order = kDefaultOrder;
+
+    private EpisodePatternDispatcher() {
+        for (int i = 0; i < kDefaultOrder.length; i++) {
+            attemptCounts[i] = new LongAdder();
+            hitCounts[i] = new LongAdder();
+        }
+    }
+
+    /** Returns the dispatcher that the parser uses. */
+    public static EpisodePatternDispatcher getInstance() {
+        return instance;
+    }
+
+    /** Returns the order the patterns are currently tried in. */
+    public List<EpisodePattern> getOrder() {
+        return Collections.unmodifiableList(Arrays.asList(order));
+    }
+
+    /** Returns the number of times {@code pattern} was tried on a word that has its shape. */
+    public long getAttemptCount(EpisodePattern pattern) {
+        return attemptCounts[pattern.ordinal()].sum();
+    }
+
+    /** Returns the number of times {@code pattern} matched. */
+    public long getHitCount(EpisodePattern pattern) {
+        return hitCounts[pattern.ordinal()].sum();
+    }
+
+    /** Returns the number of matches of every pattern. */
+    public Map<EpisodePattern, Long> getHitCounts() {
+        Map<EpisodePattern, Long> counts = new EnumMap<>(EpisodePattern.class);
+        for (EpisodePattern pattern : kDefaultOrder) counts.put(pattern, getHitCount(pattern));
+        return counts;
+    }
+
+    /** Returns the number of times the order changed. */
+    public long getReorderCount() {
+        return reorderCount.sum();
+    }
+
+    /**
+     * Sorts the reorderable patterns by their hit counts, most frequent first. Patterns that can't be reordered stay in
+     * place, and ties keep their default order.
+     */
+    private void reorder() {
+        long[] hits = new long[kDefaultOrder.length];
+        for (int i = 0; i < hits.length; i++) hits[i] = hitCounts[i].sum();
+        Comparator<EpisodePattern> byHits = Comparator.comparingLong(pattern -> -hits[pattern.ordinal()]);
+
+        EpisodePattern[] reordered = kDefaultOrder.clone();
+        int begin = 0;
+        for (int i = 0; i <= reordered.length; i++) {
+            if (i == reordered.length || !reordered[i].reorderable) {
+                Arrays.sort(reordered, begin, i, byHits);
+                begin = i + 1;
+            }
+        }
+
+        if (!Arrays.equals(reordered, order)) {
+            order = reordered;
+            reorderCount.increment();
+        }
+    }
+
+    /**
+     * Tries the patterns on {@code word}, and stops at the first one that matches.
+     *
+     * @param parserNumber the number parser
+     * @param word         the word, trimmed
+     * @param token        the token
+     * @return true if a pattern matched
+     */
+    boolean dispatch(ParserNumber parserNumber, String word, Token token) {
+        boolean numericFront = Character.isDigit(word.charAt(0));
+        boolean numericBack = Character.isDigit(word.charAt(word.length() - 1));
+
+        for (EpisodePattern pattern : order) {
+            if (!pattern.fits(word, numericFront, numericBack)) continue;
+            attemptCounts[pattern.ordinal()].increment();
+            if (pattern.match(parserNumber, word, token)) {
+                hitCounts[pattern.ordinal()].increment();
+                if (ThreadLocalRandom.current().nextInt(kReorderInterval) == 0) reorder();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "EpisodePatternDispatcher{" +
+                "order=" + Arrays.toString(order) +
+                ", hitCounts=" + getHitCounts() +
+                ", reorderCount=" + getReorderCount() +
+                '}';
+    }
+}
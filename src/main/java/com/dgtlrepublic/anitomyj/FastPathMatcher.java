@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeTitle;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAudioTerm;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementDeviceCompatibility;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodeNumber;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementFileChecksum;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementFileExtension;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementFileName;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementLanguage;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementOther;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementReleaseGroup;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementReleaseInformation;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementSource;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementUnknown;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementVideoResolution;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementVideoTerm;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+import com.dgtlrepublic.anitomyj.KeywordManager.KeywordOptions;
+
+/**
+ * A single pass matcher for the most common filename templates:
+ * <pre>
+ * [Group] Title - 01 [1080p][ABCD1234].mkv
+ * Title - 01 (BD 1080p).mkv
+ * </pre>
+ * The matcher only accepts a filename when every part of it is unambiguous, i.e. when the full {@link Tokenizer} +
+ * {@link Parser} would be guaranteed to produce exactly the same elements, in the same order. Anything else(keywords
+ * inside the title, numbers outside of the episode slot, unknown tags, unusual delimiters, ...) is rejected, and the
+ * caller has to fall back to the full parser.
+ *
+ * @author Paul Miller
+ */
+class FastPathMatcher {
+    /** Keyword categories that may appear any number of times inside of tags. */
+    private static final EnumSet<ElementCategory> kTagCategories = EnumSet.of(kElementAudioTerm,
+                                                                              kElementDeviceCompatibility,
+                                                                              kElementLanguage,
+                                                                              kElementOther,
+                                                                              kElementReleaseInformation,
+                                                                              kElementSource,
+                                                                              kElementVideoTerm);
+
+    private final String filename;
+    private final Options options;
+    private final List<Element> peekElements = new ArrayList<>();
+    private final List<Element> tagElements = new ArrayList<>();
+    private boolean hasChecksum = false;
+    private boolean hasResolution = false;
+
+    private FastPathMatcher(String filename, Options options) {
+        this.filename = filename;
+        this.options = options;
+    }
+
+    /**
+     * Attempts to match {@code filename} against one of the common templates.
+     *
+     * @param filename the anime file name
+     * @param options  the parser options
+     * @return the parsed elements; null if the filename doesn't fit a template
+     */
+    static List<Element> match(String filename, Options options) {
+        if (!options.parseEpisodeNumber || !options.parseReleaseGroup) return null;
+        return new FastPathMatcher(filename, options).match();
+    }
+
+    /** Returns the parsed elements; null if the filename doesn't fit a template. */
+    private List<Element> match() {
+        List<Element> elements = new ArrayList<>(16);
+
+        AtomicReference<String> fname = new AtomicReference<>(filename);
+        if (options.parseFileExtension) {
+            AtomicReference<String> extension = new AtomicReference<>();
+            if (AnitomyJ.removeExtensionFromFilename(fname, extension)) {
+                elements.add(new Element(kElementFileExtension, extension.get()));
+            }
+        }
+
+        String name = fname.get();
+        if (name == null || name.isEmpty()) return null;
+        elements.add(new Element(kElementFileName, name));
+
+        /** [Group] */
+        int pos = 0;
+        String group = null;
+        if (name.charAt(0) == '[') {
+            int end = name.indexOf(']');
+            if (end == -1 || end + 1 >= name.length() || name.charAt(end + 1) != ' ') return null;
+            group = name.substring(1, end);
+            if (!isPlainPhrase(name, 1, end) || !peekFindsNothing(name, 1, end)) return null;
+            pos = end + 2;
+        }
+
+        /** Title - */
+        int separator = name.indexOf(" - ", pos);
+        if (separator == -1 || !isPlainPhrase(name, pos, separator)) return null;
+        String title = name.substring(pos, separator);
+
+        /** 01 */
+        int episodeBegin = separator + 3;
+        int episodeEnd = episodeBegin;
+        while (episodeEnd < name.length() && isAsciiDigit(name.charAt(episodeEnd))) episodeEnd++;
+        if (episodeEnd == episodeBegin || episodeEnd - episodeBegin > 3) return null;
+        String episode = name.substring(episodeBegin, episodeEnd);
+
+        /** The non-enclosed range is peeked as a whole, from the end of the group up to the first tag */
+        int rangeEnd = name.length();
+        for (int i = episodeEnd; i < name.length(); i++) {
+            if (name.charAt(i) != ' ') {
+                rangeEnd = i;
+                break;
+            }
+        }
+
+        if (!peekFindsNothing(name, group == null ? 0 : pos - 1, rangeEnd)) return null;
+
+        /** [Tags](Tags) */
+        for (int i = rangeEnd; i < name.length(); ) {
+            char c = name.charAt(i);
+            if (c == ' ') {
+                i++;
+                continue;
+            }
+
+            char close;
+            if (c == '[') {
+                close = ']';
+            } else if (c == '(') {
+                close = ')';
+            } else {
+                return null;
+            }
+
+            int end = name.indexOf(close, i + 1);
+            if (end == -1 || !matchTags(name, i + 1, end)) return null;
+            i = end + 1;
+        }
+
+        elements.addAll(peekElements);
+        elements.addAll(tagElements);
+        elements.add(new Element(kElementEpisodeNumber, episode));
+        elements.add(new Element(kElementAnimeTitle, title));
+        if (group != null) elements.add(new Element(kElementReleaseGroup, group));
+        return elements;
+    }
+
+    /**
+     * Returns whether or not {@code name[begin, end)} is a run of plain words separated by single spaces, that the
+     * parser would leave unknown.
+     */
+    private static boolean isPlainPhrase(String name, int begin, int end) {
+        if (begin >= end) return false;
+        int wordBegin = begin;
+        for (int i = begin; i <= end; i++) {
+            if (i == end || name.charAt(i) == ' ') {
+                if (!isPlainWord(name, wordBegin, i)) return false;
+                wordBegin = i + 1;
+            }
+        }
+
+        return true;
+    }
+
+    /** Returns whether or not {@code name[begin, end)} is a word that can't be mistaken for a keyword or number. */
+    static boolean isPlainWord(String name, int begin, int end) {
+        if (begin >= end || name.charAt(begin) == '-' || name.charAt(end - 1) == '-') return false;
+        for (int i = begin; i < end; i++) {
+            char c = name.charAt(i);
+            if (!isAsciiLetter(c) && c != '-' && c != '!' && c != '?' && c != '\'') return false;
+        }
+
+        String word = name.substring(begin, end);
+        return !ParserHelper.isCrc32(word) && !isKeyword(word);
+    }
+
+    /** Returns whether or not the keyword peek would pre-identify anything inside of {@code name[begin, end)}. */
+    private static boolean peekFindsNothing(String name, int begin, int end) {
+        List<TokenRange> preidentified = new ArrayList<>();
+        KeywordManager.getInstance().peekAndAdd(name, new TokenRange(begin, end - begin), new ArrayList<>(),
+                                                preidentified);
+        return preidentified.isEmpty();
+    }
+
+    /**
+     * Matches the contents of a single tag group, e.g. "BD 1080p".
+     *
+     * @param name  the filename
+     * @param begin the first character of the group. Inclusive.
+     * @param end   the closing bracket. Exclusive.
+     * @return true if every word of the group was identified
+     */
+    private boolean matchTags(String name, int begin, int end) {
+        if (begin >= end) return false;
+
+        List<TokenRange> preidentified = new ArrayList<>();
+        KeywordManager.getInstance().peekAndAdd(name, new TokenRange(begin, end - begin), peekElements, preidentified);
+        int peeked = 0;
+
+        int wordBegin = begin;
+        for (int i = begin; i <= end; i++) {
+            if (i != end && name.charAt(i) != ' ') continue;
+            if (wordBegin == i) return false;
+
+            int overlap = findOverlap(preidentified, wordBegin, i);
+            if (overlap == 1) {
+                if (!markResolution(name.substring(wordBegin, i))) return false;
+                peeked++;
+            } else if (overlap == -1 || !matchTag(name, wordBegin, i)) {
+                return false;
+            }
+
+            wordBegin = i + 1;
+        }
+
+        return peeked == preidentified.size();
+    }
+
+    /**
+     * Matches a single tag, the way {@link Parser#searchForKeywords()} would.
+     *
+     * @param name  the filename
+     * @param begin the first character of the tag. Inclusive.
+     * @param end   the last character of the tag. Exclusive.
+     * @return true if the tag was identified
+     */
+    private boolean matchTag(String name, int begin, int end) {
+        if (name.charAt(begin) == '-' || name.charAt(end - 1) == '-') return false;
+        for (int i = begin; i < end; i++) {
+            char c = name.charAt(i);
+            if (!isAsciiLetter(c) && !isAsciiDigit(c) && c != '-') return false;
+        }
+
+        String word = name.substring(begin, end);
+        if (word.length() != 8 && StringHelper.isNumericString(word)) return false;
+
+        AtomicReference<ElementCategory> category = new AtomicReference<>(kElementUnknown);
+        AtomicReference<KeywordOptions> keywordOptions = new AtomicReference<>(new KeywordOptions());
+        if (KeywordManager.getInstance().findAndSet(KeywordManager.normalzie(word), category, keywordOptions)) {
+            if (!kTagCategories.contains(category.get())) return false;
+            if (!keywordOptions.get().isSearchable() || !keywordOptions.get().isIdentifiable()) return false;
+            tagElements.add(new Element(category.get(), word));
+            return true;
+        }
+
+        if (!hasChecksum && ParserHelper.isCrc32(word)) {
+            hasChecksum = true;
+            tagElements.add(new Element(kElementFileChecksum, word));
+            return true;
+        }
+
+        if (!hasResolution && ParserHelper.isResolution(word)) {
+            hasResolution = true;
+            tagElements.add(new Element(kElementVideoResolution, word));
+            return true;
+        }
+
+        return false;
+    }
+
+    /** Keeps track of peeked resolutions; returns false if there's more than one. */
+    private boolean markResolution(String word) {
+        if (!ParserHelper.isResolution(word)) return true;
+        if (hasResolution) return false;
+        hasResolution = true;
+        return true;
+    }
+
+    /**
+     * Returns 1 if a pre-identified range covers exactly {@code [begin, end)}, -1 if one partially overlaps it, or 0 if
+     * none of them touch it.
+     */
+    private static int findOverlap(List<TokenRange> ranges, int begin, int end) {
+        for (TokenRange range : ranges) {
+            int rangeEnd = range.getOffset() + range.getSize();
+            if (range.getOffset() == begin && rangeEnd == end) return 1;
+            if (range.getOffset() < end && rangeEnd > begin) return -1;
+        }
+
+        return 0;
+    }
+
+    /** Returns whether or not the {@code word} is a known keyword. */
+    private static boolean isKeyword(String word) {
+        AtomicReference<ElementCategory> category = new AtomicReference<>(kElementUnknown);
+        AtomicReference<KeywordOptions> keywordOptions = new AtomicReference<>();
+        return KeywordManager.getInstance().findAndSet(KeywordManager.normalzie(word), category, keywordOptions);
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -27,8 +27,10 @@ import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementVideoRes
 import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementVideoTerm;
 import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementVolumePrefix;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -51,6 +53,7 @@ public class KeywordManager {
     private final Map<String, Keyword> keys = new HashMap<>();
     private final Map<String, Keyword> file_extensions = new HashMap<>();
     private final List<Pair<ElementCategory, List<String>>> peekEntries;
+    private final long version;
     private static final KeywordManager instance = new KeywordManager();
 
     @SuppressWarnings("ArraysAsListWithZeroOrOneArgument")
@@ -163,6 +166,8 @@ public class KeywordManager {
             add(Pair.of(kElementVideoResolution, Arrays.asList("480p", "720p", "1080p")));
             add(Pair.of(kElementSource, Arrays.asList("Blu-Ray")));
         }};
+
+        version = computeVersion();
     }
 
     /** Return singleton instance. */
@@ -170,6 +175,14 @@ public class KeywordManager {
         return instance;
     }
 
+    /**
+     * Returns the version of the keyword dictionary: a fingerprint of every keyword, its category and options. Results
+     * parsed with different dictionary versions may differ.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     /** Returns a normalized string. */
     public static String normalzie(String word) {
         if (StringUtils.isEmpty(word)) return word;
@@ -244,6 +257,31 @@ public class KeywordManager {
         return category == kElementFileExtension ? file_extensions : keys;
     }
 
+    /** Returns a 64-bit FNV-1a hash of the keywords, in a stable order. */
+    private long computeVersion() {
+        List<String> entries = new ArrayList<>();
+        for (Map<String, Keyword> container : Arrays.asList(keys, file_extensions)) {
+            container.forEach((keyword, entry) -> entries.add(String.format("%s|%s|%b|%b|%b",
+                                                                            keyword,
+                                                                            entry.getCategory(),
+                                                                            entry.getOptions().isIdentifiable(),
+                                                                            entry.getOptions().isSearchable(),
+                                                                            entry.getOptions().isValid())));
+        }
+        peekEntries.forEach(entry -> entry.getRight().forEach(keyword -> entries.add(entry.getKey() + "|" + keyword)));
+        Collections.sort(entries);
+
+        long hash = 0xcbf29ce484222325L;
+        for (String entry : entries) {
+            for (byte b : (entry + "\n").getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+        }
+
+        return hash;
+    }
+
     /** Adds a {@code category}, {@code options} and {@code keywords} to the internal keywords list. */
     private void add(ElementCategory category, KeywordOptions options, List<String> keywords) {
         Map<String, Keyword> keys = getKeywordContainer(category);
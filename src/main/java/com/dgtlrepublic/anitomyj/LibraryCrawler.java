@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementFileExtension;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+import com.dgtlrepublic.anitomyj.KeywordManager.KeywordOptions;
+
+/**
+ * Walks a library tree and parses every media file in it.
+ * <p>
+ * Every directory is listed by its own task on a bounded {@link ForkJoinPool}, so that slow directory listings(e.g. on
+ * network storage) overlap. Only regular files with a valid {@link ElementCategory#kElementFileExtension} keyword are
+ * parsed; a directory named like a media file(e.g. "Show S01.mkv") is still descended into. The media files of a
+ * directory are parsed in batches by a {@link PathParser}, so that the directory itself is only parsed once; every full
+ * batch is forked as a task of its own, so that a single large directory is parsed by all of the workers.
+ * <p>
+ * Symbolic links aren't followed. Directories that can't be read are counted as errors and skipped.
+ *
+ * @author Paul Miller
+ */
+public class LibraryCrawler {
+    public static final int kDefaultBatchSize = 256;
+
+    private final int parallelism;
+    private final int batchSize;
+    private final PathParser pathParser = new PathParser();
+
+    /** Constructs a new crawler with one worker per available processor. */
+    public LibraryCrawler() {
+        this(Runtime.getRuntime().availableProcessors(), kDefaultBatchSize);
+    }
+
+    /**
+     * Constructs a new crawler.
+     *
+     * @param parallelism the number of worker threads
+     * @param batchSize   the maximum number of files that are parsed by a single task
+     */
+    public LibraryCrawler(int parallelism, int batchSize) {
+        if (parallelism < 1 || batchSize < 1) throw new IllegalArgumentException("Crawler settings must be positive");
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Crawls the tree under {@code root}.
+     *
+     * @param root     the root directory
+     * @param consumer receives every media file and its elements. Called concurrently from the worker threads.
+     * @return the final progress
+     */
+    public Progress crawl(Path root, BiConsumer<Path, List<Element>> consumer) {
+        return crawl(root, consumer, null, 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Crawls the tree under {@code root}, reporting progress periodically.
+     *
+     * @param root     the root directory
+     * @param consumer receives every media file and its elements. Called concurrently from the worker threads.
+     * @param listener receives the progress every {@code interval}; may be null
+     * @param interval the reporting interval
+     * @param unit     the unit of {@code interval}
+     * @return the final progress
+     */
+    public Progress crawl(Path root,
+                          BiConsumer<Path, List<Element>> consumer,
+                          Consumer<Progress> listener,
+                          long interval,
+                          TimeUnit unit) {
+        Crawl crawl = new Crawl(consumer);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ScheduledExecutorService reporter = null;
+        if (listener != null && interval > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "anitomyj-crawler-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> listener.accept(crawl.getProgress()), interval, interval, unit);
+        }
+
+        try {
+            pool.invoke(new DirectoryTask(crawl, root));
+        } finally {
+            pool.shutdown();
+            if (reporter != null) reporter.shutdownNow();
+        }
+
+        return crawl.getProgress();
+    }
+
+    /**
+     * Returns whether or not {@code fileName} has a media file extension: an extension that {@link AnitomyJ} separates
+     * from the filename, and that isn't one of audio, archive or subtitle files.
+     */
+    public static boolean isMediaFile(String fileName) {
+        int dot = AnitomyJ.findExtension(fileName);
+        if (dot == -1) return false;
+
+        AtomicReference<ElementCategory> category = new AtomicReference<>(kElementFileExtension);
+        AtomicReference<KeywordOptions> options = new AtomicReference<>();
+        return KeywordManager.getInstance().findAndSet(KeywordManager.normalzie(fileName.substring(dot + 1)),
+                                                       category,
+                                                       options)
+                && options.get().isValid();
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** The state of a single crawl. */
+    private static class Crawl {
+        final BiConsumer<Path, List<Element>> consumer;
+        final long start = System.nanoTime();
+        final LongAdder directories = new LongAdder();
+        final LongAdder files = new LongAdder();
+        final LongAdder mediaFiles = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        Crawl(BiConsumer<Path, List<Element>> consumer) {
+            this.consumer = consumer;
+        }
+
+        Progress getProgress() {
+            return new Progress(directories.sum(), files.sum(), mediaFiles.sum(), errors.sum(),
+                                System.nanoTime() - start);
+        }
+    }
+
+    /** Lists a single directory, forks its subdirectories and parses its media files. */
+    private class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Crawl crawl;
+        private final Path directory;
+
+        DirectoryTask(Crawl crawl, Path directory) {
+            this.crawl = crawl;
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            List<RecursiveAction> tasks = new ArrayList<>();
+            List<Path> batch = new ArrayList<>();
+
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                crawl.directories.increment();
+                for (Path entry : stream) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        crawl.errors.increment();
+                        continue;
+                    }
+
+                    if (attributes.isDirectory()) {
+                        DirectoryTask task = new DirectoryTask(crawl, entry);
+                        task.fork();
+                        tasks.add(task);
+                        continue;
+                    }
+
+                    crawl.files.increment();
+                    Path name = entry.getFileName();
+                    if (attributes.isRegularFile() && name != null && isMediaFile(name.toString())) {
+                        batch.add(entry);
+                        if (batch.size() >= batchSize) {
+                            BatchTask task = new BatchTask(crawl, batch);
+                            task.fork();
+                            tasks.add(task);
+                            batch = new ArrayList<>();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                crawl.errors.increment();
+            }
+
+            /** the last, partial batch is parsed right away */
+            new BatchTask(crawl, batch).compute();
+            for (RecursiveAction task : tasks) task.join();
+        }
+    }
+
+    /** Parses a single batch of media files. */
+    private class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Crawl crawl;
+        private final List<Path> batch;
+
+        BatchTask(Crawl crawl, List<Path> batch) {
+            this.crawl = crawl;
+            this.batch = batch;
+        }
+
+        @Override
+        protected void compute() {
+            for (Path path : batch) {
+                crawl.consumer.accept(path, pathParser.parse(path));
+                crawl.mediaFiles.increment();
+            }
+        }
+    }
+
+    /** A snapshot of the progress of a crawl. */
+    public static class Progress {
+        private final long directories;
+        private final long files;
+        private final long mediaFiles;
+        private final long errors;
+        private final long elapsedNanos;
+
+        /**
+         * Constructs a new progress snapshot.
+         *
+         * @param directories  the number of directories listed
+         * @param files        the number of files seen
+         * @param mediaFiles   the number of media files parsed
+         * @param errors       the number of entries that couldn't be read
+         * @param elapsedNanos the time since the crawl started
+         */
+        public Progress(long directories, long files, long mediaFiles, long errors, long elapsedNanos) {
+            this.directories = directories;
+            this.files = files;
+            this.mediaFiles = mediaFiles;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** Returns the number of directories listed. */
+        public long getDirectories() {
+            return directories;
+        }
+
+        /** Returns the number of files seen. */
+        public long getFiles() {
+            return files;
+        }
+
+        /** Returns the number of media files parsed. */
+        public long getMediaFiles() {
+            return mediaFiles;
+        }
+
+        /** Returns the number of entries that couldn't be read. */
+        public long getErrors() {
+            return errors;
+        }
+
+        /** Returns the time since the crawl started, in nanoseconds. */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /** Returns the number of files seen per second. */
+        public double getThroughput() {
+            return elapsedNanos > 0 ? files * 1e9 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Progress{" +
+                    "directories=" + directories +
+                    ", files=" + files +
+                    ", mediaFiles=" + mediaFiles +
+                    ", errors=" + errors +
+                    ", elapsedMillis=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) +
+                    ", filesPerSecond=" + String.format("%.0f", getThroughput()) +
+                    '}';
+        }
+    }
+}
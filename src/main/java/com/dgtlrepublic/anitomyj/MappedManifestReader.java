@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads a manifest of filenames, one per line, by memory-mapping it and handing the lines to worker threads straight
+ * from the mapped region. Nothing is read or decoded on a single reader thread: each worker decodes only its own lines.
+ * <p>
+ * The manifest is mapped one window at a time, so files larger than 2 GB are fine. Each window is split into chunks at
+ * newline boundaries, and the chunks are processed by a bounded {@link ForkJoinPool}. A window is finished before the
+ * next one is mapped. Lines end with {@code \n} or {@code \r\n}, and are expected to be UTF-8. Empty lines are skipped.
+ * Lines are processed out of order.
+ *
+ * @author Paul Miller
+ */
+public class MappedManifestReader {
+    public static final int kDefaultChunkSize = 1 << 20;
+    public static final long kDefaultWindowSize = 1L << 30;
+
+    private final int parallelism;
+    private final int chunkSize;
+    private final long windowSize;
+
+    /** Constructs a new reader with one worker per available processor, and the default chunk and window sizes. */
+    public MappedManifestReader() {
+        this(Runtime.getRuntime().availableProcessors(), kDefaultChunkSize, kDefaultWindowSize);
+    }
+
+    /**
+     * Constructs a new reader.
+     *
+     * @param parallelism the number of worker threads
+     * @param chunkSize   the approximate number of bytes that are processed by a single task
+     * @param windowSize  the maximum number of bytes that are mapped at once; no line may be longer
+     */
+    public MappedManifestReader(int parallelism, int chunkSize, long windowSize) {
+        if (parallelism < 1 || chunkSize < 1 || windowSize < 1 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid reader settings");
+        }
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Hands every line of {@code manifest} to {@code consumer}.
+     *
+     * @param manifest the manifest
+     * @param consumer receives every line. Called concurrently from the worker threads.
+     * @return the number of lines
+     */
+    public long forEachLine(Path manifest, LineConsumer consumer) throws IOException {
+        LongAdder lineCount = new LongAdder();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(manifest, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long start = 0; start < size; ) {
+                long length = Math.min(windowSize, size - start);
+                MappedByteBuffer window = channel.map(MapMode.READ_ONLY, start, length);
+                int end = (int) length;
+                if (start + length < size) {
+                    end = lastNewline(window, end) + 1;
+                    if (end == 0) throw new IOException("Line longer than the window size at offset " + start);
+                }
+
+                pool.invoke(new WindowTask(window, end, chunkSize, consumer, lineCount));
+                start += end;
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        return lineCount.sum();
+    }
+
+    /**
+     * Parses every line of {@code manifest}. The parser works on strings, so each line is still decoded into a {@code
+     * String} first, on its worker thread; use {@link #forEachLine(Path, LineConsumer)} to skip the lines that don't
+     * need parsing before they're decoded.
+     *
+     * @param manifest the manifest
+     * @param consumer receives every filename and its elements; null elements if the parser failed. Called
+     *                 concurrently from the worker threads.
+     * @return the number of lines
+     */
+    public long parse(Path manifest, BiConsumer<String, List<Element>> consumer) throws IOException {
+        return forEachLine(manifest, line -> {
+            String filename = StringHelper.fromUtf8(line);
+            List<Element> elements;
+            try {
+                elements = AnitomyJ.parse(filename);
+            } catch (RuntimeException e) {
+                elements = null;
+            }
+            consumer.accept(filename, elements);
+        });
+    }
+
+    /** Receives the lines of a manifest. */
+    @FunctionalInterface
+    public interface LineConsumer {
+        /**
+         * Receives a single line, without its line terminator.
+         *
+         * @param line the UTF-8 bytes of the line, between the position and the limit of the buffer. Only valid for the
+         *             duration of the call.
+         */
+        void accept(ByteBuffer line);
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** Returns the index of the last newline before {@code end}; -1 if there's none. */
+    private static int lastNewline(ByteBuffer buffer, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') return i;
+        }
+
+        return -1;
+    }
+
+    /** Splits a window into chunks at newline boundaries, and processes them. */
+    private static class WindowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer window;
+        private final int end;
+        private final int chunkSize;
+        private final LineConsumer consumer;
+        private final LongAdder lineCount;
+
+        WindowTask(ByteBuffer window, int end, int chunkSize, LineConsumer consumer, LongAdder lineCount) {
+            this.window = window;
+            this.end = end;
+            this.chunkSize = chunkSize;
+            this.consumer = consumer;
+            this.lineCount = lineCount;
+        }
+
+        @Override
+        protected void compute() {
+            List<ChunkTask> chunks = new ArrayList<>();
+            for (int begin = 0; begin < end; ) {
+                int chunkEnd = (int) Math.min(end, (long) begin + chunkSize);
+                while (chunkEnd < end && window.get(chunkEnd - 1) != '\n') chunkEnd++;
+                chunks.add(new ChunkTask(window.duplicate(), begin, chunkEnd, consumer, lineCount));
+                begin = chunkEnd;
+            }
+
+            invokeAll(chunks);
+        }
+    }
+
+    /** Hands the lines of a single chunk to the consumer. */
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int begin;
+        private final int end;
+        private final LineConsumer consumer;
+        private final LongAdder lineCount;
+
+        ChunkTask(ByteBuffer buffer, int begin, int end, LineConsumer consumer, LongAdder lineCount) {
+            this.buffer = buffer;
+            this.begin = begin;
+            this.end = end;
+            this.consumer = consumer;
+            this.lineCount = lineCount;
+        }
+
+        @Override
+        protected void compute() {
+            long count = 0;
+            for (int lineBegin = begin; lineBegin < end; ) {
+                int lineEnd = lineBegin;
+                while (lineEnd < end && buffer.get(lineEnd) != '\n') lineEnd++;
+                int next = lineEnd + 1;
+                if (lineEnd > lineBegin && buffer.get(lineEnd - 1) == '\r') lineEnd--;
+
+                if (lineEnd > lineBegin) {
+                    ((Buffer) buffer).limit(lineEnd).position(lineBegin);
+                    consumer.accept(buffer);
+                    ((Buffer) buffer).limit(buffer.capacity());
+                    count++;
+                }
+                lineBegin = next;
+            }
+
+            lineCount.add(count);
+        }
+    }
+}
@@ -21,6 +21,8 @@ public class Options {
     public final boolean parseEpisodeTitle;
     public final boolean parseFileExtension;
     public final boolean parseReleaseGroup;
+    public final boolean decodeEscapes;
+    public final boolean foldWidth;
 
     public Options() {
         this.allowedDelimiters = " _.&+,|";
@@ -28,5 +30,36 @@ public class Options {
         this.parseEpisodeTitle = true;
         this.parseFileExtension = true;
         this.parseReleaseGroup = true;
+        this.decodeEscapes = false;
+        this.foldWidth = false;
+    }
+
+    private Options(Options options, boolean decodeEscapes, boolean foldWidth) {
+        this.allowedDelimiters = options.allowedDelimiters;
+        this.parseEpisodeNumber = options.parseEpisodeNumber;
+        this.parseEpisodeTitle = options.parseEpisodeTitle;
+        this.parseFileExtension = options.parseFileExtension;
+        this.parseReleaseGroup = options.parseReleaseGroup;
+        this.decodeEscapes = decodeEscapes;
+        this.foldWidth = foldWidth;
+    }
+
+    /**
+     * Returns a copy of these options that decodes percent-encoding and HTML character references(e.g. "%20", "&amp;")
+     * while the filename is read, for filenames taken from URLs, feeds and web pages. The {@code kElementFileName}
+     * element holds the decoded filename. See {@link StringHelper#decodeEscapes(String)}.
+     */
+    public Options withDecodeEscapes(boolean decodeEscapes) {
+        return new Options(this, decodeEscapes, foldWidth);
+    }
+
+    /**
+     * Returns a copy of these options that folds fullwidth and compatibility characters(e.g. "Ｔｉｔｌｅ　０１") into
+     * their plain forms while the filename is read, so that keywords, numbers and brackets are found without running
+     * NFKC normalization over the filename first. ASCII filenames skip the folding. The {@code kElementFileName}
+     * element holds the folded filename. See {@link StringHelper#foldWidth(String)}.
+     */
+    public Options withFoldWidth(boolean foldWidth) {
+        return new Options(this, decodeEscapes, foldWidth);
     }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the amount of work a single parse may do. Filenames from untrusted sources can be arbitrarily long; a budget
+ * bounds the input length, the number of tokens and the time spent in the tokenizer and the parser phases. The input
+ * is cut down to its length limit before anything else(e.g. escape decoding) reads it. When a limit is hit, the parse
+ * stops early and its {@link ParseResult} is marked as truncated.
+ *
+ * @author Paul Miller
+ */
+public class ParseBudget {
+    /** A budget without any limits. */
+    public static final ParseBudget kBudgetUnlimited = new ParseBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, 0,
+                                                                       TimeUnit.NANOSECONDS);
+
+    private final int maxInputLength;
+    private final int maxTokenCount;
+    private final long maxParseTimeNanos;
+
+    /**
+     * Constructs a new parse budget.
+     *
+     * @param maxInputLength the maximum number of characters of the filename(without its extension) that are parsed
+     * @param maxTokenCount  the maximum number of tokens that are parsed
+     * @param maxParseTime   the maximum time spent in the tokenizer and the parser phases; 0 for no limit
+     * @param unit           the unit of {@code maxParseTime}
+     */
+    public ParseBudget(int maxInputLength, int maxTokenCount, long maxParseTime, TimeUnit unit) {
+        if (maxInputLength < 1 || maxTokenCount < 1 || maxParseTime < 0) {
+            throw new IllegalArgumentException("Parse budget limits must be positive");
+        }
+
+        this.maxInputLength = maxInputLength;
+        this.maxTokenCount = maxTokenCount;
+        this.maxParseTimeNanos = unit.toNanos(maxParseTime);
+    }
+
+    /** Returns the maximum number of characters that are parsed. */
+    public int getMaxInputLength() {
+        return maxInputLength;
+    }
+
+    /** Returns the maximum number of tokens that are parsed. */
+    public int getMaxTokenCount() {
+        return maxTokenCount;
+    }
+
+    /** Returns the maximum time spent in the tokenizer and the parser phases, in nanoseconds; 0 if there's no limit. */
+    public long getMaxParseTimeNanos() {
+        return maxParseTimeNanos;
+    }
+
+    /** Returns whether or not the parse time is limited. */
+    public boolean hasTimeLimit() {
+        return maxParseTimeNanos > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseBudget{" +
+                "maxInputLength=" + maxInputLength +
+                ", maxTokenCount=" + maxTokenCount +
+                ", maxParseTimeNanos=" + maxParseTimeNanos +
+                '}';
+    }
+}
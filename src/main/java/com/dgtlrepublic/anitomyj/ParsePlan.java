@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeSeason;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeSeasonPrefix;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeTitle;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeType;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeYear;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodeNumber;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodeNumberAlt;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodePrefix;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodeTitle;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementFileExtension;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementFileName;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementReleaseGroup;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementReleaseVersion;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementUnknown;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementVideoResolution;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementVolumeNumber;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementVolumePrefix;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseAnimeTitle;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseEpisodeNumber;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseEpisodeTitle;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseIsolatedNumbers;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseKeywords;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseReleaseGroup;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseValidation;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
+/**
+ * Works out which {@link ParserPhase}s (and which keyword categories) have to run in order to correctly produce a
+ * requested set of {@link ElementCategory}s.
+ * <p>
+ * Every phase marks the tokens it consumes as identifiers, which changes what the later phases see. So a phase is only
+ * skipped when nothing that was asked for is produced by it, or by any phase that runs after it.
+ *
+ * @author Paul Miller
+ */
+class ParsePlan {
+    /** The phases that add, remove or re-categorize elements of a particular category. */
+    private static final Map<ElementCategory, EnumSet<ParserPhase>> producers = new EnumMap<>(ElementCategory.class);
+
+    /** The phases that have to run before a particular phase, for it to see the same tokens as a full parse. */
+    private static final Map<ParserPhase, EnumSet<ParserPhase>> dependencies = new EnumMap<>(ParserPhase.class);
+
+    /** Keyword categories that consume their neighbouring tokens, and so affect the other keywords. */
+    private static final EnumSet<ElementCategory> kPrefixCategories = EnumSet.of(kElementAnimeSeasonPrefix,
+                                                                                  kElementEpisodePrefix,
+                                                                                  kElementVolumePrefix);
+
+    /** A plan that runs every phase and keeps every element. */
+    static final ParsePlan kPlanFull = new ParsePlan(EnumSet.allOf(ElementCategory.class),
+                                                     EnumSet.allOf(ParserPhase.class),
+                                                     null);
+
+    static {
+        for (ElementCategory category : ElementCategory.values()) {
+            producers.put(category, EnumSet.of(kPhaseKeywords));
+        }
+
+        producers.put(kElementAnimeSeason, EnumSet.of(kPhaseKeywords, kPhaseEpisodeNumber));
+        producers.put(kElementAnimeTitle, EnumSet.of(kPhaseAnimeTitle));
+        producers.put(kElementAnimeType, EnumSet.of(kPhaseKeywords, kPhaseEpisodeNumber, kPhaseValidation));
+        producers.put(kElementAnimeYear, EnumSet.of(kPhaseIsolatedNumbers));
+        producers.put(kElementEpisodeNumber, EnumSet.of(kPhaseKeywords, kPhaseEpisodeNumber));
+        producers.put(kElementEpisodeNumberAlt, EnumSet.of(kPhaseKeywords, kPhaseEpisodeNumber));
+        producers.put(kElementEpisodeTitle, EnumSet.of(kPhaseEpisodeTitle, kPhaseValidation));
+        producers.put(kElementFileExtension, EnumSet.noneOf(ParserPhase.class));
+        producers.put(kElementFileName, EnumSet.noneOf(ParserPhase.class));
+        producers.put(kElementReleaseGroup, EnumSet.of(kPhaseKeywords, kPhaseReleaseGroup));
+        producers.put(kElementReleaseVersion, EnumSet.of(kPhaseKeywords, kPhaseEpisodeNumber));
+        producers.put(kElementUnknown, EnumSet.noneOf(ParserPhase.class));
+        producers.put(kElementVideoResolution, EnumSet.of(kPhaseKeywords, kPhaseIsolatedNumbers));
+        producers.put(kElementVolumeNumber, EnumSet.of(kPhaseKeywords, kPhaseEpisodeNumber));
+
+        dependencies.put(kPhaseKeywords, EnumSet.noneOf(ParserPhase.class));
+        dependencies.put(kPhaseIsolatedNumbers, EnumSet.of(kPhaseKeywords));
+        dependencies.put(kPhaseEpisodeNumber, EnumSet.of(kPhaseIsolatedNumbers));
+        dependencies.put(kPhaseAnimeTitle, EnumSet.of(kPhaseEpisodeNumber));
+        dependencies.put(kPhaseReleaseGroup, EnumSet.of(kPhaseAnimeTitle));
+        dependencies.put(kPhaseEpisodeTitle, EnumSet.of(kPhaseReleaseGroup));
+        dependencies.put(kPhaseValidation, EnumSet.of(kPhaseEpisodeTitle));
+    }
+
+    private final EnumSet<ElementCategory> categories;
+    private final EnumSet<ParserPhase> phases;
+    private final EnumSet<ElementCategory> keywordCategories;
+
+    /**
+     * Constructs a new parse plan.
+     *
+     * @param categories        the element categories to keep
+     * @param phases            the phases to run
+     * @param keywordCategories the keyword categories to search for; null to search for all of them
+     */
+    private ParsePlan(EnumSet<ElementCategory> categories,
+                      EnumSet<ParserPhase> phases,
+                      EnumSet<ElementCategory> keywordCategories) {
+        this.categories = categories;
+        this.phases = phases;
+        this.keywordCategories = keywordCategories;
+    }
+
+    /**
+     * Returns the minimal plan that produces the requested {@code categories}.
+     *
+     * @param categories the element categories the caller is interested in
+     * @return the parse plan
+     */
+    static ParsePlan of(EnumSet<ElementCategory> categories) {
+        Objects.requireNonNull(categories);
+        if (categories.containsAll(kPlanFull.categories)) return kPlanFull;
+
+        EnumSet<ParserPhase> phases = EnumSet.noneOf(ParserPhase.class);
+        categories.forEach(category -> producers.get(category).forEach(phase -> addWithDependencies(phases, phase)));
+
+        // Keyword matches only change the tokens that later phases look at. When no later phase runs we can get away
+        // with the keywords that were asked for, plus the prefixes which pull their neighbouring tokens in.
+        EnumSet<ElementCategory> keywordCategories = null;
+        if (phases.size() == 1 && phases.contains(kPhaseKeywords)) {
+            keywordCategories = EnumSet.copyOf(kPrefixCategories);
+            keywordCategories.addAll(categories);
+        }
+
+        return new ParsePlan(EnumSet.copyOf(categories), phases, keywordCategories);
+    }
+
+    /** Returns whether or not the {@code phase} has to run. */
+    boolean runs(ParserPhase phase) {
+        return phases.contains(phase);
+    }
+
+    /** Returns whether or not any parser phase has to run at all. */
+    boolean needsTokens() {
+        return !phases.isEmpty();
+    }
+
+    /** Returns whether or not keywords of the {@code category} should be searched for. */
+    boolean searchesKeyword(ElementCategory category) {
+        return keywordCategories == null || keywordCategories.contains(category);
+    }
+
+    /** Removes every element that was not requested from {@code elements}. */
+    void retainRequested(List<Element> elements) {
+        if (this == kPlanFull) return;
+        elements.removeIf(element -> !categories.contains(element.getCategory()));
+    }
+
+    /** Adds {@code phase}, and every phase it depends on, to {@code phases}. */
+    private static void addWithDependencies(EnumSet<ParserPhase> phases, ParserPhase phase) {
+        if (!phases.add(phase)) return;
+        dependencies.get(phase).forEach(dependency -> addWithDependencies(phases, dependency));
+    }
+}
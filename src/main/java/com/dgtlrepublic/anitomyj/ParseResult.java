@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.util.List;
+
+/**
+ * The outcome of a single parse: the parsed elements, and whether or not the parse was cut short by its {@link
+ * ParseBudget}. The elements of a truncated parse only describe the part of the filename that was parsed.
+ *
+ * @author Paul Miller
+ */
+public class ParseResult {
+    private final List<Element> elements;
+    private final boolean truncated;
+
+    /**
+     * Constructs a new parse result.
+     *
+     * @param elements  the parsed elements
+     * @param truncated whether or not the parse stopped early
+     */
+    public ParseResult(List<Element> elements, boolean truncated) {
+        this.elements = elements;
+        this.truncated = truncated;
+    }
+
+    /** Returns the parsed elements. */
+    public List<Element> getElements() {
+        return elements;
+    }
+
+    /** Returns whether or not the parse stopped early, because it ran out of budget. */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseResult{" +
+                "elements=" + elements +
+                ", truncated=" + truncated +
+                '}';
+    }
+}
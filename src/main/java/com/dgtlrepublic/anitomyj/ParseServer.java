@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small HTTP parsing service, built on the JDK's {@code com.sun.net.httpserver}, for callers outside of the JVM:
+ * <pre>
+ * GET  /parse?name=&lt;filename&gt;   parses a single filename, e.g. {"file_name":"...","kElementAnimeTitle":"..."}
+ * POST /parse                    same, with the filename as the UTF-8 request body
+ * POST /batch                    parses one filename per line of the body(up to 10,000), and streams back JSON
+ *                                Lines, in order
+ * GET  /metrics                  counters, in the Prometheus text format
+ * </pre>
+ * Results use the same JSON layout as the {@link ElementWriter}. Requests run on virtual threads where the runtime
+ * supports them, and on a bounded pool otherwise. At most {@code maxInFlight} parse requests run at once; the rest are
+ * turned away with {@code 429 Too Many Requests}, so overload shows up at the client instead of as unbounded queueing.
+ * A batch holds a single permit, so its size is capped: after 10,000 results, a longer batch ends with an error line
+ * in place of the rest of its results, and a filename longer than 64K characters gets an error result.
+ * <p>
+ * Every filename is parsed within a {@link ParseBudget}, {@link #kDefaultBudget} unless configured otherwise; a result
+ * that was cut short by it has a {@code "truncated":true} field.
+ * <p>
+ * Nothing is started unless the server is used, e.g. {@code java -cp anitomyJ.jar
+ * com.dgtlrepublic.anitomyj.ParseServer --port 8080}.
+ *
+ * @author Paul Miller
+ */
+public class ParseServer {
+    /** The default maximum number of parse requests that run at once. */
+    public static final int kDefaultMaxInFlight = 256;
+
+    /** The default budget of a single parse. */
+    public static final ParseBudget kDefaultBudget = new ParseBudget(4096, 1024, 100, TimeUnit.MILLISECONDS);
+
+    private static final int kMaxNameLength = 64 * 1024;
+    private static final int kMaxBatchSize = 10000;
+
+    private final HttpServer server;
+    private final ExecutorService ownedExecutor;
+    private final int maxInFlight;
+    private final ParseBudget budget;
+    private final Semaphore admission;
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder parsedCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder truncatedCount = new LongAdder();
+    private final LongAdder requestNanos = new LongAdder();
+
+    /**
+     * Constructs a new server with the default limits, on virtual threads if the runtime supports them and on a pool
+     * of two threads per processor otherwise.
+     *
+     * @param address the address to listen on; port 0 picks a free port
+     */
+    public ParseServer(InetSocketAddress address) throws IOException {
+        this(address, kDefaultMaxInFlight, kDefaultBudget, null);
+    }
+
+    /**
+     * Constructs a new server with the default parse budget.
+     *
+     * @param address     the address to listen on; port 0 picks a free port
+     * @param maxInFlight the maximum number of parse requests that run at once
+     * @param executor    the executor that runs the requests; null for the default
+     */
+    public ParseServer(InetSocketAddress address, int maxInFlight, Executor executor) throws IOException {
+        this(address, maxInFlight, kDefaultBudget, executor);
+    }
+
+    /**
+     * Constructs a new server.
+     *
+     * @param address     the address to listen on; port 0 picks a free port
+     * @param maxInFlight the maximum number of parse requests that run at once
+     * @param budget      the budget of a single parse
+     * @param executor    the executor that runs the requests; null for the default
+     */
+    public ParseServer(InetSocketAddress address, int maxInFlight, ParseBudget budget, Executor executor)
+            throws IOException {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.budget = Objects.requireNonNull(budget);
+        this.admission = new Semaphore(maxInFlight);
+
+        if (executor == null) {
+            ExecutorService virtual = AsyncParser.newVirtualThreadExecutor();
+            ownedExecutor = virtual != null
+                            ? virtual
+                            : Executors.newFixedThreadPool(2 * Runtime.getRuntime().availableProcessors());
+            executor = ownedExecutor;
+        } else {
+            ownedExecutor = null;
+        }
+
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/parse", admitted(this::handleParse));
+        server.createContext("/batch", admitted(this::handleBatch));
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        int maxInFlight = kDefaultMaxInFlight;
+        int maxInputLength = kDefaultBudget.getMaxInputLength();
+        int maxTokenCount = kDefaultBudget.getMaxTokenCount();
+        long maxParseMillis = TimeUnit.NANOSECONDS.toMillis(kDefaultBudget.getMaxParseTimeNanos());
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-in-flight":
+                    maxInFlight = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-input-length":
+                    maxInputLength = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-tokens":
+                    maxTokenCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-parse-millis":
+                    maxParseMillis = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: ParseServer [--port N] [--max-in-flight N] [--max-input-length N]"
+                                               + " [--max-tokens N] [--max-parse-millis N]");
+                    System.exit(2);
+            }
+        }
+
+        ParseBudget budget = new ParseBudget(maxInputLength, maxTokenCount, maxParseMillis, TimeUnit.MILLISECONDS);
+        ParseServer server = new ParseServer(new InetSocketAddress(port), maxInFlight, budget, null);
+        server.start();
+        System.err.println("anitomyj: listening on " + server.getAddress());
+    }
+
+    /** Starts serving requests. */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @param delaySeconds the maximum time to wait for running requests to finish
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        if (ownedExecutor != null) ownedExecutor.shutdown();
+    }
+
+    /** Returns the address the server listens on. */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /** Returns the number of parse requests that are currently running. */
+    public int getInFlightCount() {
+        return maxInFlight - admission.availablePermits();
+    }
+
+    /** Returns the number of parse requests, including the rejected ones. */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /** Returns the number of parse requests that were turned away with a 429. */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /** Returns the number of parsed filenames. */
+    public long getParsedCount() {
+        return parsedCount.sum();
+    }
+
+    /** Returns the number of parsed filenames whose parse was cut short by the budget. */
+    public long getTruncatedCount() {
+        return truncatedCount.sum();
+    }
+
+    /** Returns the budget of a single parse. */
+    public ParseBudget getBudget() {
+        return budget;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseServer{" +
+                "address=" + getAddress() +
+                ", inFlight=" + getInFlightCount() +
+                ", requestCount=" + getRequestCount() +
+                ", rejectedCount=" + getRejectedCount() +
+                ", parsedCount=" + getParsedCount() +
+                ", truncatedCount=" + getTruncatedCount() +
+                '}';
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** Wraps {@code handler} with admission control and error handling. */
+    private HttpHandler admitted(HttpHandler handler) {
+        return exchange -> {
+            requestCount.increment();
+            if (!admission.tryAcquire()) {
+                rejectedCount.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendText(exchange, 429, "too many requests\n");
+                return;
+            }
+
+            long start = System.nanoTime();
+            try {
+                handler.handle(exchange);
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage() + "\n");
+            } finally {
+                admission.release();
+                requestNanos.add(System.nanoTime() - start);
+                exchange.close();
+            }
+        };
+    }
+
+    private void handleParse(HttpExchange exchange) throws IOException {
+        String filename;
+        switch (exchange.getRequestMethod()) {
+            case "GET":
+                filename = queryParameter(exchange.getRequestURI().getRawQuery(), "name");
+                if (filename == null) throw new IllegalArgumentException("missing query parameter: name");
+                break;
+            case "POST":
+                filename = readBody(exchange);
+                break;
+            default:
+                sendText(exchange, 405, "method not allowed\n");
+                return;
+        }
+
+        StringBuilder json = new StringBuilder(256);
+        write(new ElementWriter(json, ElementWriter.Format.kFormatJson), filename);
+        sendText(exchange, 200, "application/json; charset=utf-8", json.toString());
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            sendText(exchange, 405, "method not allowed\n");
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(),
+                                                                         StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+        ElementWriter elementWriter = new ElementWriter(writer, ElementWriter.Format.kFormatJson);
+        StringBuilder buffer = new StringBuilder(256);
+        for (int count = 0; readLine(reader, buffer); count++) {
+            if (count == kMaxBatchSize) {
+                /** the results so far stand; the client learns that the rest of the batch wasn't parsed */
+                errorCount.increment();
+                writer.write("{\"error\":\"too many lines; at most " + kMaxBatchSize + " are parsed\"}\n");
+                break;
+            }
+
+            if (buffer.length() > kMaxNameLength) {
+                errorCount.increment();
+                elementWriter.write(buffer.substring(0, kMaxNameLength), null);
+            } else {
+                write(elementWriter, buffer.toString());
+            }
+
+            /** don't hold back results while the client is still sending */
+            if (!reader.ready()) writer.flush();
+        }
+
+        writer.flush();
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        StringBuilder metrics = new StringBuilder(512);
+        metric(metrics, "anitomyj_requests_total", "counter", getRequestCount());
+        metric(metrics, "anitomyj_requests_rejected_total", "counter", getRejectedCount());
+        metric(metrics, "anitomyj_requests_in_flight", "gauge", getInFlightCount());
+        metric(metrics, "anitomyj_requests_in_flight_max", "gauge", maxInFlight);
+        metric(metrics, "anitomyj_parsed_total", "counter", getParsedCount());
+        metric(metrics, "anitomyj_parse_errors_total", "counter", errorCount.sum());
+        metric(metrics, "anitomyj_parse_truncated_total", "counter", getTruncatedCount());
+        metrics.append("# TYPE anitomyj_request_seconds_total counter\n")
+               .append(String.format(Locale.ENGLISH,
+                                     "anitomyj_request_seconds_total %.6f\n",
+                                     requestNanos.sum() / 1e9));
+        try {
+            sendText(exchange, 200, "text/plain; version=0.0.4; charset=utf-8", metrics.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void metric(StringBuilder metrics, String name, String type, long value) {
+        metrics.append("# TYPE ").append(name).append(' ').append(type).append('\n')
+               .append(name).append(' ').append(value).append('\n');
+    }
+
+    /** Parses a single filename within the budget, and writes its result; an error result if the parser failed. */
+    private void write(ElementWriter elementWriter, String filename) throws IOException {
+        ParseResult result;
+        try {
+            result = AnitomyJ.parse(filename, budget);
+            parsedCount.increment();
+        } catch (RuntimeException e) {
+            errorCount.increment();
+            elementWriter.write(filename, null);
+            return;
+        }
+
+        if (result.isTruncated()) truncatedCount.increment();
+        elementWriter.write(filename, result.getElements(), result.isTruncated());
+    }
+
+    /** Returns the decoded value of the query parameter {@code name}; null if it's missing. */
+    private static String queryParameter(String query, String name) throws UnsupportedEncodingException {
+        if (query == null) return null;
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            String key = separator == -1 ? parameter : parameter.substring(0, separator);
+            if (!key.equals(name)) continue;
+            return separator == -1 ? "" : URLDecoder.decode(parameter.substring(separator + 1), "UTF-8");
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads a line into {@code line}, without its terminator. Only the first {@code kMaxNameLength + 1} characters of a
+     * line are kept, so a longer one shows up as a line that's too long.
+     *
+     * @return false at the end of input
+     */
+    private static boolean readLine(BufferedReader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = reader.read()) != -1 && c != '\n') {
+            if (line.length() <= kMaxNameLength) line.append((char) c);
+        }
+        if (c == -1 && line.length() == 0) return false;
+
+        if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') line.setLength(line.length() - 1);
+        return true;
+    }
+
+    /** Reads a small UTF-8 request body. */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        byte[] buffer = new byte[4096];
+        int length = 0;
+        for (int read; (read = exchange.getRequestBody().read(buffer, length, buffer.length - length)) != -1; ) {
+            length += read;
+            if (length == buffer.length) {
+                if (length >= kMaxNameLength) throw new IllegalArgumentException("filename is too long");
+                buffer = Arrays.copyOf(buffer, length * 2);
+            }
+        }
+
+        while (length > 0 && (buffer[length - 1] == '\n' || buffer[length - 1] == '\r')) length--;
+        return StringHelper.fromUtf8(buffer, 0, length);
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        sendText(exchange, status, "text/plain; charset=utf-8", text);
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String contentType, String text)
+            throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
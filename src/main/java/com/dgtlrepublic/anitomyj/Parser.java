@@ -35,6 +35,9 @@ import static com.dgtlrepublic.anitomyj.Token.TokenFlag.kFlagNotEnclosed;
 import static com.dgtlrepublic.anitomyj.Token.TokenFlag.kFlagUnknown;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Objects;
@@ -59,7 +62,15 @@ public class Parser {
     private final ParserNumber parserNumber;
     private final List<Element> elements;
     private final List<Token> tokens;
+    private List<TokenView> tokenViews;
     private final Options options;
+    private final ParsePlan plan;
+    private final ParserPipeline pipeline;
+    private final int tokenizedElementCount;
+    private IdentityHashMap<ParserStage, Object> attributes;
+    private boolean hasDeadline = false;
+    private long deadline;
+    private boolean truncated = false;
 
     /**
      * Constructs a new token parser.
@@ -69,9 +80,37 @@ public class Parser {
      * @param tokens   the list of tokens.
      */
     public Parser(List<Element> elements, Options options, List<Token> tokens) {
+        this(elements, options, tokens, ParserPipeline.getDefault());
+    }
+
+    /**
+     * Constructs a new token parser that runs a custom pipeline of stages.
+     *
+     * @param elements the list where parsed elements will be added
+     * @param options  the parser options
+     * @param tokens   the list of tokens.
+     * @param pipeline the stages to run
+     */
+    public Parser(List<Element> elements, Options options, List<Token> tokens, ParserPipeline pipeline) {
+        this(elements, options, tokens, pipeline, ParsePlan.kPlanFull);
+    }
+
+    /**
+     * Constructs a new token parser that only runs the phases required by {@code plan}.
+     *
+     * @param elements the list where parsed elements will be added
+     * @param options  the parser options
+     * @param tokens   the list of tokens.
+     * @param pipeline the stages to run
+     * @param plan     the built-in phases to run
+     */
+    Parser(List<Element> elements, Options options, List<Token> tokens, ParserPipeline pipeline, ParsePlan plan) {
         this.elements = Objects.requireNonNull(elements);
         this.options = Objects.requireNonNull(options);
         this.tokens = Objects.requireNonNull(tokens);
+        this.pipeline = Objects.requireNonNull(pipeline);
+        this.plan = Objects.requireNonNull(plan);
+        this.tokenizedElementCount = elements.size();
         this.parserHelper = new ParserHelper(this);
         this.parserNumber = new ParserNumber(this);
     }
@@ -86,6 +125,71 @@ public class Parser {
         return tokens;
     }
 
+    /** Returns a read-only view of the list of tokens, for the {@link ParserStage}s. */
+    public List<TokenView> getTokenViews() {
+        if (tokenViews == null) tokenViews = Collections.unmodifiableList(tokens);
+        return tokenViews;
+    }
+
+    /**
+     * Identifies {@code token} as an element of {@code category}, for the {@link ParserStage}s: the token is marked as
+     * identified, so that the later phases pass over it, and an element with its content is added.
+     *
+     * @param token    an unknown token of the current parse, from {@link #getTokenViews()}
+     * @param category the category of the element
+     * @throws IllegalArgumentException if {@code token} isn't an unknown token of the current parse
+     */
+    public void identify(TokenView token, ElementCategory category) {
+        Objects.requireNonNull(category);
+        for (Token candidate : tokens) {
+            if (candidate != token) continue;
+            if (!candidate.isUnknown()) throw new IllegalArgumentException("Token is already identified: " + token);
+            candidate.setCategory(kIdentifier);
+            elements.add(new Element(category, candidate.getContent()));
+            return;
+        }
+
+        throw new IllegalArgumentException("Token isn't part of the current parse: " + token);
+    }
+
+    /** Returns the parser options. */
+    public Options getOptions() {
+        return options;
+    }
+
+    /** Returns the number of elements that were found before parsing began(e.g by the {@link Tokenizer}). */
+    int getTokenizedElementCount() {
+        return tokenizedElementCount;
+    }
+
+    /** Returns the value a {@code stage} attached to the current parse; null if there's none. */
+    Object getAttribute(ParserStage stage) {
+        return attributes != null ? attributes.get(stage) : null;
+    }
+
+    /** Attaches a {@code value} to the current parse, so that it can be shared between stages. */
+    void setAttribute(ParserStage stage, Object value) {
+        if (attributes == null) attributes = new IdentityHashMap<>(4);
+        attributes.put(stage, value);
+    }
+
+    /** Stops the parse before the next stage once {@link System#nanoTime()} passes {@code deadline}. */
+    void setDeadline(long deadline) {
+        this.hasDeadline = true;
+        this.deadline = deadline;
+    }
+
+    /** Returns whether or not the deadline has passed; marks the parse as truncated if it has. */
+    boolean isPastDeadline() {
+        if (hasDeadline && System.nanoTime() - deadline >= 0) truncated = true;
+        return truncated;
+    }
+
+    /** Returns whether or not the parse was stopped by its deadline. */
+    boolean isTruncated() {
+        return truncated;
+    }
+
     /** Returns the parser helper. */
     public ParserHelper getParserHelper() {
         return parserHelper;
@@ -103,29 +207,13 @@ public class Parser {
 
     /** Begins the parsing process */
     public boolean parse() {
-        searchForKeywords();
-        searchForIsolatedNumbers();
-
-        if (options.parseEpisodeNumber) {
-            SearchForEpisodeNumber();
-        }
-
-        searchForAnimeTitle();
-
-        if (options.parseReleaseGroup && empty(kElementReleaseGroup)) {
-            searchForReleaseGroup();
-        }
-
-        if (options.parseEpisodeTitle && !empty(kElementEpisodeNumber)) {
-            searchForEpisodeTitle();
-        }
-
-        validateElements();
+        pipeline.run(this, plan);
         return empty(kElementAnimeTitle);
     }
 
     /** Search for anime keywords. */
-    private void searchForKeywords() {
+    void searchForKeywords() {
+        CategoryIndex found = new CategoryIndex(elements);
         for (int i = 0; i < tokens.size(); i++) {
             Token token = tokens.get(i);
             if (token.getCategory() != kUnknown) continue;
@@ -135,18 +223,21 @@ public class Parser {
             if (word.isEmpty()) continue;
 
             // Don't bother if the word is a number that cannot be CRC
-            if (word.length() != 8 && StringHelper.isNumericString(word)) continue;
+            TokenClassifier.Classification classification = TokenClassifier.getInstance().classify(word);
+            if (word.length() != 8 && classification.isNumeric()) continue;
 
-            String keyword = KeywordManager.normalzie(word);
             AtomicReference<ElementCategory> category = new AtomicReference<>(kElementUnknown);
-            AtomicReference<KeywordOptions> options = new AtomicReference<>(new KeywordOptions());
+            AtomicReference<KeywordOptions> options = new AtomicReference<>(classification.getKeywordOptions());
 
-            if (KeywordManager.getInstance().findAndSet(keyword, category, options)) {
+            if (classification.getKeywordCategory() != null) {
+                category.set(classification.getKeywordCategory());
                 if (!this.options.parseReleaseGroup && category.get() == kElementReleaseGroup)
                     continue;
+                if (!plan.searchesKeyword(category.get()))
+                    continue;
                 if (!ParserHelper.isElementCategorySearchable(category.get()) || !options.get().isSearchable())
                     continue;
-                if (ParserHelper.isElementCategorySingular(category.get()) && !empty(category.get()))
+                if (ParserHelper.isElementCategorySingular(category.get()) && !found.empty(category.get()))
                     continue;
                 if (category.get() == kElementAnimeSeasonPrefix) {
                     parserHelper.checkAndSetAnimeSeasonKeyword(token, i);
@@ -163,9 +254,11 @@ public class Parser {
                     continue;
                 }
             } else {
-                if (empty(kElementFileChecksum) && ParserHelper.isCrc32(word)) {
+                if (plan.searchesKeyword(kElementFileChecksum)
+                        && found.empty(kElementFileChecksum) && classification.isCrc32()) {
                     category.set(kElementFileChecksum);
-                } else if (empty(kElementVideoResolution) && ParserHelper.isResolution(word)) {
+                } else if (plan.searchesKeyword(kElementVideoResolution)
+                        && found.empty(kElementVideoResolution) && classification.isResolution()) {
                     category.set(kElementVideoResolution);
                 }
             }
@@ -180,12 +273,12 @@ public class Parser {
     }
 
     /** Search for episode number. */
-    private void SearchForEpisodeNumber() {
+    void SearchForEpisodeNumber() {
         // List all unknown tokens that contain a number
         List<Result> tokens = new ArrayList<>();
         for (int i = 0; i < this.tokens.size(); i++) {
             Token token = this.tokens.get(i);
-            if (token.getCategory() == kUnknown && ParserHelper.indexOfFirstDigit(token.getContent()) != -1) {
+            if (token.getCategory() == kUnknown && token.getShape().indexOfFirstDigit() != -1) {
                 tokens.add(new Result(token, i));
             }
         }
@@ -201,7 +294,7 @@ public class Parser {
         if (!empty(kElementEpisodeNumber)) return;
 
         // From now on, we're only interested in numeric tokens
-        tokens.removeIf(r -> !StringHelper.isNumericString(r.token.getContent()));
+        tokens.removeIf(r -> !r.token.getShape().isNumeric());
 
         // e.g. "01 (176)", "29 (04)"
         if (parserNumber.searchForEquivalentNumbers(tokens)) return;
@@ -217,7 +310,7 @@ public class Parser {
     }
 
     /** Search for anime title. */
-    private void searchForAnimeTitle() {
+    void searchForAnimeTitle() {
         boolean enclosedTitle = false;
 
         Result tokenBegin = Token.findToken(tokens, kFlagNotEnclosed, kFlagUnknown);
@@ -234,7 +327,7 @@ public class Parser {
                 if (tokenBegin.token == null) break;
 
                 // Ignore groups that are composed of non-Latin characters
-                if (StringHelper.isMostlyLatinString(tokenBegin.token.getContent()) && skippedPreviousGroup) {
+                if (tokenBegin.token.getShape().isMostlyLatin() && skippedPreviousGroup) {
                     break;
                 }
 
@@ -294,7 +387,7 @@ public class Parser {
     }
 
     /** Search for release group. */
-    private void searchForReleaseGroup() {
+    void searchForReleaseGroup() {
         for (Result tokenBegin = new Result(null, 0), tokenEnd = tokenBegin;
              tokenBegin.pos != null && tokenBegin.pos < tokens.size(); ) {
 
@@ -318,7 +411,7 @@ public class Parser {
     }
 
     /** Search for episode title. */
-    private void searchForEpisodeTitle() {
+    void searchForEpisodeTitle() {
         // Find the first non-enclosed unknown token
         Result tokenBegin = Token.findToken(tokens, kFlagNotEnclosed, kFlagUnknown);
         if (tokenBegin.token == null) return;
@@ -332,19 +425,20 @@ public class Parser {
     }
 
     /** Search for isolated numbers. */
-    private void searchForIsolatedNumbers() {
+    void searchForIsolatedNumbers() {
+        CategoryIndex found = new CategoryIndex(elements);
         for (int i = 0; i < tokens.size(); i++) {
             Token token = tokens.get(i);
             if (token.getCategory() != kUnknown
-                    || !StringHelper.isNumericString(token.getContent()) || !parserHelper.isTokenIsolated(i)) {
+                    || !token.getShape().isNumeric() || !parserHelper.isTokenIsolated(i)) {
                 continue;
             }
 
-            int number = StringHelper.stringToInt(token.getContent());
+            int number = token.getShape().toInt();
 
             // Anime year
             if (number >= ParserNumber.kAnimeYearMin && number <= ParserNumber.kAnimeYearMax) {
-                if (empty(kElementAnimeYear)) {
+                if (found.empty(kElementAnimeYear)) {
                     elements.add(new Element(kElementAnimeYear, token.getContent()));
                     token.setCategory(kIdentifier);
                     continue;
@@ -355,7 +449,7 @@ public class Parser {
             if (number == 480 || number == 720 || number == 1080) {
                 // If these numbers are isolated, it's more likely for them to be the
                 // video resolution rather than the episode number. Some fansub groups use these without the "p" suffix.
-                if (empty(kElementVideoResolution)) {
+                if (found.empty(kElementVideoResolution)) {
                     elements.add(new Element(kElementVideoResolution, token.getContent()));
                     token.setCategory(kIdentifier);
                 }
@@ -364,7 +458,7 @@ public class Parser {
     }
 
     /** Validate Elements. */
-    private void validateElements() {
+    void validateElements() {
         if (!empty(kElementAnimeType) && !empty(kElementEpisodeTitle)) {
             String episodeTitle = get(kElementEpisodeTitle);
 
@@ -390,7 +484,7 @@ public class Parser {
     }
 
     /** Returns whether or not the parser contains this category. */
-    private boolean empty(ElementCategory category) {
+    boolean empty(ElementCategory category) {
         return !elements.stream().anyMatch(element -> element.getCategory() == category);
     }
 
@@ -425,4 +519,24 @@ public class Parser {
 
         return removedIdx;
     }
+
+    /**
+     * Keeps track of the categories of the elements found so far, so that phases which check for the same categories
+     * over and over don't have to scan every element each time. Only valid while elements are only ever added.
+     */
+    private static class CategoryIndex {
+        private final List<Element> elements;
+        private final EnumSet<ElementCategory> categories = EnumSet.noneOf(ElementCategory.class);
+        private int indexed = 0;
+
+        CategoryIndex(List<Element> elements) {
+            this.elements = elements;
+        }
+
+        /** Returns whether or not there's no element of this category. */
+        boolean empty(ElementCategory category) {
+            for (; indexed < elements.size(); indexed++) categories.add(elements.get(indexed).getCategory());
+            return !categories.contains(category);
+        }
+    }
 }
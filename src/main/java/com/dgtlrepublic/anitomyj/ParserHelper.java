@@ -196,7 +196,7 @@ public class ParserHelper {
         }
 
         Result nextToken = Token.findNextToken(parser.getTokens(), currentTokenPos, kFlagNotDelimiter);
-        if (nextToken.token != null && StringHelper.isNumericString(nextToken.token.getContent())) {
+        if (nextToken.token != null && nextToken.token.getShape().isNumeric()) {
             setAnimeSeason.accept(token, nextToken.token, nextToken.token.getContent());
             return true;
         }
@@ -215,7 +215,7 @@ public class ParserHelper {
     public boolean checkExtentKeyword(ElementCategory category, int currentTokenPos, Token token) {
         Result nToken = Token.findNextToken(parser.getTokens(), currentTokenPos, kFlagNotDelimiter);
         if (isTokenCategory(nToken.token, kUnknown)) {
-            if (indexOfFirstDigit(nToken.token.getContent()) == 0) {
+            if (nToken.token.getShape().indexOfFirstDigit() == 0) {
                 switch (category) {
                     case kElementEpisodeNumber:
                         if (!parser.getParserNumber().matchEpisodePatterns(nToken.token.getContent(), nToken.token)) {
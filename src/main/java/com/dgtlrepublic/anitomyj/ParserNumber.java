@@ -18,11 +18,19 @@ import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementReleaseV
 import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementVolumeNumber;
 import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementVolumePrefix;
 import static com.dgtlrepublic.anitomyj.Token.TokenCategory.kBracket;
-import static com.dgtlrepublic.anitomyj.Token.TokenCategory.kDelimiter;
 import static com.dgtlrepublic.anitomyj.Token.TokenCategory.kIdentifier;
 import static com.dgtlrepublic.anitomyj.Token.TokenCategory.kUnknown;
 import static com.dgtlrepublic.anitomyj.Token.TokenFlag.kFlagEnclosed;
 import static com.dgtlrepublic.anitomyj.Token.TokenFlag.kFlagNotDelimiter;
+import static com.dgtlrepublic.anitomyj.Token.TokenFlag.kFlagNotEnclosed;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternFractionalEpisode;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternJapaneseCounter;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternMultiEpisode;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternMultiVolume;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternNumberSign;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternSeasonAndEpisode;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternSingleEpisode;
+import static com.dgtlrepublic.anitomyj.TokenClassifier.TokenPattern.kPatternSingleVolume;
 
 import java.text.NumberFormat;
 import java.text.ParseException;
@@ -31,8 +39,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.StringUtils;
@@ -145,7 +151,7 @@ public class ParserNumber {
      * @return true if a number follows the token; false otherwise
      */
     public boolean numberComesAfterPrefix(ElementCategory category, Token token) {
-        int number_begin = ParserHelper.indexOfFirstDigit(token.getContent());
+        int number_begin = token.getShape().indexOfFirstDigit();
         String prefix = StringUtils.substring(token.getContent(), 0, number_begin).toUpperCase(Locale.ENGLISH);
         if (KeywordManager.getInstance().contains(category, prefix)) {
             String number = StringUtils.substring(token.getContent(), number_begin, token.getContent().length());
@@ -179,7 +185,7 @@ public class ParserNumber {
                 Result otherToken = Token.findNextToken(parser.getTokens(), nextToken, kFlagNotDelimiter);
 
                 if (otherToken.token != null) {
-                    if (StringHelper.isNumericString(otherToken.token.getContent())) {
+                    if (otherToken.token.getShape().isNumeric()) {
                         setEpisodeNumber(token.getContent(), token, false);
                         nextToken.token.setCategory(kIdentifier);
                         otherToken.token.setCategory(kIdentifier);
@@ -205,44 +211,7 @@ public class ParserNumber {
         if (StringHelper.isNumericString(word)) return false;
 
         word = StringHelper.trimAny(word, " -");
-
-        boolean numericFront = Character.isDigit(word.charAt(0));
-        boolean numericBack = Character.isDigit(word.charAt(word.length() - 1));
-
-        // e.g. "01v2"
-        if (numericFront && numericBack)
-            if (matchSingleEpisodePattern(word, token))
-                return true;
-        // e.g. "01-02", "03-05v2"
-        if (numericFront && numericBack)
-            if (matchMultiEpisodePattern(word, token))
-                return true;
-        // e.g. "2x01", "S01E03", "S01-02xE001-150"
-        if (numericBack)
-            if (matchSeasonAndEpisodePattern(word, token))
-                return true;
-        // e.g. "ED1", "OP4a", "OVA2"
-        if (!numericFront)
-            if (matchTypeAndEpisodePattern(word, token))
-                return true;
-        // e.g. "07.5"
-        if (numericFront && numericBack)
-            if (matchFractionalEpisodePattern(word, token))
-                return true;
-        // e.g. "4a", "111C"
-        if (numericFront && !numericBack)
-            if (matchPartialEpisodePattern(word, token))
-                return true;
-        // e.g. "#01", "#02-03v2"
-        if (numericBack)
-            if (matchNumberSignPattern(word, token))
-                return true;
-        // U+8A71 is used as counter for stories, episodes of TV series, etc.
-        if (numericFront)
-            if (matchJapaneseCounterPattern(word, token))
-                return true;
-
-        return false;
+        return EpisodePatternDispatcher.getInstance().dispatch(this, word, token);
     }
 
     /**
@@ -253,12 +222,10 @@ public class ParserNumber {
      * @return true if the token matched
      */
     public boolean matchSingleEpisodePattern(String word, Token token) {
-        String regexPattern = "(\\d{1,3})[vV](\\d)";
-        Pattern pattern = Pattern.compile(regexPattern);
-        Matcher matcher = pattern.matcher(word);
-        if (matcher.matches()) {
-            setEpisodeNumber(matcher.group(1), token, false);
-            parser.getElements().add(new Element(kElementReleaseVersion, matcher.group(2)));
+        String[] groups = TokenClassifier.getInstance().match(kPatternSingleEpisode, word);
+        if (groups != null) {
+            setEpisodeNumber(groups[1], token, false);
+            parser.getElements().add(new Element(kElementReleaseVersion, groups[2]));
             return true;
         }
 
@@ -273,21 +240,19 @@ public class ParserNumber {
      * @return true if the token matched
      */
     public boolean matchMultiEpisodePattern(String word, Token token) {
-        String regexPattern = "(\\d{1,3})(?:[vV](\\d))?[-~&+](\\d{1,3})(?:[vV](\\d))?";
-        Pattern pattern = Pattern.compile(regexPattern);
-        Matcher matcher = pattern.matcher(word);
-        if (matcher.matches()) {
-            String lowerBound = matcher.group(1);
-            String upperBound = matcher.group(3);
+        String[] groups = TokenClassifier.getInstance().match(kPatternMultiEpisode, word);
+        if (groups != null) {
+            String lowerBound = groups[1];
+            String upperBound = groups[3];
 
             /** Avoid matching expressions such as "009-1" or "5-2" */
             if (StringHelper.stringToInt(lowerBound) < StringHelper.stringToInt(upperBound)) {
                 if (setEpisodeNumber(lowerBound, token, true)) {
                     setEpisodeNumber(upperBound, token, true);
-                    if (StringUtils.isNotEmpty(matcher.group(2)))
-                        parser.getElements().add(new Element(kElementReleaseVersion, matcher.group(2)));
-                    if (StringUtils.isNotEmpty(matcher.group(4)))
-                        parser.getElements().add(new Element(kElementReleaseVersion, matcher.group(4)));
+                    if (StringUtils.isNotEmpty(groups[2]))
+                        parser.getElements().add(new Element(kElementReleaseVersion, groups[2]));
+                    if (StringUtils.isNotEmpty(groups[4]))
+                        parser.getElements().add(new Element(kElementReleaseVersion, groups[4]));
                     return true;
                 }
             }
@@ -304,16 +269,14 @@ public class ParserNumber {
      * @return true if the token matched
      */
     public boolean matchSeasonAndEpisodePattern(String word, Token token) {
-        String regexPattern = "S?(\\d{1,2})(?:-S?(\\d{1,2}))?(?:x|[ ._-x]?E)(\\d{1,3})(?:-E?(\\d{1,3}))?";
-        Pattern pattern = Pattern.compile(regexPattern, Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(word);
-        if (matcher.matches()) {
-            parser.getElements().add(new Element(kElementAnimeSeason, matcher.group(1)));
-            if (StringUtils.isNotEmpty(matcher.group(2)))
-                parser.getElements().add(new Element(kElementAnimeSeason, matcher.group(2)));
-            setEpisodeNumber(matcher.group(3), token, false);
-            if (StringUtils.isNotEmpty(matcher.group(4)))
-                setEpisodeNumber(matcher.group(4), token, false);
+        String[] groups = TokenClassifier.getInstance().match(kPatternSeasonAndEpisode, word);
+        if (groups != null) {
+            parser.getElements().add(new Element(kElementAnimeSeason, groups[1]));
+            if (StringUtils.isNotEmpty(groups[2]))
+                parser.getElements().add(new Element(kElementAnimeSeason, groups[2]));
+            setEpisodeNumber(groups[3], token, false);
+            if (StringUtils.isNotEmpty(groups[4]))
+                setEpisodeNumber(groups[4], token, false);
             return true;
         }
 
@@ -364,10 +327,7 @@ public class ParserNumber {
      */
     public boolean matchFractionalEpisodePattern(String word, Token token) {
         if (StringUtils.isEmpty(word)) word = "";
-        String regexPattern = "\\d+\\.5";
-        Pattern pattern = Pattern.compile(regexPattern, Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(word);
-        if (matcher.matches()) {
+        if (TokenClassifier.getInstance().match(kPatternFractionalEpisode, word) != null) {
             if (setEpisodeNumber(word, token, true))
                 return true;
         }
@@ -408,15 +368,13 @@ public class ParserNumber {
      */
     public boolean matchNumberSignPattern(String word, Token token) {
         if (StringUtils.isEmpty(word) || word.charAt(0) != '#') word = "";
-        String regexPattern = "#(\\d{1,3})(?:[-~&+](\\d{1,3}))?(?:[vV](\\d))?";
-        Pattern pattern = Pattern.compile(regexPattern);
-        Matcher matcher = pattern.matcher(word);
-        if (matcher.matches()) {
-            if (setEpisodeNumber(matcher.group(1), token, true)) {
-                if (StringUtils.isNotEmpty(matcher.group(2)))
-                    setEpisodeNumber(matcher.group(2), token, false);
-                if (StringUtils.isNotEmpty(matcher.group(3)))
-                    parser.getElements().add(new Element(kElementReleaseVersion, matcher.group(3)));
+        String[] groups = TokenClassifier.getInstance().match(kPatternNumberSign, word);
+        if (groups != null) {
+            if (setEpisodeNumber(groups[1], token, true)) {
+                if (StringUtils.isNotEmpty(groups[2]))
+                    setEpisodeNumber(groups[2], token, false);
+                if (StringUtils.isNotEmpty(groups[3]))
+                    parser.getElements().add(new Element(kElementReleaseVersion, groups[3]));
                 return true;
             }
         }
@@ -433,11 +391,9 @@ public class ParserNumber {
      */
     public boolean matchJapaneseCounterPattern(String word, Token token) {
         if (StringUtils.isEmpty(word) || word.charAt(word.length() - 1) != '\u8A71') return false;
-        String regexPattern = "(\\d{1,3})\u8A71";
-        Pattern pattern = Pattern.compile(regexPattern);
-        Matcher matcher = pattern.matcher(word);
-        if (matcher.matches()) {
-            setEpisodeNumber(matcher.group(1), token, false);
+        String[] groups = TokenClassifier.getInstance().match(kPatternJapaneseCounter, word);
+        if (groups != null) {
+            setEpisodeNumber(groups[1], token, false);
             return true;
         }
 
@@ -483,12 +439,10 @@ public class ParserNumber {
      */
     public boolean matchSingleVolumePattern(String word, Token token) {
         if (StringUtils.isEmpty(word)) word = "";
-        String regexPattern = "(\\d{1,2})[vV](\\d)";
-        Pattern pattern = Pattern.compile(regexPattern);
-        Matcher matcher = pattern.matcher(word);
-        if (matcher.matches()) {
-            setVolumeNumber(matcher.group(1), token, false);
-            parser.getElements().add(new Element(kElementReleaseVersion, matcher.group(2)));
+        String[] groups = TokenClassifier.getInstance().match(kPatternSingleVolume, word);
+        if (groups != null) {
+            setVolumeNumber(groups[1], token, false);
+            parser.getElements().add(new Element(kElementReleaseVersion, groups[2]));
             return true;
         }
 
@@ -504,17 +458,15 @@ public class ParserNumber {
      */
     public boolean matchMultiVolumePattern(String word, Token token) {
         if (StringUtils.isEmpty(word)) word = "";
-        String regexPattern = "(\\d{1,2})[-~&+](\\d{1,2})(?:[vV](\\d))?";
-        Pattern pattern = Pattern.compile(regexPattern);
-        Matcher matcher = pattern.matcher(word);
-        if (matcher.matches()) {
-            String lowerBound = matcher.group(1);
-            String upperBound = matcher.group(2);
+        String[] groups = TokenClassifier.getInstance().match(kPatternMultiVolume, word);
+        if (groups != null) {
+            String lowerBound = groups[1];
+            String upperBound = groups[2];
             if (StringHelper.stringToInt(lowerBound) < StringHelper.stringToInt(upperBound)) {
                 if (setVolumeNumber(lowerBound, token, true)) {
                     setVolumeNumber(upperBound, token, false);
-                    if (StringUtils.isNotEmpty(matcher.group(3)))
-                        parser.getElements().add(new Element(kElementReleaseVersion, matcher.group(3)));
+                    if (StringUtils.isNotEmpty(groups[3]))
+                        parser.getElements().add(new Element(kElementReleaseVersion, groups[3]));
                     return true;
                 }
             }
@@ -616,14 +568,13 @@ public class ParserNumber {
 
             // Check if it's an isolated number
             if (!parser.getParserHelper().isTokenIsolated(nextToken.pos)
-                    || !StringHelper.isNumericString(nextToken.token.getContent())
+                    || !nextToken.token.getShape().isNumeric()
                     || !isValidEpisodeNumber(nextToken.token.getContent())) {
                 continue;
             }
 
             List<Token> list = Arrays.asList(it.token, nextToken.token);
-            list.sort((o1, o2) -> Integer.compare(StringHelper.stringToInt(o1.getContent()),
-                                                  StringHelper.stringToInt(o2.getContent())));
+            list.sort((o1, o2) -> Integer.compare(o1.getShape().toInt(), o2.getShape().toInt()));
             setEpisodeNumber(list.get(0).getContent(), list.get(0), false);
             setAlternativeEpisodeNumber(list.get(1).getContent(), list.get(1));
             return true;
@@ -639,6 +590,7 @@ public class ParserNumber {
      * @return true if the last number token was found
      */
     public boolean searchForLastNumber(List<Result> tokens) {
+        Result firstToken = Token.findToken(parser.getTokens(), kFlagNotEnclosed, kFlagNotDelimiter);
         for (int i = tokens.size() - 1; i >= 0; i--) {
             Result it = tokens.get(i);
 
@@ -649,10 +601,7 @@ public class ParserNumber {
             if (it.token.isEnclosed()) continue;
 
             // Ignore if it's the first non-enclosed, non-delimiter token
-            if (parser.getTokens().subList(0, it.pos)
-                    .stream().allMatch(r -> r.isEnclosed() || r.getCategory() == kDelimiter)) {
-                continue;
-            }
+            if (firstToken.pos == null || firstToken.pos >= it.pos) continue;
 
             // Ignore if the previous token is "Movie" or "Part"
             Result previousToken = Token.findPrevToken(parser.getTokens(), it, TokenFlag.kFlagNotDelimiter);
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodeNumber;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementReleaseGroup;
+
+/**
+ * The built-in {@link ParserStage}s, in the order they are run by the {@link ParserPipeline#getDefault() default
+ * pipeline}.
+ *
+ * @author Paul Miller
+ */
+public enum ParserPhase implements ParserStage {
+    /** Search for anime keywords. */
+    kPhaseKeywords {
+        @Override
+        public boolean process(Parser parser) {
+            parser.searchForKeywords();
+            return true;
+        }
+    },
+
+    /** Search for isolated numbers(e.g anime year, video resolution). */
+    kPhaseIsolatedNumbers {
+        @Override
+        public boolean process(Parser parser) {
+            parser.searchForIsolatedNumbers();
+            return true;
+        }
+    },
+
+    /** Search for the episode number. */
+    kPhaseEpisodeNumber {
+        @Override
+        public boolean process(Parser parser) {
+            if (parser.getOptions().parseEpisodeNumber) {
+                parser.SearchForEpisodeNumber();
+            }
+            return true;
+        }
+    },
+
+    /** Search for the anime title. */
+    kPhaseAnimeTitle {
+        @Override
+        public boolean process(Parser parser) {
+            parser.searchForAnimeTitle();
+            return true;
+        }
+    },
+
+    /** Search for the release group. */
+    kPhaseReleaseGroup {
+        @Override
+        public boolean process(Parser parser) {
+            if (parser.getOptions().parseReleaseGroup && parser.empty(kElementReleaseGroup)) {
+                parser.searchForReleaseGroup();
+            }
+            return true;
+        }
+    },
+
+    /** Search for the episode title. */
+    kPhaseEpisodeTitle {
+        @Override
+        public boolean process(Parser parser) {
+            if (parser.getOptions().parseEpisodeTitle && !parser.empty(kElementEpisodeNumber)) {
+                parser.searchForEpisodeTitle();
+            }
+            return true;
+        }
+    },
+
+    /** Validate the found elements. */
+    kPhaseValidation {
+        @Override
+        public boolean process(Parser parser) {
+            parser.validateElements();
+            return true;
+        }
+    }
+}
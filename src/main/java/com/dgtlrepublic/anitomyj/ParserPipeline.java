@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable, ordered list of {@link ParserStage}s that {@link Parser#parse()} runs against its tokens.
+ * <p>
+ * Pipelines are meant to be assembled once and reused for every parse. The methods that change a pipeline return a new
+ * instance and leave the original untouched, e.g.
+ * <pre>
+ * ParserPipeline pipeline = ParserPipeline.getDefault()
+ *                                         .insertBefore(ParserPhase.kPhaseReleaseGroup, new KnownGroupStage())
+ *                                         .without(ParserPhase.kPhaseEpisodeTitle);
+ * </pre>
+ *
+ * @author Paul Miller
+ */
+public class ParserPipeline {
+    private static final ParserPipeline kPipelineDefault = new ParserPipeline(Arrays.asList(ParserPhase.values()));
+
+    private final ParserStage[] stages;
+
+    /**
+     * Constructs a new pipeline.
+     *
+     * @param stages the stages, in the order they should be run
+     */
+    public ParserPipeline(List<? extends ParserStage> stages) {
+        this.stages = stages.toArray(new ParserStage[0]);
+        for (ParserStage stage : this.stages) Objects.requireNonNull(stage);
+    }
+
+    /** Returns the default pipeline, which runs every {@link ParserPhase} in order. */
+    public static ParserPipeline getDefault() {
+        return kPipelineDefault;
+    }
+
+    /** Returns the stages of this pipeline. */
+    public List<ParserStage> getStages() {
+        return Collections.unmodifiableList(Arrays.asList(stages));
+    }
+
+    /** Returns a copy of this pipeline with {@code stage} inserted at the beginning. */
+    public ParserPipeline prepend(ParserStage stage) {
+        List<ParserStage> list = new ArrayList<>(Arrays.asList(stages));
+        list.add(0, Objects.requireNonNull(stage));
+        return new ParserPipeline(list);
+    }
+
+    /** Returns a copy of this pipeline with {@code stage} appended to the end. */
+    public ParserPipeline append(ParserStage stage) {
+        List<ParserStage> list = new ArrayList<>(Arrays.asList(stages));
+        list.add(Objects.requireNonNull(stage));
+        return new ParserPipeline(list);
+    }
+
+    /** Returns a copy of this pipeline with {@code stage} inserted right before {@code anchor}. */
+    public ParserPipeline insertBefore(ParserStage anchor, ParserStage stage) {
+        List<ParserStage> list = new ArrayList<>(Arrays.asList(stages));
+        list.add(indexOf(anchor), Objects.requireNonNull(stage));
+        return new ParserPipeline(list);
+    }
+
+    /** Returns a copy of this pipeline with {@code stage} inserted right after {@code anchor}. */
+    public ParserPipeline insertAfter(ParserStage anchor, ParserStage stage) {
+        List<ParserStage> list = new ArrayList<>(Arrays.asList(stages));
+        list.add(indexOf(anchor) + 1, Objects.requireNonNull(stage));
+        return new ParserPipeline(list);
+    }
+
+    /** Returns a copy of this pipeline without {@code stage}. */
+    public ParserPipeline without(ParserStage stage) {
+        List<ParserStage> list = new ArrayList<>(Arrays.asList(stages));
+        list.remove(stages[indexOf(stage)]);
+        return new ParserPipeline(list);
+    }
+
+    /**
+     * Runs every stage against {@code parser}, skipping the built-in phases that {@code plan} doesn't need. Stops early
+     * once the parser is past its deadline.
+     *
+     * @param parser the parser
+     * @param plan   the parse plan
+     */
+    void run(Parser parser, ParsePlan plan) {
+        for (ParserStage stage : stages) {
+            if (stage instanceof ParserPhase && !plan.runs((ParserPhase) stage)) continue;
+            if (parser.isPastDeadline()) return;
+            if (!stage.process(parser)) return;
+        }
+    }
+
+    /** Returns the position of {@code stage}; throws if the pipeline doesn't contain it. */
+    private int indexOf(ParserStage stage) {
+        for (int i = 0; i < stages.length; i++) {
+            if (stages[i] == stage) return i;
+        }
+
+        throw new IllegalArgumentException("Pipeline doesn't contain stage: " + stage);
+    }
+
+    @Override
+    public String toString() {
+        return "ParserPipeline{" +
+                "stages=" + Arrays.toString(stages) +
+                '}';
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+/**
+ * A single step of a {@link ParserPipeline}. Stages share the {@link Parser} they are run against, which holds the
+ * elements found so far, the parser options and a read-only view of the tokens({@link Parser#getTokenViews()}). A
+ * stage identifies a token with {@link Parser#identify(TokenView, Element.ElementCategory)}, so that the built-in
+ * phases that run after it leave the token alone.
+ * <p>
+ * Stages should be stateless (or thread-safe), since a pipeline is assembled once and shared by every parse. The
+ * built-in stages are listed in {@link ParserPhase}.
+ *
+ * @author Paul Miller
+ */
+public interface ParserStage {
+    /**
+     * Runs this stage against the parse in progress.
+     *
+     * @param parser the parser, which holds the state of the current parse
+     * @return true to continue with the next stage; false to stop the pipeline
+     */
+    boolean process(Parser parser);
+}
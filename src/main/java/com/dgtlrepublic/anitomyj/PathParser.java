@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeSeason;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeTitle;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeType;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeYear;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodeNumber;
+
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.collections.map.LRUMap;
+
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
+/**
+ * Parses full paths, e.g. {@code "/library/Show Name (2016)/Season 2/[Group] Show Name - 05.mkv"}.
+ * <p>
+ * The filename is parsed as usual. The title, season and year of its parent directories serve as fallbacks for the
+ * elements the filename lacks, so that {@code "Show Name/05.mkv"} still gets a title. The nearest directory wins, and
+ * only the closest {@value #kContextDepth} directories are considered, so that unrelated roots(e.g. "/library") don't
+ * end up as titles.
+ * <p>
+ * Each directory is only parsed once: its context is kept in an LRU cache keyed by the directory path. This class is
+ * thread-safe.
+ *
+ * @author Paul Miller
+ */
+public class PathParser {
+    public static final int kDefaultMaxDirectories = 4096;
+
+    /** The number of parent directories that contribute context. */
+    public static final int kContextDepth = 2;
+
+    /** The element categories parsed from directory names. */
+    private static final EnumSet<ElementCategory> kContextCategories = EnumSet.of(kElementAnimeSeason,
+                                                                                  kElementAnimeTitle,
+                                                                                  kElementAnimeType,
+                                                                                  kElementAnimeYear);
+
+    private final LRUMap directories;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /** Constructs a new path parser, which caches up to {@value #kDefaultMaxDirectories} directories. */
+    public PathParser() {
+        this(kDefaultMaxDirectories);
+    }
+
+    /**
+     * Constructs a new path parser.
+     *
+     * @param maxDirectories the maximum number of directories to cache
+     */
+    public PathParser(int maxDirectories) {
+        this.directories = new LRUMap(maxDirectories);
+    }
+
+    /**
+     * Parses the file name of a {@code path}, using its parent directories as context.
+     *
+     * @param path the path of the anime file
+     * @return the list of parsed elements
+     */
+    public List<Element> parse(Path path) {
+        return parse(path.toString());
+    }
+
+    /**
+     * Parses the file name of a {@code path}, using its parent directories as context. Both '/' and '\' are accepted as
+     * separators.
+     *
+     * @param path the path of the anime file
+     * @return the list of parsed elements
+     */
+    public List<Element> parse(String path) {
+        int separator = lastSeparator(path, path.length());
+        List<Element> elements = AnitomyJ.parse(path.substring(separator + 1));
+        if (separator <= 0) return elements;
+
+        DirectoryContext context = getContext(path.substring(0, separator));
+        String title = get(elements, kElementAnimeTitle);
+        if (context.title != null) {
+            if (title == null) {
+                elements.add(new Element(kElementAnimeTitle, context.title));
+            } else if (title.equals(get(elements, kElementAnimeType))) {
+                // e.g. "Show Name/Specials/OVA 01.mkv", like a directory, a file named after an anime type has no title
+                elements.set(indexOf(elements, kElementAnimeTitle), new Element(kElementAnimeTitle, context.title));
+            } else if (get(elements, kElementEpisodeNumber) == null && StringHelper.isNumericString(title)) {
+                // e.g. "Show Name/05.mkv", the lone number is the episode rather than the title
+                elements.set(indexOf(elements, kElementAnimeTitle), new Element(kElementEpisodeNumber, title));
+                elements.add(new Element(kElementAnimeTitle, context.title));
+            }
+        }
+
+        if (context.season != null && get(elements, kElementAnimeSeason) == null) {
+            elements.add(new Element(kElementAnimeSeason, context.season));
+        }
+
+        if (context.year != null && get(elements, kElementAnimeYear) == null) {
+            elements.add(new Element(kElementAnimeYear, context.year));
+        }
+
+        return elements;
+    }
+
+    /** Returns the number of directory lookups that were served by the cache. */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /** Returns the number of directory lookups that had to parse directory names. */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /** Returns the number of cached directories. */
+    public synchronized int size() {
+        return directories.size();
+    }
+
+    /** Empties the directory cache. */
+    public synchronized void clear() {
+        directories.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "PathParser{" +
+                "hitCount=" + getHitCount() +
+                ", missCount=" + getMissCount() +
+                '}';
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** Returns the context of a {@code directory}, parsing its name and its parents' names on a cache miss. */
+    private DirectoryContext getContext(String directory) {
+        DirectoryContext context;
+        synchronized (this) {
+            context = (DirectoryContext) directories.get(directory);
+        }
+
+        if (context != null) {
+            hitCount.increment();
+            return context;
+        }
+
+        missCount.increment();
+        String title = null;
+        String season = null;
+        String year = null;
+
+        int end = directory.length();
+        for (int depth = 0; depth < kContextDepth && end > 0; depth++) {
+            int separator = lastSeparator(directory, end);
+            List<Element> elements = AnitomyJ.parse(directory.substring(separator + 1, end), kContextCategories);
+            end = separator;
+
+            // Directories named after an anime type(e.g. "Specials") don't have a title of their own
+            String name = get(elements, kElementAnimeTitle);
+            if (title == null && name != null && !name.equals(get(elements, kElementAnimeType))) title = name;
+            if (season == null) season = get(elements, kElementAnimeSeason);
+            if (year == null) year = get(elements, kElementAnimeYear);
+        }
+
+        context = new DirectoryContext(title, season, year);
+        synchronized (this) {
+            directories.put(directory, context);
+        }
+
+        return context;
+    }
+
+    /** Returns the index of the last separator before {@code end}; -1 if there's none. */
+    private static int lastSeparator(String path, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            char c = path.charAt(i);
+            if (c == '/' || c == '\\') return i;
+        }
+
+        return -1;
+    }
+
+    /** Returns the value of the first element of a {@code category}; null if there's none. */
+    private static String get(List<Element> elements, ElementCategory category) {
+        int index = indexOf(elements, category);
+        return index != -1 ? elements.get(index).getValue() : null;
+    }
+
+    /** Returns the index of the first element of a {@code category}; -1 if there's none. */
+    private static int indexOf(List<Element> elements, ElementCategory category) {
+        for (int i = 0; i < elements.size(); i++) {
+            if (elements.get(i).getCategory() == category) return i;
+        }
+
+        return -1;
+    }
+
+    /** The elements a directory contributes to the files inside of it. */
+    private static class DirectoryContext {
+        final String title;
+        final String season;
+        final String year;
+
+        DirectoryContext(String title, String season, String year) {
+            this.title = title;
+            this.season = season;
+            this.year = year;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bulk parser that runs reading, parsing and writing as overlapping pipeline stages:
+ * <pre>
+ * caller thread (reads filenames) -&gt; N worker threads (parse) -&gt; output thread (writes results, in input order)
+ * </pre>
+ * The stages are connected by a lock-free, single producer/multi consumer ring buffer of preallocated slots. Each slot
+ * owns the token and element buffers that its parses reuse, so steady-state parsing allocates nothing but the tokens
+ * and elements themselves. Stages wait on each other by spinning briefly, then yielding, then parking.
+ * <p>
+ * Each call to {@link #parse(Iterator, ResultSink)} starts its own worker and output threads, and a single instance may
+ * run several calls at once.
+ *
+ * @author Paul Miller
+ */
+public class PipelinedParser {
+    /** The default number of ring buffer slots. */
+    public static final int kDefaultCapacity = 1024;
+
+    private static final int kSpinTries = 100;
+    private static final int kYieldTries = 100;
+
+    private final int workers;
+    private final int capacity;
+
+    /** Constructs a new parser with one worker per processor, minus the reader and writer threads. */
+    public PipelinedParser() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 2), kDefaultCapacity);
+    }
+
+    /**
+     * Constructs a new parser.
+     *
+     * @param workers  the number of parser threads
+     * @param capacity the number of ring buffer slots; rounded up to a power of two
+     */
+    public PipelinedParser(int workers, int capacity) {
+        if (workers < 1) throw new IllegalArgumentException("workers must be positive: " + workers);
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("invalid capacity: " + capacity);
+        this.workers = workers;
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Parses every filename of {@code filenames}, and passes the results to {@code sink}. The filenames are read on the
+     * calling thread; this method returns once every result was written.
+     *
+     * @param filenames the anime file names
+     * @param sink      receives the results, in input order, on the output thread; the element lists are reused, and
+     *                  null for a filename that the parser threw on
+     * @return the number of parsed filenames
+     * @throws IOException if the sink failed
+     */
+    public long parse(Iterator<String> filenames, ResultSink sink) throws IOException, InterruptedException {
+        Ring ring = new Ring(capacity);
+        List<Thread> threads = new ArrayList<>(workers + 1);
+        for (int i = 0; i < workers; i++) threads.add(new Thread(ring::work, "anitomyj-pipeline-worker-" + i));
+        threads.add(new Thread(() -> ring.write(sink), "anitomyj-pipeline-output"));
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        try {
+            ring.read(filenames);
+        } catch (RuntimeException | Error e) {
+            ring.fail(e);
+        } finally {
+            ring.finish();
+            for (Thread thread : threads) thread.join();
+        }
+
+        Throwable failure = ring.failure;
+        if (failure instanceof IOException) throw (IOException) failure;
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        return ring.published.get();
+    }
+
+    /** Returns the number of parser threads. */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /** Returns the number of ring buffer slots. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return "PipelinedParser{" +
+                "workers=" + workers +
+                ", capacity=" + capacity +
+                '}';
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** Waits for another stage; spins, then yields, then parks. */
+    private static int backOff(int tries) {
+        if (tries < kSpinTries) return tries + 1;
+        if (tries < kSpinTries + kYieldTries) {
+            Thread.yield();
+            return tries + 1;
+        }
+
+        LockSupport.parkNanos(1000);
+        return tries;
+    }
+
+    /** A single ring buffer slot, reused for every {@code capacity}th filename. */
+    private static class Slot {
+        final List<Element> elements = new ArrayList<>(32);
+        final List<Token> tokens = new ArrayList<>(64);
+        String filename;
+
+        /** Whether or not the parser threw on {@link #filename}; written before {@link #parsed}. */
+        boolean failed;
+
+        /** The sequence whose result is in this slot; written by a worker, read by the output thread. */
+        volatile long parsed = -1;
+    }
+
+    /** The state of a single pipeline run. */
+    private static class Ring {
+        final Slot[] slots;
+        final int mask;
+
+        /** The number of filenames read; only the caller thread writes it. */
+        final AtomicLong published = new AtomicLong();
+
+        /** The next sequence to parse; workers claim sequences by advancing it. */
+        final AtomicLong claimed = new AtomicLong();
+
+        /** The number of results written; only the output thread writes it. */
+        final AtomicLong written = new AtomicLong();
+
+        volatile boolean finished = false;
+        volatile Throwable failure;
+
+        Ring(int capacity) {
+            slots = new Slot[capacity];
+            for (int i = 0; i < capacity; i++) slots[i] = new Slot();
+            mask = capacity - 1;
+        }
+
+        /** The producer: publishes filenames, waiting for free slots. */
+        void read(Iterator<String> filenames) {
+            long sequence = published.get();
+            while (failure == null && filenames.hasNext()) {
+                String filename = filenames.next();
+                for (int tries = 0; sequence - written.get() >= slots.length; ) {
+                    if (failure != null) return;
+                    tries = backOff(tries);
+                }
+
+                slots[(int) sequence & mask].filename = filename;
+                published.lazySet(++sequence);
+            }
+        }
+
+        /**
+         * A consumer: claims and parses published filenames until the input is exhausted. A filename that the parser
+         * throws on gets a null result, rather than failing the run.
+         */
+        void work() {
+            try {
+                for (int tries = 0; failure == null; ) {
+                    long sequence = claimed.get();
+                    if (sequence >= published.get()) {
+                        if (finished && sequence >= published.get()) return;
+                        tries = backOff(tries);
+                        continue;
+                    }
+
+                    if (!claimed.compareAndSet(sequence, sequence + 1)) continue;
+                    Slot slot = slots[(int) sequence & mask];
+                    try {
+                        AnitomyJ.parseInto(slot.filename, ParseBudget.kBudgetUnlimited, slot.elements, slot.tokens);
+                        slot.failed = false;
+                    } catch (RuntimeException e) {
+                        slot.elements.clear();
+                        slot.failed = true;
+                    }
+                    slot.parsed = sequence;
+                    tries = 0;
+                }
+            } catch (Error e) {
+                fail(e);
+            }
+        }
+
+        /** The output stage: writes the results in sequence order, and frees their slots. */
+        void write(ResultSink sink) {
+            try {
+                for (long sequence = 0; failure == null; sequence++) {
+                    Slot slot = slots[(int) sequence & mask];
+                    for (int tries = 0; slot.parsed != sequence; ) {
+                        if (failure != null) return;
+                        if (finished && sequence >= published.get()) return;
+                        tries = backOff(tries);
+                    }
+
+                    sink.accept(slot.filename, slot.failed ? null : slot.elements);
+                    slot.filename = null;
+                    written.lazySet(sequence + 1);
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                fail(e);
+            }
+        }
+
+        void finish() {
+            finished = true;
+        }
+
+        synchronized void fail(Throwable throwable) {
+            if (failure == null) failure = throwable;
+        }
+    }
+}
@@ -0,0 +1,564 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeTitle;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodeTitle;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementReleaseGroup;
+import static com.dgtlrepublic.anitomyj.Token.TokenCategory.kBracket;
+import static com.dgtlrepublic.anitomyj.Token.TokenCategory.kDelimiter;
+import static com.dgtlrepublic.anitomyj.Token.TokenCategory.kIdentifier;
+import static com.dgtlrepublic.anitomyj.Token.TokenCategory.kUnknown;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.collections.map.LRUMap;
+
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+import com.dgtlrepublic.anitomyj.Token.TokenCategory;
+
+/**
+ * Learns the naming template of release groups, so that their later releases can skip the heuristic parser phases.
+ * <p>
+ * Fansub groups tend to name every release the same way, e.g. {@code "[Group] Title - 01 [720p][ABCD1234].mkv"}. For
+ * filenames that begin with a bracketed release group, the tokens are reduced to a skeleton(the token categories, plus
+ * the brackets and delimiters). Once {@code threshold} parses of the same group and skeleton mapped their elements onto
+ * the same token positions, that mapping becomes an active template. Token positions whose content changed between
+ * those parses(e.g. the episode number or checksum) become variable slots, which later filenames may only fill with a
+ * token of the same shape. Every other token has to match literally.
+ * <p>
+ * Templates are invalidated when a sampled verification parse disagrees with them, when filenames with their skeleton
+ * repeatedly stop matching them, or when they haven't been used for a while. Memory is bounded by an LRU of release
+ * groups, each holding a bounded number of skeletons.
+ * <p>
+ * Install the component on a pipeline with {@link #install(ParserPipeline)}. This class is thread-safe.
+ *
+ * @author Paul Miller
+ */
+public class ReleaseGroupTemplates {
+    public static final int kDefaultThreshold = 3;
+    public static final int kDefaultMaxGroups = 1024;
+    public static final int kDefaultMaxTemplatesPerGroup = 8;
+    public static final int kDefaultVerifyInterval = 64;
+    public static final int kDefaultStaleAfter = 1024;
+
+    /** Filenames with more tokens than this aren't learned. */
+    private static final int kMaxTokens = 96;
+
+    /** The shape of a variable token slot. */
+    private enum SlotClass {kClassNumber, kClassChecksum, kClassWord, kClassOther}
+
+    /** Where the value of a template element comes from. */
+    private enum SourceKind {kSourceToken, kSourceRange, kSourceConstant}
+
+    private final int threshold;
+    private final int maxTemplatesPerGroup;
+    private final int verifyInterval;
+    private final int staleAfter;
+    private final LRUMap groups;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder learnedCount = new LongAdder();
+    private final LongAdder invalidatedCount = new LongAdder();
+
+    private final ParserStage matchStage = this::match;
+    private final ParserStage learnStage = this::learn;
+
+    /** Constructs a new template store with the default settings. */
+    public ReleaseGroupTemplates() {
+        this(kDefaultThreshold, kDefaultMaxGroups, kDefaultMaxTemplatesPerGroup, kDefaultVerifyInterval,
+             kDefaultStaleAfter);
+    }
+
+    /**
+     * Constructs a new template store.
+     *
+     * @param threshold            the number of consistent parses before a template is used
+     * @param maxGroups            the maximum number of release groups to remember
+     * @param maxTemplatesPerGroup the maximum number of templates(skeletons) per release group
+     * @param verifyInterval       every {@code verifyInterval}th use of a template(starting with the first) is
+     *                             verified against the full parser
+     * @param staleAfter           a template is dropped after this many lookups of its group without a match
+     */
+    public ReleaseGroupTemplates(int threshold,
+                                 int maxGroups,
+                                 int maxTemplatesPerGroup,
+                                 int verifyInterval,
+                                 int staleAfter) {
+        if (threshold < 1 || maxGroups < 1 || maxTemplatesPerGroup < 1 || verifyInterval < 1 || staleAfter < 1) {
+            throw new IllegalArgumentException("Template settings must be positive");
+        }
+
+        this.threshold = threshold;
+        this.maxTemplatesPerGroup = maxTemplatesPerGroup;
+        this.verifyInterval = verifyInterval;
+        this.staleAfter = staleAfter;
+        this.groups = new LRUMap(maxGroups);
+    }
+
+    /**
+     * Returns a copy of {@code pipeline} that uses and learns templates. The matching stage runs first, and stops the
+     * pipeline when a template applies; the learning stage runs last.
+     */
+    public ParserPipeline install(ParserPipeline pipeline) {
+        return pipeline.prepend(matchStage).append(learnStage);
+    }
+
+    /** Returns the number of filenames that were parsed with a template. */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /** Returns the number of filenames with a leading release group that no template applied to. */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /** Returns the number of templates that were learned. */
+    public long getLearnedCount() {
+        return learnedCount.sum();
+    }
+
+    /** Returns the number of templates that were invalidated. */
+    public long getInvalidatedCount() {
+        return invalidatedCount.sum();
+    }
+
+    /** Returns the number of release groups currently remembered. */
+    public synchronized int size() {
+        return groups.size();
+    }
+
+    /** Forgets every release group. */
+    public synchronized void clear() {
+        groups.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "ReleaseGroupTemplates{" +
+                "hitCount=" + getHitCount() +
+                ", missCount=" + getMissCount() +
+                ", learnedCount=" + getLearnedCount() +
+                ", invalidatedCount=" + getInvalidatedCount() +
+                '}';
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** The matching stage. */
+    private boolean match(Parser parser) {
+        Snapshot snapshot = Snapshot.of(parser.getTokens());
+        if (snapshot == null) return true;
+        parser.setAttribute(matchStage, snapshot);
+
+        Template template = lookup(snapshot);
+        if (template == null || !template.matches(snapshot)) {
+            missCount.increment();
+            return true;
+        }
+
+        List<Element> elements = template.apply(snapshot);
+        if (template.uses.getAndIncrement() % verifyInterval == 0) {
+            // let the heuristics run, the learning stage compares the results
+            snapshot.expected = elements;
+            snapshot.template = template;
+            return true;
+        }
+
+        hitCount.increment();
+        parser.getElements().addAll(elements);
+        return false;
+    }
+
+    /** The learning stage. */
+    private boolean learn(Parser parser) {
+        Snapshot snapshot = (Snapshot) parser.getAttribute(matchStage);
+        if (snapshot == null) return true;
+
+        List<Element> elements = parser.getElements();
+        List<Element> parsed = elements.subList(parser.getTokenizedElementCount(), elements.size());
+
+        if (snapshot.template != null) {
+            if (describe(parsed).equals(describe(snapshot.expected))) {
+                hitCount.increment();
+            } else {
+                invalidate(snapshot);
+            }
+            return true;
+        }
+
+        String releaseGroup = null;
+        for (Element element : parsed) {
+            if (element.getCategory() == kElementReleaseGroup) releaseGroup = element.getValue();
+        }
+
+        if (!snapshot.group.equals(releaseGroup)) return true;
+
+        Source[] recipe = Source.derive(parsed, snapshot);
+        if (recipe != null) observe(snapshot, recipe);
+        return true;
+    }
+
+    /** Returns the active template for the snapshot's group and skeleton; null if there's none. */
+    private synchronized Template lookup(Snapshot snapshot) {
+        Group group = (Group) groups.get(snapshot.group);
+        if (group == null) return null;
+
+        long lookup = ++group.lookups;
+        for (Iterator<Candidate> itr = group.candidates.values().iterator(); itr.hasNext(); ) {
+            Candidate candidate = itr.next();
+            if (candidate.template != null && lookup - candidate.lastUsed > staleAfter) {
+                invalidatedCount.increment();
+                itr.remove();
+            }
+        }
+
+        Candidate candidate = group.candidates.get(snapshot.skeleton);
+        if (candidate == null || candidate.template == null) return null;
+        candidate.lastUsed = lookup;
+        return candidate.template;
+    }
+
+    /** Records a parse of the snapshot's group and skeleton. */
+    private synchronized void observe(Snapshot snapshot, Source[] recipe) {
+        Group group = (Group) groups.get(snapshot.group);
+        if (group == null) {
+            group = new Group(maxTemplatesPerGroup);
+            groups.put(snapshot.group, group);
+        }
+
+        Candidate candidate = group.candidates.get(snapshot.skeleton);
+        if (candidate == null) {
+            group.candidates.put(snapshot.skeleton, new Candidate(snapshot, recipe, group.lookups));
+            return;
+        }
+
+        if (candidate.template != null) {
+            // the template exists, yet the heuristics had to run: it no longer matches this group's filenames
+            if (++candidate.misses >= threshold) {
+                invalidatedCount.increment();
+                group.candidates.put(snapshot.skeleton, new Candidate(snapshot, recipe, group.lookups));
+            }
+            return;
+        }
+
+        if (!candidate.merge(snapshot, recipe)) {
+            group.candidates.put(snapshot.skeleton, new Candidate(snapshot, recipe, group.lookups));
+        } else if (candidate.count >= threshold) {
+            candidate.template = new Template(candidate);
+            candidate.lastUsed = group.lookups;
+            learnedCount.increment();
+        }
+    }
+
+    /** Drops the template of the snapshot's group and skeleton. */
+    private synchronized void invalidate(Snapshot snapshot) {
+        invalidatedCount.increment();
+        Group group = (Group) groups.get(snapshot.group);
+        if (group != null) group.candidates.remove(snapshot.skeleton);
+    }
+
+    /** Returns the {@code category=value} pairs of a list of elements. */
+    private static String describe(List<Element> elements) {
+        StringBuilder builder = new StringBuilder();
+        for (Element element : elements) {
+            builder.append(element.getCategory().ordinal()).append('=').append(element.getValue()).append('\n');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns the shape of a token's content. Numbers that {@link Parser#searchForIsolatedNumbers()} may take as a video
+     * resolution or an anime year are never variable, since the same slot means something else once they fill it.
+     */
+    private static SlotClass classify(String content) {
+        int length = content.length();
+        if (length >= 1 && length <= 4 && isAsciiDigits(content)) {
+            int number = Integer.parseInt(content);
+            if (number == 480 || number == 720 || number == 1080) return SlotClass.kClassOther;
+            if (number >= ParserNumber.kAnimeYearMin && number <= ParserNumber.kAnimeYearMax) {
+                return SlotClass.kClassOther;
+            }
+            if (length <= 3) return SlotClass.kClassNumber;
+        }
+        if (ParserHelper.isCrc32(content)) return SlotClass.kClassChecksum;
+        if (FastPathMatcher.isPlainWord(content, 0, length)) return SlotClass.kClassWord;
+        return SlotClass.kClassOther;
+    }
+
+    private static boolean isAsciiDigits(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) < '0' || string.charAt(i) > '9') return false;
+        }
+
+        return true;
+    }
+
+    /** The tokens of a filename, as they were before the parser phases ran. */
+    private static class Snapshot {
+        final String group;
+        final String skeleton;
+        final TokenCategory[] categories;
+        final String[] contents;
+        List<Element> expected;
+        Template template;
+
+        private Snapshot(String group, String skeleton, TokenCategory[] categories, String[] contents) {
+            this.group = group;
+            this.skeleton = skeleton;
+            this.categories = categories;
+            this.contents = contents;
+        }
+
+        /** Returns the snapshot of {@code tokens}; null if they don't begin with a bracketed group. */
+        static Snapshot of(List<Token> tokens) {
+            int size = tokens.size();
+            if (size < 3 || size > kMaxTokens || tokens.get(0).getCategory() != kBracket) return null;
+
+            TokenCategory[] categories = new TokenCategory[size];
+            String[] contents = new String[size];
+            StringBuilder skeleton = new StringBuilder(size * 2);
+            StringBuilder group = new StringBuilder();
+            int groupEnd = -1;
+
+            for (int i = 0; i < size; i++) {
+                Token token = tokens.get(i);
+                categories[i] = token.getCategory();
+                contents[i] = token.getContent();
+                skeleton.append((char) ('a' + categories[i].ordinal()));
+                if (categories[i] == kBracket || categories[i] == kDelimiter) skeleton.append(contents[i]);
+
+                if (i > 0 && groupEnd == -1) {
+                    if (categories[i] == kBracket) {
+                        groupEnd = i;
+                    } else {
+                        group.append(contents[i]);
+                    }
+                }
+            }
+
+            if (groupEnd <= 1) return null;
+            return new Snapshot(group.toString(), skeleton.toString(), categories, contents);
+        }
+
+        /**
+         * Builds an element value from the tokens in {@code [begin, end)}, the same way {@link
+         * ParserHelper#buildElement(ElementCategory, boolean, List)} does.
+         */
+        String build(int begin, int end, boolean keepDelimiters) {
+            StringBuilder element = new StringBuilder();
+            for (int i = begin; i < end; i++) {
+                switch (categories[i]) {
+                    case kUnknown:
+                    case kBracket:
+                        element.append(contents[i]);
+                        break;
+                    case kDelimiter: {
+                        String delimiter = contents[i].isEmpty() ? "" : contents[i].substring(0, 1);
+                        if (keepDelimiters) {
+                            element.append(delimiter);
+                        } else if (i + 1 < end) {
+                            element.append(delimiter.equals(",") || delimiter.equals("&") ? delimiter : " ");
+                        }
+                        break;
+                    }
+                }
+            }
+
+            if (keepDelimiters) return element.toString();
+            return StringHelper.trimAny(element.toString(), ParserHelper.kDashesWithSpace);
+        }
+    }
+
+    /** Describes how the value of a single element is taken from a snapshot. */
+    private static class Source {
+        final ElementCategory category;
+        final SourceKind kind;
+        final int begin;
+        final int end;
+        final String constant;
+
+        private Source(ElementCategory category, SourceKind kind, int begin, int end, String constant) {
+            this.category = category;
+            this.kind = kind;
+            this.begin = begin;
+            this.end = end;
+            this.constant = constant;
+        }
+
+        /** Maps every parsed element onto the snapshot's tokens; returns null if that's not possible. */
+        static Source[] derive(List<Element> parsed, Snapshot snapshot) {
+            Source[] recipe = new Source[parsed.size()];
+            for (int i = 0; i < recipe.length; i++) {
+                recipe[i] = derive(parsed.get(i), snapshot);
+                if (recipe[i] == null) return null;
+            }
+
+            return recipe;
+        }
+
+        private static Source derive(Element element, Snapshot snapshot) {
+            String value = element.getValue();
+            String[] contents = snapshot.contents;
+
+            for (int i = 0; i < contents.length; i++) {
+                TokenCategory category = snapshot.categories[i];
+                if ((category == kUnknown || category == kIdentifier) && contents[i].equals(value)) {
+                    return new Source(element.getCategory(), SourceKind.kSourceToken, i, i + 1, null);
+                }
+            }
+
+            ElementCategory category = element.getCategory();
+            if (category == kElementAnimeTitle || category == kElementEpisodeTitle || category == kElementReleaseGroup) {
+                boolean keepDelimiters = category == kElementReleaseGroup;
+                for (int begin = 0; begin < contents.length; begin++) {
+                    if (snapshot.categories[begin] != kUnknown || !value.startsWith(contents[begin])) continue;
+                    for (int end = begin + 2; end <= contents.length; end++) {
+                        if (snapshot.categories[end - 1] == kIdentifier) break;
+                        String built = snapshot.build(begin, end, keepDelimiters);
+                        if (built.equals(value)) {
+                            return new Source(category, SourceKind.kSourceRange, begin, end, null);
+                        }
+                        if (built.length() > value.length()) break;
+                    }
+                }
+
+                return null;
+            }
+
+            return new Source(category, SourceKind.kSourceConstant, 0, 0, value);
+        }
+
+        /** Returns the element for {@code snapshot}. */
+        Element apply(Snapshot snapshot) {
+            switch (kind) {
+                case kSourceToken:
+                    return new Element(category, snapshot.contents[begin]);
+                case kSourceRange:
+                    return new Element(category, snapshot.build(begin, end, category == kElementReleaseGroup));
+                default:
+                    return new Element(category, constant);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Source)) return false;
+            Source source = (Source) o;
+            return begin == source.begin &&
+                    end == source.end &&
+                    category == source.category &&
+                    kind == source.kind &&
+                    Objects.equals(constant, source.constant);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(category, kind, begin, end, constant);
+        }
+    }
+
+    /** A group and skeleton that is being learned, or whose template is active. */
+    private static class Candidate {
+        final String[] contents;
+        final SlotClass[] classes;
+        final boolean[] variable;
+        final Source[] recipe;
+        int count = 1;
+        int misses = 0;
+        long lastUsed;
+        Template template;
+
+        Candidate(Snapshot snapshot, Source[] recipe, long lastUsed) {
+            this.contents = snapshot.contents;
+            this.classes = new SlotClass[contents.length];
+            this.variable = new boolean[contents.length];
+            this.recipe = recipe;
+            this.lastUsed = lastUsed;
+            for (int i = 0; i < contents.length; i++) classes[i] = classify(contents[i]);
+        }
+
+        /** Merges another consistent parse into this candidate; returns false if it's inconsistent. */
+        boolean merge(Snapshot snapshot, Source[] recipe) {
+            if (!Arrays.equals(this.recipe, recipe)) return false;
+            for (int i = 0; i < contents.length; i++) {
+                if (contents[i].equals(snapshot.contents[i])) continue;
+                if (classes[i] == SlotClass.kClassOther || classify(snapshot.contents[i]) != classes[i]) return false;
+                variable[i] = true;
+            }
+
+            count++;
+            return true;
+        }
+    }
+
+    /** An immutable, active template. */
+    private static class Template {
+        final String[] literals;
+        final SlotClass[] classes;
+        final Source[] recipe;
+        final AtomicLong uses = new AtomicLong();
+
+        Template(Candidate candidate) {
+            this.literals = new String[candidate.contents.length];
+            this.classes = candidate.classes.clone();
+            this.recipe = candidate.recipe;
+            for (int i = 0; i < literals.length; i++) {
+                literals[i] = candidate.variable[i] ? null : candidate.contents[i];
+            }
+        }
+
+        /** Returns whether or not the snapshot fits this template. */
+        boolean matches(Snapshot snapshot) {
+            String[] contents = snapshot.contents;
+            if (contents.length != literals.length) return false;
+            for (int i = 0; i < contents.length; i++) {
+                if (literals[i] != null ? !literals[i].equals(contents[i]) : classify(contents[i]) != classes[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /** Returns the elements of the snapshot. */
+        List<Element> apply(Snapshot snapshot) {
+            Element[] elements = new Element[recipe.length];
+            for (int i = 0; i < recipe.length; i++) elements[i] = recipe[i].apply(snapshot);
+            return Arrays.asList(elements);
+        }
+    }
+
+    /** The templates of a single release group, in least recently inserted order. */
+    private static class Group {
+        final Map<String, Candidate> candidates;
+        long lookups = 0;
+
+        Group(int maxTemplates) {
+            this.candidates = new LinkedHashMap<String, Candidate>(maxTemplates * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Candidate> eldest) {
+                    return size() > maxTemplates;
+                }
+            };
+        }
+    }
+}
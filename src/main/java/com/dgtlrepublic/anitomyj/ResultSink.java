@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the results of a bulk parse, in input order, e.g. {@code elementWriter::write}.
+ *
+ * @author Paul Miller
+ */
+public interface ResultSink {
+    /**
+     * Accepts a single result.
+     *
+     * @param filename the anime file name
+     * @param elements the parsed elements; null if the filename couldn't be parsed. Bulk parsers may reuse the list, so
+     *                 it's only valid during the call
+     */
+    void accept(String filename, List<Element> elements) throws IOException;
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parses a filename manifest on several worker processes, to get past the limits of a single JVM(e.g. its garbage
+ * collector) on large machines.
+ * <p>
+ * The manifest is split into shards of {@code shardSize} filenames, which are handed out to the workers as they become
+ * idle, so fast workers take more shards. Results are passed to the {@link ResultSink} in manifest order. A worker that
+ * dies is restarted and its shard is retried; once the queue runs dry, idle workers also take over copies of shards
+ * that run much slower than average, and the first copy to finish wins.
+ * <p>
+ * Workers are started with a command line, and speak the {@link ShardProtocol} over their standard input and output.
+ * By default that's a local JVM running {@link ShardWorker} on the current class path; a command like {@code ssh host
+ * java -cp anitomyJ.jar com.dgtlrepublic.anitomyj.ShardWorker} runs a worker on another node with the same protocol.
+ *
+ * @author Paul Miller
+ */
+public class ShardCoordinator {
+    /** The default number of filenames per shard. */
+    public static final int kDefaultShardSize = 4096;
+
+    /** The number of shards per worker that may be queued or waiting to be written. */
+    private static final int kShardsPerWorker = 4;
+
+    /** The number of times a shard is retried after its worker died. */
+    private static final int kMaxRetries = 3;
+
+    /** The number of times in a row that a worker may fail to start. */
+    private static final int kMaxStartFailures = 3;
+
+    /** Shards that take this many times the average are copied to idle workers. */
+    private static final int kSlowFactor = 4;
+
+    private final List<String> workerCommand;
+    private final int workers;
+    private final int shardSize;
+    private final LongAdder restartCount = new LongAdder();
+    private final LongAdder speculativeCount = new LongAdder();
+
+    /**
+     * Constructs a new coordinator that runs local worker JVMs.
+     *
+     * @param workers   the number of worker processes
+     * @param shardSize the number of filenames per shard
+     */
+    public ShardCoordinator(int workers, int shardSize) {
+        this(defaultWorkerCommand(), workers, shardSize);
+    }
+
+    /**
+     * Constructs a new coordinator.
+     *
+     * @param workerCommand the command line that starts a worker
+     * @param workers       the number of worker processes
+     * @param shardSize     the number of filenames per shard
+     */
+    public ShardCoordinator(List<String> workerCommand, int workers, int shardSize) {
+        if (workerCommand.isEmpty()) throw new IllegalArgumentException("workerCommand is empty");
+        if (workers < 1) throw new IllegalArgumentException("workers must be positive: " + workers);
+        if (shardSize < 1) throw new IllegalArgumentException("shardSize must be positive: " + shardSize);
+        this.workerCommand = Collections.unmodifiableList(new ArrayList<>(workerCommand));
+        this.workers = workers;
+        this.shardSize = shardSize;
+    }
+
+    /** Returns the command line of a local worker JVM, on the class path of the current one. */
+    public static List<String> defaultWorkerCommand() {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return Arrays.asList(java, "-cp", System.getProperty("java.class.path"), ShardWorker.class.getName());
+    }
+
+    /**
+     * Parses every filename of the {@code manifest} on the workers, and passes the results to {@code sink}, in manifest
+     * order. Returns once every result was written and the workers have exited.
+     *
+     * @param manifest the anime file names
+     * @param sink     receives the results, in manifest order, on the calling thread
+     * @return the number of parsed filenames
+     * @throws IOException if the sink failed, or a shard failed on every retry
+     */
+    public long run(Iterator<String> manifest, ResultSink sink) throws IOException, InterruptedException {
+        Run run = new Run();
+        List<Thread> threads = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(run::serve, "anitomyj-shard-worker-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        long count = 0;
+        try {
+            ArrayDeque<Shard> window = new ArrayDeque<>();
+            int nextId = 0;
+            while (true) {
+                while (window.size() < workers * kShardsPerWorker && manifest.hasNext()) {
+                    List<String> filenames = new ArrayList<>(shardSize);
+                    while (filenames.size() < shardSize && manifest.hasNext()) filenames.add(manifest.next());
+                    Shard shard = new Shard(nextId++, filenames);
+                    window.add(shard);
+                    run.queue.add(shard);
+                }
+
+                Shard shard = window.poll();
+                if (shard == null) break;
+                List<List<Element>> results = run.await(shard);
+                for (int i = 0; i < shard.filenames.size(); i++) sink.accept(shard.filenames.get(i), results.get(i));
+                count += results.size();
+            }
+        } finally {
+            run.done = true;
+            for (Thread thread : threads) thread.interrupt();
+            for (Thread thread : threads) thread.join(TimeUnit.SECONDS.toMillis(5));
+
+            /** workers that are still busy with a shard nobody needs anymore */
+            for (Worker worker : run.processes) worker.destroy();
+            for (Thread thread : threads) thread.join();
+        }
+
+        return count;
+    }
+
+    /** Returns the number of worker restarts, over every run. */
+    public long getRestartCount() {
+        return restartCount.sum();
+    }
+
+    /** Returns the number of slow shards that were copied to idle workers, over every run. */
+    public long getSpeculativeCount() {
+        return speculativeCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ShardCoordinator{" +
+                "workers=" + workers +
+                ", shardSize=" + shardSize +
+                ", restartCount=" + getRestartCount() +
+                ", speculativeCount=" + getSpeculativeCount() +
+                '}';
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** A range of the manifest. */
+    private static class Shard {
+        final int id;
+        final List<String> filenames;
+        final CompletableFuture<List<List<Element>>> results = new CompletableFuture<>();
+        final AtomicInteger retries = new AtomicInteger();
+        volatile long startNanos;
+        volatile boolean copied = false;
+
+        Shard(int id, List<String> filenames) {
+            this.id = id;
+            this.filenames = filenames;
+        }
+    }
+
+    /** The state of a single run. */
+    private class Run {
+        final BlockingDeque<Shard> queue = new LinkedBlockingDeque<>();
+        final Set<Shard> running = ConcurrentHashMap.newKeySet();
+        final Set<Worker> processes = ConcurrentHashMap.newKeySet();
+        final AtomicInteger liveWorkers = new AtomicInteger(workers);
+        final LongAdder shardNanos = new LongAdder();
+        final LongAdder shardCount = new LongAdder();
+        volatile boolean done = false;
+
+        /** Waits for the results of {@code shard}. */
+        List<List<Element>> await(Shard shard) throws IOException, InterruptedException {
+            while (true) {
+                if (liveWorkers.get() == 0 && !shard.results.isDone()) throw new IOException("Every worker failed");
+                try {
+                    return shard.results.get(100, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // keep waiting
+                } catch (ExecutionException e) {
+                    throw new IOException("Shard " + shard.id + " failed", e.getCause());
+                }
+            }
+        }
+
+        /** Runs a single worker process, restarting it as needed, until the run is done. */
+        void serve() {
+            Worker worker = null;
+            int startFailures = 0;
+            try {
+                while (!done) {
+                    Shard shard = next();
+                    if (shard == null) continue;
+
+                    try {
+                        if (worker == null) {
+                            worker = new Worker();
+                            processes.add(worker);
+                        }
+                        startFailures = 0;
+                        process(worker, shard);
+                    } catch (IOException e) {
+                        if (worker != null) {
+                            worker.destroy();
+                            processes.remove(worker);
+                            worker = null;
+                            restartCount.increment();
+                        } else {
+                            startFailures++;
+                        }
+
+                        retry(shard, e);
+                        if (startFailures >= kMaxStartFailures) return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // the run is done
+            } finally {
+                liveWorkers.decrementAndGet();
+                if (worker != null) {
+                    worker.shutdown();
+                    processes.remove(worker);
+                }
+            }
+        }
+
+        /** Returns the next shard to process, or a copy of a slow one; null if there's nothing to do yet. */
+        Shard next() throws InterruptedException {
+            Shard shard = queue.poll(50, TimeUnit.MILLISECONDS);
+            if (shard != null) return shard.results.isDone() ? null : shard;
+
+            long count = shardCount.sum();
+            if (count == 0) return null;
+            long threshold = kSlowFactor * (shardNanos.sum() / count);
+            long now = System.nanoTime();
+            for (Shard candidate : running) {
+                if (candidate.copied || candidate.results.isDone() || now - candidate.startNanos < threshold) continue;
+                candidate.copied = true;
+                speculativeCount.increment();
+                return candidate;
+            }
+
+            return null;
+        }
+
+        void process(Worker worker, Shard shard) throws IOException {
+            shard.startNanos = System.nanoTime();
+            running.add(shard);
+            try {
+                List<List<Element>> results = worker.parse(shard);
+                shardNanos.add(System.nanoTime() - shard.startNanos);
+                shardCount.increment();
+                shard.results.complete(results);
+            } finally {
+                if (shard.results.isDone()) running.remove(shard);
+            }
+        }
+
+        void retry(Shard shard, IOException e) {
+            if (shard.results.isDone()) return;
+            if (shard.retries.incrementAndGet() > kMaxRetries) {
+                running.remove(shard);
+                shard.results.completeExceptionally(e);
+            } else {
+                queue.addFirst(shard);
+            }
+        }
+    }
+
+    /** A worker process. */
+    private class Worker {
+        final Process process;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Worker() throws IOException {
+            process = new ProcessBuilder(workerCommand).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            in = new DataInputStream(new BufferedInputStream(process.getInputStream(), 1 << 16));
+            out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream(), 1 << 16));
+            try {
+                ShardProtocol.readHello(in);
+            } catch (IOException e) {
+                destroy();
+                throw e;
+            }
+        }
+
+        List<List<Element>> parse(Shard shard) throws IOException {
+            ShardProtocol.writeRequest(out, shard.id, shard.filenames);
+            int shardId = in.readInt();
+            if (shardId != shard.id) throw new IOException("Expected shard " + shard.id + ", got " + shardId);
+            List<List<Element>> results = ShardProtocol.readResults(in);
+            if (results.size() != shard.filenames.size()) throw new IOException("Incomplete shard " + shard.id);
+            return results;
+        }
+
+        /** Asks the worker to exit; kills it if it doesn't. */
+        void shutdown() {
+            try {
+                ShardProtocol.writeShutdown(out);
+                if (process.waitFor(1, TimeUnit.SECONDS)) return;
+            } catch (IOException e) {
+                // already gone
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            destroy();
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+        }
+    }
+}
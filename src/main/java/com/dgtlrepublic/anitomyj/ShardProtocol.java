@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
+/**
+ * The wire protocol between the {@link ShardCoordinator} and its {@link ShardWorker}s. It only needs a pair of byte
+ * streams, so it works over process pipes as well as sockets:
+ * <pre>
+ * worker hello: int magic, int version, int categoryCount
+ * request:      int shardId, int count, {string filename} * count     (shardId -1 asks the worker to exit)
+ * response:     int shardId, int count, {int elementCount, {byte category, string value} * elementCount} * count
+ * </pre>
+ * Strings are an int length followed by UTF-8 bytes. An element count of -1 means the filename couldn't be parsed.
+ *
+ * @author Paul Miller
+ */
+class ShardProtocol {
+    static final int kMagic = 0x414e5348;
+    static final int kVersion = 1;
+    static final int kShutdown = -1;
+
+    private static final ElementCategory[] kCategories = ElementCategory.values();
+
+    private ShardProtocol() {}
+
+    static void writeHello(DataOutputStream out) throws IOException {
+        out.writeInt(kMagic);
+        out.writeInt(kVersion);
+        out.writeInt(kCategories.length);
+        out.flush();
+    }
+
+    static void readHello(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        int version = in.readInt();
+        int categoryCount = in.readInt();
+        if (magic != kMagic || version != kVersion || categoryCount != kCategories.length) {
+            throw new IOException(String.format("Incompatible worker: magic %08x, version %d, %d categories",
+                                                magic,
+                                                version,
+                                                categoryCount));
+        }
+    }
+
+    static void writeRequest(DataOutputStream out, int shardId, List<String> filenames) throws IOException {
+        out.writeInt(shardId);
+        out.writeInt(filenames.size());
+        for (String filename : filenames) writeString(out, filename);
+        out.flush();
+    }
+
+    static void writeShutdown(DataOutputStream out) throws IOException {
+        out.writeInt(kShutdown);
+        out.writeInt(0);
+        out.flush();
+    }
+
+    /** Reads the filenames of a request. */
+    static List<String> readFilenames(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> filenames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) filenames.add(readString(in));
+        return filenames;
+    }
+
+    static void writeResponse(DataOutputStream out, int shardId, List<List<Element>> results) throws IOException {
+        out.writeInt(shardId);
+        out.writeInt(results.size());
+        for (List<Element> elements : results) {
+            if (elements == null) {
+                out.writeInt(-1);
+                continue;
+            }
+
+            out.writeInt(elements.size());
+            for (Element element : elements) {
+                out.writeByte(element.getCategory().ordinal());
+                writeString(out, element.getValue());
+            }
+        }
+        out.flush();
+    }
+
+    /** Reads the results of a response. */
+    static List<List<Element>> readResults(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<List<Element>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int elementCount = in.readInt();
+            if (elementCount == -1) {
+                results.add(null);
+                continue;
+            }
+
+            List<Element> elements = new ArrayList<>(elementCount);
+            for (int j = 0; j < elementCount; j++) {
+                int category = in.readUnsignedByte();
+                if (category >= kCategories.length) throw new IOException("Invalid category: " + category);
+                elements.add(new Element(kCategories[category], readString(in)));
+            }
+            results.add(elements);
+        }
+
+        return results;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new IOException("Invalid string length: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return StringHelper.fromUtf8(bytes, 0, length);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The worker side of the {@link ShardCoordinator}: parses the shards it receives on the standard input, and writes the
+ * results to the standard output, using the {@link ShardProtocol}. Diagnostics go to the standard error.
+ *
+ * @author Paul Miller
+ */
+public class ShardWorker {
+    private ShardWorker() {}
+
+    public static void main(String[] args) {
+        try {
+            serve(new FileInputStream(FileDescriptor.in), new FileOutputStream(FileDescriptor.out));
+        } catch (IOException e) {
+            System.err.println("anitomyj worker: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Serves shards until the coordinator asks the worker to exit, or closes the input.
+     *
+     * @param in  the requests
+     * @param out the responses
+     */
+    public static void serve(InputStream in, OutputStream out) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        ShardProtocol.writeHello(output);
+
+        while (true) {
+            int shardId;
+            try {
+                shardId = input.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+
+            List<String> filenames = ShardProtocol.readFilenames(input);
+            if (shardId == ShardProtocol.kShutdown) return;
+
+            List<List<Element>> results = new ArrayList<>(filenames.size());
+            for (String filename : filenames) {
+                try {
+                    results.add(AnitomyJ.parse(filename));
+                } catch (RuntimeException e) {
+                    results.add(null);
+                }
+            }
+
+            ShardProtocol.writeResponse(output, shardId, results);
+        }
+    }
+}
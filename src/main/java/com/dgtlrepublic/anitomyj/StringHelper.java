@@ -9,6 +9,10 @@
 
 package com.dgtlrepublic.anitomyj;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.StringUtils;
@@ -64,13 +68,27 @@ public class StringHelper {
         return StringUtils.isNumeric(string);
     }
 
-    /** Returns the int value of the {@code string}; 0 otherwise. */
+    /**
+     * Returns the int value of the {@code string}; 0 otherwise. Accepts the same strings as {@link Integer#parseInt},
+     * without throwing for the ones it rejects.
+     */
     public static int stringToInt(String string) {
-        try {
-            return Integer.parseInt(string);
-        } catch (NullPointerException | NumberFormatException e) {
-            return 0;
+        if (string == null || string.isEmpty()) return 0;
+
+        boolean negative = string.charAt(0) == '-';
+        int begin = negative || string.charAt(0) == '+' ? 1 : 0;
+        if (begin == string.length()) return 0;
+
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for (int i = begin; i < string.length(); i++) {
+            int digit = Character.digit(string.charAt(i), 10);
+            if (digit < 0) return 0;
+            value = value * 10 + digit;
+            if (value > limit) return 0;
         }
+
+        return (int) (negative ? -value : value);
     }
 
     /** Returns the trimmed version of the string remove <i>any</i> of the {@code trimChars}. */
@@ -104,5 +122,279 @@ public class StringHelper {
 
         return -1;
     }
-}
 
+    /**
+     * Returns the string of the UTF-8 encoded {@code bytes}.
+     *
+     * @param bytes  the UTF-8 encoded bytes
+     * @param offset the index of the first byte
+     * @param length the number of bytes
+     * @return the decoded string
+     */
+    public static String fromUtf8(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the string of the UTF-8 encoded bytes between the {@code buffer}'s position and limit. The position of the
+     * buffer is left untouched.
+     */
+    public static String fromUtf8(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return fromUtf8(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return fromUtf8(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Decodes the percent-encoding and the HTML character references of a {@code string} in a single pass, e.g.
+     * {@code "Tiger%20&amp;%20Bunny"} becomes {@code "Tiger & Bunny"}. Percent-escapes are decoded as UTF-8; a byte
+     * that doesn't start a valid UTF-8 sequence is decoded on its own, as ISO-8859-1(e.g. "%E9" becomes "é"). The named
+     * references {@code &amp; &lt; &gt; &quot; &apos; &nbsp;} and numeric references are supported; {@code &nbsp;}
+     * becomes a plain space.
+     * <p>
+     * Anything that isn't a complete escape is left as is, so a lone {@code '&'}(e.g. "Tiger & Bunny") or a {@code '+'}
+     * keeps its meaning as a delimiter; unlike form decoding, {@code '+'} isn't turned into a space. Strings without
+     * escapes are returned as is, without being copied.
+     *
+     * @param string the string to decode
+     * @return the decoded string
+     */
+    public static String decodeEscapes(String string) {
+        return decode(string, true, false);
+    }
+
+    /** Returns whether or not every character of {@code string} is ASCII. */
+    public static boolean isAsciiString(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) >= 0x80) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Folds the fullwidth and compatibility characters of a {@code string} into their plain forms, e.g. {@code
+     * "［Ｇｒｏｕｐ］　０１"} becomes {@code "[Group] 01"}. Every character that NFKC normalization maps to a single
+     * other character is folded, in a single pass; characters that NFKC would expand(e.g. "½") are left as is. Halfwidth
+     * (semi-)voiced sound marks are composed with the kana before them, like NFKC does(e.g. "ｶﾞ" becomes "ガ"). ASCII
+     * strings, and strings without anything to fold, are returned as is, without being copied.
+     *
+     * @param string the string to fold
+     * @return the folded string
+     */
+    public static String foldWidth(String string) {
+        return decode(string, false, true);
+    }
+
+    /**
+     * Decodes the escapes of a {@code string}(see {@link #decodeEscapes(String)}) and/or folds its characters(see
+     * {@link #foldWidth(String)}), in a single pass that only copies the string if anything changes. Decoded characters
+     * are folded as well.
+     *
+     * @param string        the string to decode
+     * @param decodeEscapes whether or not to decode escapes
+     * @param foldWidth     whether or not to fold characters
+     * @return the decoded string
+     */
+    static String decode(String string, boolean decodeEscapes, boolean foldWidth) {
+        StringBuilder decoded = null;
+        for (int i = 0; i < string.length(); ) {
+            char c = string.charAt(i);
+            if (decodeEscapes && c == '%' && isPercentEscape(string, i)) {
+                if (decoded == null) decoded = new StringBuilder(string.length()).append(string, 0, i);
+                while (isPercentEscape(string, i)) i = appendPercentEscape(decoded, string, i, foldWidth);
+                continue;
+            }
+
+            if (decodeEscapes && c == '&') {
+                int end = i + 2;
+                while (end < string.length() && end - i <= 10 && string.charAt(end) != ';') end++;
+                int codePoint = end < string.length() && string.charAt(end) == ';' ? decodeReference(string, i + 1, end)
+                                                                                    : -1;
+                if (codePoint != -1) {
+                    if (decoded == null) decoded = new StringBuilder(string.length()).append(string, 0, i);
+                    append(decoded, codePoint, foldWidth);
+                    i = end + 1;
+                    continue;
+                }
+            }
+
+            if (foldWidth && c >= 0x80 && decoded == null && WidthFolding.fold(c) != c) {
+                decoded = new StringBuilder(string.length()).append(string, 0, i);
+            }
+            if (decoded != null) append(decoded, c, foldWidth);
+            i++;
+        }
+
+        return decoded == null ? string : decoded.toString();
+    }
+
+    /** Returns whether or not a percent-escape(e.g. "%20") starts at {@code index}. */
+    private static boolean isPercentEscape(String string, int index) {
+        return index + 2 < string.length()
+                && string.charAt(index) == '%'
+                && isHexadecimalChar(string.charAt(index + 1))
+                && isHexadecimalChar(string.charAt(index + 2));
+    }
+
+    /**
+     * Appends the character of the UTF-8 sequence of percent-escapes that starts at {@code index}; just the character of
+     * its first byte, as ISO-8859-1, if it isn't a valid sequence.
+     *
+     * @return the index after the decoded escapes
+     */
+    private static int appendPercentEscape(StringBuilder decoded, String string, int index, boolean foldWidth) {
+        int lead = percentEscapeValue(string, index);
+        int length = lead < 0x80 ? 1 : lead < 0xc2 ? 0 : lead < 0xe0 ? 2 : lead < 0xf0 ? 3 : lead < 0xf5 ? 4 : 0;
+        int codePoint = length == 1 ? lead : lead & (0x3f >> (length - 1));
+        for (int i = 1; i < length; i++) {
+            int offset = index + 3 * i;
+            int next = isPercentEscape(string, offset) ? percentEscapeValue(string, offset) : -1;
+
+            /** reject continuation bytes that are missing, overlong, surrogates or beyond U+10FFFF */
+            int min = i == 1 && lead == 0xe0 ? 0xa0 : i == 1 && lead == 0xf0 ? 0x90 : 0x80;
+            int max = i == 1 && lead == 0xed ? 0x9f : i == 1 && lead == 0xf4 ? 0x8f : 0xbf;
+            if (next < min || next > max) {
+                length = 0;
+                break;
+            }
+            codePoint = codePoint << 6 | next & 0x3f;
+        }
+
+        if (length == 0) {
+            append(decoded, lead, foldWidth);
+            return index + 3;
+        }
+
+        append(decoded, codePoint, foldWidth);
+        return index + 3 * length;
+    }
+
+    /** Appends a {@code codePoint}, folded if {@code foldWidth} is set. */
+    private static void append(StringBuilder decoded, int codePoint, boolean foldWidth) {
+        if (!foldWidth || codePoint < 0x80 || codePoint > Character.MAX_VALUE) {
+            decoded.appendCodePoint(codePoint);
+            return;
+        }
+
+        char folded = WidthFolding.fold((char) codePoint);
+        int last = decoded.length() - 1;
+        if ((codePoint == '\uFF9E' || codePoint == '\uFF9F') && last >= 0) {
+            /** compose halfwidth (semi-)voiced sound marks with the kana before them, e.g. "ｶﾞ" */
+            char composed = WidthFolding.compose(decoded.charAt(last), folded);
+            if (composed != 0) {
+                decoded.setCharAt(last, composed);
+                return;
+            }
+        }
+
+        decoded.append(folded);
+    }
+
+    /** Returns the byte value of the percent-escape at {@code index}. */
+    private static int percentEscapeValue(String string, int index) {
+        return Character.digit(string.charAt(index + 1), 16) << 4 | Character.digit(string.charAt(index + 2), 16);
+    }
+
+    /** Returns the code point of the character reference between '&' and ';'; -1 if it isn't one. */
+    private static int decodeReference(String string, int begin, int end) {
+        if (string.charAt(begin) == '#') {
+            boolean hex = begin + 1 < end && (string.charAt(begin + 1) == 'x' || string.charAt(begin + 1) == 'X');
+            int digits = hex ? begin + 2 : begin + 1;
+            if (digits == end) return -1;
+
+            int codePoint = 0;
+            for (int i = digits; i < end; i++) {
+                int digit = Character.digit(string.charAt(i), hex ? 16 : 10);
+                if (digit == -1 || codePoint > Character.MAX_CODE_POINT) return -1;
+                codePoint = codePoint * (hex ? 16 : 10) + digit;
+            }
+
+            boolean valid = codePoint > 0 && codePoint <= Character.MAX_CODE_POINT
+                    && (codePoint < Character.MIN_SURROGATE || codePoint > Character.MAX_SURROGATE);
+            return valid ? codePoint : -1;
+        }
+
+        switch (string.substring(begin, end)) {
+            case "amp":
+                return '&';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            case "nbsp":
+                return ' ';
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * The lookup tables of {@link #foldWidth(String)}, built from the NFKC mappings. The folding table is split into
+     * pages of 256 characters, which are only built once a character of theirs is folded; blocks without any mappings
+     * (e.g. CJK ideographs and Hangul syllables) are never built.
+     */
+    private static class WidthFolding {
+        private static final AtomicReferenceArray<char[]> kPages = new AtomicReferenceArray<>(256);
+
+        /** Returns the folded form of {@code c}; {@code c} itself if it has none. */
+        static char fold(char c) {
+            if (c < 0x80 || (c >= '\u3400' && c < '\uA000') || (c >= '\uAC00' && c < '\uF900')) return c;
+
+            char[] page = kPages.get(c >> 8);
+            if (page == null) {
+                page = buildPage(c >> 8);
+                kPages.set(c >> 8, page);
+            }
+            return page[c & 0xff];
+        }
+
+        /** Returns the kana {@code base} composed with the (semi-)voiced sound {@code mark}; 0 if there's none. */
+        static char compose(char base, char mark) {
+            if (base < '\u3040' || base > '\u30ff') return 0;
+            return (mark == '\u3099' ? KanaComposition.kVoiced : KanaComposition.kSemiVoiced)[base - '\u3040'];
+        }
+
+        private static char[] buildPage(int index) {
+            char[] page = new char[256];
+            for (int i = 0; i < page.length; i++) {
+                char c = (char) (index << 8 | i);
+                page[i] = c;
+                if (c < 0x80 || Character.isSurrogate(c)) continue;
+                String normalized = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFKC);
+                if (normalized.length() == 1) page[i] = normalized.charAt(0);
+            }
+
+            return page;
+        }
+    }
+
+    /** The compositions of the hiragana and katakana with the combining (semi-)voiced sound marks, built on first use. */
+    private static class KanaComposition {
+        static final char[] kVoiced = build('\u3099');
+        static final char[] kSemiVoiced = build('\u309A');
+
+        private static char[] build(char mark) {
+            char[] table = new char[0x30ff - 0x3040 + 1];
+            for (int i = 0; i < table.length; i++) {
+                String composed = Normalizer.normalize(new String(new char[]{(char) (0x3040 + i), mark}),
+                                                       Normalizer.Form.NFC);
+                if (composed.length() == 1) table[i] = composed.charAt(0);
+            }
+
+            return table;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A two tier parser. The first tier recognizes the most common filename templates(e.g.
+ * {@code "[Group] Title - 01 [1080p][ABCD1234].mkv"}) in a single pass; everything else falls back to the full {@link
+ * AnitomyJ#parse(String)}. Both tiers produce identical results.
+ * <p>
+ * This class is thread-safe, and keeps count of how often each tier was used.
+ *
+ * @author Paul Miller
+ */
+public class TieredParser {
+    private final Options options = new Options();
+    private final LongAdder fastPathCount = new LongAdder();
+    private final LongAdder fallbackCount = new LongAdder();
+
+    /**
+     * Parses an anime {@code filename} into its constituent elements.
+     *
+     * @param filename the anime file name
+     * @return the list of parsed elements
+     */
+    public List<Element> parse(String filename) {
+        List<Element> elements = parseFastPath(filename);
+        if (elements != null) return elements;
+
+        fallbackCount.increment();
+        return AnitomyJ.parse(filename);
+    }
+
+    /**
+     * Parses an anime {@code filename} using the first tier only.
+     *
+     * @param filename the anime file name
+     * @return the list of parsed elements; null if the filename doesn't fit one of the common templates
+     */
+    public List<Element> parseFastPath(String filename) {
+        List<Element> elements = FastPathMatcher.match(filename, options);
+        if (elements != null) fastPathCount.increment();
+        return elements;
+    }
+
+    /** Returns the number of filenames that were parsed by the first tier. */
+    public long getFastPathCount() {
+        return fastPathCount.sum();
+    }
+
+    /** Returns the number of filenames that fell back to the full parser. */
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    /** Resets the tier counters. */
+    public void resetCounters() {
+        fastPathCount.reset();
+        fallbackCount.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "TieredParser{" +
+                "fastPathCount=" + getFastPathCount() +
+                ", fallbackCount=" + getFallbackCount() +
+                '}';
+    }
+}
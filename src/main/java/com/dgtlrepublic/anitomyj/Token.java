@@ -42,7 +42,7 @@ import org.apache.commons.collections.CollectionUtils;
  * @author Paul Miller
  * @author Eren Okka
  */
-class Token {
+class Token implements TokenView {
     /** The category of the token */
     enum TokenCategory {
         kUnknown,
@@ -80,6 +80,7 @@ class Token {
 
     private TokenCategory category;
     private String content;
+    private TokenShape shape;
     private final boolean enclosed;
 
     /**
@@ -92,6 +93,7 @@ class Token {
     public Token(TokenCategory category, String content, boolean enclosed) {
         this.category = category;
         this.content = content;
+        this.shape = TokenShape.of(content);
         this.enclosed = enclosed;
     }
 
@@ -106,6 +108,7 @@ class Token {
     }
 
     /** Returns the token content. */
+    @Override
     public String getContent() {
         return content;
     }
@@ -113,13 +116,41 @@ class Token {
     /** Sets the token content */
     public void setContent(String content) {
         this.content = content;
+        this.shape = TokenShape.of(content);
+    }
+
+    /** Returns the shape of the token content. */
+    @Override
+    public TokenShape getShape() {
+        return shape;
     }
 
     /** Returns whether or not the token is enclosed in braces. */
+    @Override
     public boolean isEnclosed() {
         return enclosed;
     }
 
+    @Override
+    public boolean isBracket() {
+        return category == kBracket;
+    }
+
+    @Override
+    public boolean isDelimiter() {
+        return category == kDelimiter;
+    }
+
+    @Override
+    public boolean isIdentifier() {
+        return category == kIdentifier;
+    }
+
+    @Override
+    public boolean isUnknown() {
+        return category == kUnknown;
+    }
+
     /**
      * Validates a token against the {@code flags}. The {@code flags} is used as a search parameter.
      *
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementUnknown;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+import com.dgtlrepublic.anitomyj.KeywordManager.KeywordOptions;
+
+/**
+ * A bounded, concurrent memo table of token classifications. Words such as "01", "1080p", "x264", "BD" or "v2" show up
+ * in almost every filename; their classification(keyword lookup, numeric, CRC32, resolution, and the groups of every
+ * number pattern they match) only depends on the word itself, so it's computed once and shared by every parse.
+ * <p>
+ * The regular expression patterns are matched lazily: a classification only holds the results of the patterns that
+ * were actually tried on its word. Words longer than {@value #kMaxWordLength} characters(e.g. titles) aren't cached.
+ * Once the table holds {@code maxEntries} words, it's emptied and starts over, which keeps lookups lock-free. This class
+ * is thread-safe.
+ *
+ * @author Paul Miller
+ */
+public class TokenClassifier {
+    public static final int kDefaultMaxEntries = 16 * 1024;
+
+    /** Longer words are classified, but not cached. */
+    static final int kMaxWordLength = 32;
+
+    /** The number patterns, precompiled. */
+    enum TokenPattern {
+        kPatternSingleEpisode("(\\d{1,3})[vV](\\d)", 0),
+        kPatternMultiEpisode("(\\d{1,3})(?:[vV](\\d))?[-~&+](\\d{1,3})(?:[vV](\\d))?", 0),
+        kPatternSeasonAndEpisode("S?(\\d{1,2})(?:-S?(\\d{1,2}))?(?:x|[ ._-x]?E)(\\d{1,3})(?:-E?(\\d{1,3}))?",
+                                 Pattern.CASE_INSENSITIVE),
+        kPatternFractionalEpisode("\\d+\\.5", Pattern.CASE_INSENSITIVE),
+        kPatternNumberSign("#(\\d{1,3})(?:[-~&+](\\d{1,3}))?(?:[vV](\\d))?", 0),
+        kPatternJapaneseCounter("(\\d{1,3})\u8A71", 0),
+        kPatternSingleVolume("(\\d{1,2})[vV](\\d)", 0),
+        kPatternMultiVolume("(\\d{1,2})[-~&+](\\d{1,2})(?:[vV](\\d))?", 0);
+
+        final Pattern pattern;
+
+        TokenPattern(String regex, int flags) {
+            this.pattern = Pattern.compile(regex, flags);
+        }
+    }
+
+    private static final TokenClassifier instance = new TokenClassifier(kDefaultMaxEntries);
+    private static final KeywordOptions kDefaultKeywordOptions = new KeywordOptions();
+    private static final String[] kNoMatch = new String[0];
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Classification> table = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder patternHitCount = new LongAdder();
+    private final LongAdder patternMissCount = new LongAdder();
+    private final LongAdder resetCount = new LongAdder();
+
+    /**
+     * Constructs a new classifier.
+     *
+     * @param maxEntries the maximum number of words to remember
+     */
+    public TokenClassifier(int maxEntries) {
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        this.maxEntries = maxEntries;
+    }
+
+    /** Returns the classifier that the parser uses. */
+    public static TokenClassifier getInstance() {
+        return instance;
+    }
+
+    /** Enables or disables the memo table; a disabled classifier classifies every word from scratch. */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) table.clear();
+    }
+
+    /** Returns whether or not the memo table is enabled. */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Returns the number of classifications that were served by the table. */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /** Returns the number of classifications that had to be computed. */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /** Returns the fraction of classifications that were served by the table; 0 if there were none. */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    /** Returns the number of pattern matches that were served by the table. */
+    public long getPatternHitCount() {
+        return patternHitCount.sum();
+    }
+
+    /** Returns the number of pattern matches that had to be computed. */
+    public long getPatternMissCount() {
+        return patternMissCount.sum();
+    }
+
+    /** Returns the number of times the table was full, and emptied. */
+    public long getResetCount() {
+        return resetCount.sum();
+    }
+
+    /** Returns the number of remembered words. */
+    public int size() {
+        return table.size();
+    }
+
+    /** Forgets every word, and resets the counters. */
+    public void clear() {
+        table.clear();
+        hitCount.reset();
+        missCount.reset();
+        patternHitCount.reset();
+        patternMissCount.reset();
+        resetCount.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "TokenClassifier{" +
+                "size=" + size() +
+                ", hitCount=" + getHitCount() +
+                ", missCount=" + getMissCount() +
+                ", patternHitCount=" + getPatternHitCount() +
+                ", patternMissCount=" + getPatternMissCount() +
+                ", resetCount=" + getResetCount() +
+                '}';
+    }
+
+    /**
+     * Returns the classification of a {@code word}.
+     *
+     * @param word the word, trimmed of spaces and dashes
+     */
+    Classification classify(String word) {
+        if (!enabled || word.length() > kMaxWordLength) return new Classification(word);
+
+        Classification classification = table.get(word);
+        if (classification != null) {
+            hitCount.increment();
+            return classification;
+        }
+
+        missCount.increment();
+        classification = new Classification(word);
+        if (table.size() >= maxEntries) {
+            table.clear();
+            resetCount.increment();
+        }
+        Classification existing = table.putIfAbsent(word, classification);
+        return existing != null ? existing : classification;
+    }
+
+    /**
+     * Matches a {@code word} against a number {@code pattern}.
+     *
+     * @param pattern the pattern
+     * @param word    the word
+     * @return the groups of the match(null for groups that didn't participate); null if the word doesn't match
+     */
+    String[] match(TokenPattern pattern, String word) {
+        return classify(word).match(pattern);
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** The classification of a single word. Immutable, except for the lazily matched patterns. */
+    final class Classification {
+        private final String word;
+        private final boolean numeric;
+        private final boolean crc32;
+        private final boolean resolution;
+        private final ElementCategory keywordCategory;
+        private final KeywordOptions keywordOptions;
+        private final AtomicReferenceArray<String[]> matches =
+                new AtomicReferenceArray<>(TokenPattern.values().length);
+
+        Classification(String word) {
+            this.word = word;
+            TokenShape shape = TokenShape.of(word);
+            this.numeric = shape.isNumeric();
+            this.crc32 = shape.isCrc32();
+            this.resolution = shape.isResolution();
+
+            AtomicReference<ElementCategory> category = new AtomicReference<>(kElementUnknown);
+            AtomicReference<KeywordOptions> options = new AtomicReference<>(kDefaultKeywordOptions);
+            if (KeywordManager.getInstance().findAndSet(KeywordManager.normalzie(word), category, options)) {
+                this.keywordCategory = category.get();
+                this.keywordOptions = options.get();
+            } else {
+                this.keywordCategory = null;
+                this.keywordOptions = kDefaultKeywordOptions;
+            }
+        }
+
+        /** Returns whether or not the word is numeric. */
+        boolean isNumeric() {
+            return numeric;
+        }
+
+        /** Returns whether or not the word is a CRC32 checksum. */
+        boolean isCrc32() {
+            return crc32;
+        }
+
+        /** Returns whether or not the word is a video resolution. */
+        boolean isResolution() {
+            return resolution;
+        }
+
+        /** Returns the category of the keyword; null if the word isn't a keyword. */
+        ElementCategory getKeywordCategory() {
+            return keywordCategory;
+        }
+
+        /** Returns the options of the keyword; the default options if the word isn't a keyword. */
+        KeywordOptions getKeywordOptions() {
+            return keywordOptions;
+        }
+
+        /** Returns the groups of the match of {@code pattern}; null if the word doesn't match. */
+        String[] match(TokenPattern pattern) {
+            String[] groups = matches.get(pattern.ordinal());
+            if (groups != null) {
+                patternHitCount.increment();
+                return groups == kNoMatch ? null : groups;
+            }
+
+            patternMissCount.increment();
+            Matcher matcher = pattern.pattern.matcher(word);
+            if (matcher.matches()) {
+                groups = new String[matcher.groupCount() + 1];
+                for (int i = 0; i < groups.length; i++) groups[i] = matcher.group(i);
+            } else {
+                groups = kNoMatch;
+            }
+
+            matches.set(pattern.ordinal(), groups);
+            return groups == kNoMatch ? null : groups;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+/**
+ * The shape of a token's content: its character counts, the index of its first digit, and its integer value, collected
+ * in a single scan when the token is created. The parser asks the same questions of a token many times(is it numeric,
+ * a checksum, a resolution, mostly Latin, ...), and the answers never change until its content does.
+ * <p>
+ * Every answer is the same as the one of the matching {@link StringHelper} or {@link ParserHelper} method.
+ *
+ * @author Paul Miller
+ */
+public final class TokenShape {
+    private static final int kFlagNumeric = 1;
+    private static final int kFlagAlphanumeric = 1 << 1;
+    private static final int kFlagHexadecimal = 1 << 2;
+    private static final int kFlagResolution = 1 << 3;
+
+    private static final TokenShape kShapeEmpty = new TokenShape(0, 0, 0, 0, -1, 0, 0);
+
+    private final int length;
+    private final int digitCount;
+    private final int letterCount;
+    private final int latinCount;
+    private final int firstDigit;
+    private final int value;
+    private final int flags;
+
+    private TokenShape(int length, int digitCount, int letterCount, int latinCount, int firstDigit, int value,
+                       int flags) {
+        this.length = length;
+        this.digitCount = digitCount;
+        this.letterCount = letterCount;
+        this.latinCount = latinCount;
+        this.firstDigit = firstDigit;
+        this.value = value;
+        this.flags = flags;
+    }
+
+    /** Returns the shape of {@code string}. */
+    public static TokenShape of(String string) {
+        if (string == null || string.isEmpty()) return kShapeEmpty;
+
+        int length = string.length();
+        int digitCount = 0;
+        int letterCount = 0;
+        int latinCount = 0;
+        int hexCount = 0;
+        int firstDigit = -1;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (Character.isDigit(c)) {
+                if (firstDigit == -1) firstDigit = i;
+                digitCount++;
+            } else if (Character.isLetter(c)) {
+                letterCount++;
+            }
+            if (StringHelper.isHexadecimalChar(c)) hexCount++;
+            if (StringHelper.isLatinChar(c)) latinCount++;
+        }
+
+        int flags = 0;
+        if (digitCount == length) flags |= kFlagNumeric;
+        if (digitCount + letterCount == length) flags |= kFlagAlphanumeric;
+        if (hexCount == length) flags |= kFlagHexadecimal;
+
+        // Both resolution forms(###x### and ###p) need at least three digits
+        if (digitCount >= 3 && ParserHelper.isResolution(string)) flags |= kFlagResolution;
+
+        // Integer.parseInt only accepts digits and a leading sign
+        int value = digitCount > 0 && digitCount >= length - 1 ? StringHelper.stringToInt(string) : 0;
+
+        return new TokenShape(length, digitCount, letterCount, latinCount, firstDigit, value, flags);
+    }
+
+    /** Returns the number of digits. */
+    public int getDigitCount() {
+        return digitCount;
+    }
+
+    /** Returns the number of letters. */
+    public int getLetterCount() {
+        return letterCount;
+    }
+
+    /** Returns the ratio of Latin characters; 0 for an empty string. */
+    public double getLatinRatio() {
+        return length > 0 ? (double) latinCount / length : 0;
+    }
+
+    /** Returns the index of the first digit; -1 otherwise. See {@link ParserHelper#indexOfFirstDigit(String)}. */
+    public int indexOfFirstDigit() {
+        return firstDigit;
+    }
+
+    /** Returns the integer value; 0 otherwise. See {@link StringHelper#stringToInt(String)}. */
+    public int toInt() {
+        return value;
+    }
+
+    /** See {@link StringHelper#isNumericString(String)}. */
+    public boolean isNumeric() {
+        return (flags & kFlagNumeric) != 0;
+    }
+
+    /** See {@link StringHelper#isAlphanumericString(String)}. */
+    public boolean isAlphanumeric() {
+        return (flags & kFlagAlphanumeric) != 0;
+    }
+
+    /** See {@link StringHelper#isHexadecimalString(String)}. */
+    public boolean isHexadecimal() {
+        return (flags & kFlagHexadecimal) != 0;
+    }
+
+    /** See {@link ParserHelper#isCrc32(String)}. */
+    public boolean isCrc32() {
+        return length == 8 && isHexadecimal();
+    }
+
+    /** See {@link ParserHelper#isResolution(String)}. */
+    public boolean isResolution() {
+        return (flags & kFlagResolution) != 0;
+    }
+
+    /**
+     * See {@link StringHelper#isMostlyLatinString(String)}, which is true as soon as the string has a single Latin
+     * character, rather than when the Latin ratio reaches one half.
+     */
+    public boolean isMostlyLatin() {
+        return latinCount > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenShape{" +
+                "length=" + length +
+                ", digitCount=" + digitCount +
+                ", letterCount=" + letterCount +
+                ", latinCount=" + latinCount +
+                ", firstDigit=" + firstDigit +
+                ", value=" + value +
+                ", flags=" + flags +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+/**
+ * A read-only view of a token, as seen by a {@link ParserStage}. Stages can inspect the tokens of the current parse
+ * through {@link Parser#getTokenViews()}, and claim an unknown one as an element with {@link Parser#identify(TokenView,
+ * Element.ElementCategory)}; only the built-in phases can change them otherwise.
+ *
+ * @author Paul Miller
+ */
+public interface TokenView {
+    /** Returns the token content. */
+    String getContent();
+
+    /** Returns the shape of the token content. */
+    TokenShape getShape();
+
+    /** Returns whether or not the token is enclosed in braces. */
+    boolean isEnclosed();
+
+    /** Returns whether or not the token is a bracket. */
+    boolean isBracket();
+
+    /** Returns whether or not the token is a delimiter. */
+    boolean isDelimiter();
+
+    /** Returns whether or not the token was identified(e.g as a keyword or an element). */
+    boolean isIdentifier();
+
+    /** Returns whether or not the token hasn't been identified yet. */
+    boolean isUnknown();
+}
@@ -12,7 +12,10 @@ package com.dgtlrepublic.anitomyj;
 import static com.dgtlrepublic.anitomyj.Token.TokenFlag.kFlagValid;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
@@ -37,6 +40,11 @@ public class Tokenizer {
     private final List<Element> elements;
     private final Options options;
     private final List<Token> tokens;
+    private final List<int[]> unstableRanges = new ArrayList<>();
+    private int maxTokenCount = Integer.MAX_VALUE;
+    private boolean hasDeadline = false;
+    private long deadline;
+    private boolean truncated = false;
     private static final List<Pair<String, String>> brackets;
 
     static {
@@ -71,6 +79,31 @@ public class Tokenizer {
         return !tokens.isEmpty();
     }
 
+    /**
+     * Stops tokenizing once there are more than {@code maxTokenCount} tokens, or once {@link System#nanoTime()} passes
+     * {@code deadline}.
+     *
+     * @param maxTokenCount the maximum number of tokens
+     * @param hasDeadline   whether or not there's a deadline
+     * @param deadline      the deadline, in {@link System#nanoTime()} units
+     */
+    void setBudget(int maxTokenCount, boolean hasDeadline, long deadline) {
+        this.maxTokenCount = maxTokenCount;
+        this.hasDeadline = hasDeadline;
+        this.deadline = deadline;
+    }
+
+    /** Returns whether or not tokenizing was stopped by the budget. */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /** Returns whether or not the budget is used up; marks the tokenizer as truncated if it is. */
+    private boolean isOverBudget() {
+        if (tokens.size() > maxTokenCount || (hasDeadline && System.nanoTime() - deadline >= 0)) truncated = true;
+        return truncated;
+    }
+
     /**
      * Adds a token to the internal list of tokens.
      *
@@ -127,7 +160,7 @@ public class Tokenizer {
         };
 
         boolean isBracketOpen = false;
-        for (int i = 0; i < filename.length(); ) {
+        for (int i = 0; i < filename.length() && !isOverBudget(); ) {
             int foundIdx;
             if (!isBracketOpen) {
                 /** look for opening brace */
@@ -199,13 +232,14 @@ public class Tokenizer {
      */
     private void tokenizeByDelimiters(boolean enclosed, TokenRange range) {
         String delimiters = getDelimiters(range);
+        int firstToken = tokens.size();
 
         if (delimiters.isEmpty()) {
             addToken(TokenCategory.kUnknown, enclosed, range);
             return;
         }
 
-        for (int i = range.getOffset(), end = range.getOffset() + range.getSize(); i < end; ) {
+        for (int i = range.getOffset(), end = range.getOffset() + range.getSize(); i < end && !isOverBudget(); ) {
             Integer found = IntStream.range(i, Math.min(end, filename.length()))
                     .filter(c -> StringUtils.containsAny(String.valueOf(filename.charAt(c)), delimiters))
                     .findFirst()
@@ -226,12 +260,46 @@ public class Tokenizer {
             }
         }
 
-        validateDelimiterTokens();
+        validateDelimiterTokens(firstToken);
     }
 
-    /** Validates tokens(e.g make sure certain words delimited by certain tokens aren't spit). */
+    /**
+     * Validates tokens(e.g make sure certain words delimited by certain tokens aren't spit).
+     * <p>
+     * Every time a range is tokenized, the tokens of all ranges so far are validated again. Ranges are always separated
+     * by a bracket or an identifier, so each range can be validated on its own; and once a pass leaves a range
+     * unchanged, every later pass would too. Only the ranges that changed during their last pass are revisited.
+     *
+     * @param firstToken the index of the first token added by the current range
+     */
+    private void validateDelimiterTokens(int firstToken) {
+        unstableRanges.add(new int[] {firstToken, tokens.size()});
+
+        int firstChange = -1;
+        for (Iterator<int[]> itr = unstableRanges.iterator(); itr.hasNext(); ) {
+            int[] range = itr.next();
+            if (!validateDelimiterTokens(range[0], range[1])) {
+                itr.remove();
+            } else if (firstChange == -1) {
+                firstChange = range[0];
+            }
+        }
+
+        if (firstChange != -1) removeInvalidTokens(firstChange);
+    }
+
+    /**
+     * Validates the tokens of a single range.
+     *
+     * @param begin the first token of the range. Inclusive.
+     * @param end   the last token of the range. Exclusive.
+     * @return true if any token was changed
+     */
     @SuppressWarnings("CodeBlock2Expr")
-    private void validateDelimiterTokens() {
+    private boolean validateDelimiterTokens(int begin, int end) {
+        /** appended contents are collected, and only set once the pass is done */
+        Map<Token, StringBuilder> appended = new IdentityHashMap<>();
+
         Function<Result, Boolean> isDelimiterToken = r -> {
             return r != null && r.token != null && r.token.getCategory() == TokenCategory.kDelimiter;
         };
@@ -243,15 +311,16 @@ public class Tokenizer {
         Function<Result, Boolean> isSingleCharacterToken = r -> {
             return isUnknownToken.apply(r) && r.token.getContent().length() == 1 && !r.token
                     .getContent()
-                    .equals("-");
+                    .equals("-") && !appended.containsKey(r.token);
         };
 
         BiConsumer<Token, Result> appendTokenTo = (src, dest) -> {
-            dest.token.setContent(dest.token.getContent() + src.getContent());
+            appended.computeIfAbsent(dest.token, token -> new StringBuilder(token.getContent()))
+                    .append(src.getContent());
             src.setCategory(TokenCategory.kInvalid); /** make dest as invalid so it's removed later */
         };
 
-        for (int i = 0; i < tokens.size(); i++) {
+        for (int i = begin; i < end; i++) {
             Token token = tokens.get(i);
             if (token.getCategory() != TokenCategory.kDelimiter) continue;
             char delimiter = token.getContent().charAt(0);
@@ -270,7 +339,8 @@ public class Tokenizer {
                     while (isUnknownToken.apply(nextToken)) {
                         appendTokenTo.accept(nextToken.token, prevToken);
 
-                        nextToken = Token.findNextToken(tokens, i, kFlagValid);
+                        /** every token up to nextToken is invalid by now, there's no need to search from i again */
+                        nextToken = Token.findNextToken(tokens, nextToken, kFlagValid);
                         if (isDelimiterToken.apply(nextToken)
                                 && nextToken.token.getContent().charAt(0) == delimiter) {
                             appendTokenTo.accept(nextToken.token, prevToken);
@@ -281,7 +351,8 @@ public class Tokenizer {
                     continue;
                 }
 
-                if (isSingleCharacterToken.apply(nextToken)) {
+                /** a leading delimiter has nothing to be appended to */
+                if (prevToken.token != null && isSingleCharacterToken.apply(nextToken)) {
                     appendTokenTo.accept(token, prevToken);
                     appendTokenTo.accept(nextToken.token, prevToken);
                     continue;
@@ -299,7 +370,29 @@ public class Tokenizer {
             }
         }
 
-        /** remove invalid tokens */
-        tokens.removeIf(token -> token.getCategory() == TokenCategory.kInvalid);
+        appended.forEach((token, content) -> token.setContent(content.toString()));
+        return !appended.isEmpty();
+    }
+
+    /**
+     * Removes the invalid tokens, starting at {@code begin}, and moves the bounds of the unstable ranges accordingly.
+     *
+     * @param begin the first token that may be invalid
+     */
+    private void removeInvalidTokens(int begin) {
+        int read = begin;
+        int write = begin;
+        for (int[] range : unstableRanges) {
+            while (read < range[0]) tokens.set(write++, tokens.get(read++));
+            range[0] = write;
+            for (; read < range[1]; read++) {
+                Token token = tokens.get(read);
+                if (token.getCategory() != TokenCategory.kInvalid) tokens.set(write++, token);
+            }
+            range[1] = write;
+        }
+
+        while (read < tokens.size()) tokens.set(write++, tokens.get(read++));
+        tokens.subList(write, tokens.size()).clear();
     }
 }
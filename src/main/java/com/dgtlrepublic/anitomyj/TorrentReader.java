@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses the files listed in {@code .torrent} metadata, e.g. the episodes of a batch release.
+ * <p>
+ * The bencoded metadata is read as a stream: only the top-level name and the paths under {@code info.files} are kept,
+ * and everything else(most notably the piece hashes) is skipped without being buffered. Reading stops as soon as the
+ * {@code info} dictionary is over. UTF-8 variants of names and paths({@code name.utf-8}, {@code path.utf-8}) are
+ * preferred when present, and padding files are left out.
+ * <p>
+ * The files are parsed by a {@link PathParser}, as {@code name/path}, so that the top-level name serves as the shared
+ * directory context of the whole batch and is only parsed once. Only media files are parsed(see
+ * {@link LibraryCrawler#isMediaFile(String)}). A single-file torrent is parsed by its name alone.
+ *
+ * @author Paul Miller
+ */
+public class TorrentReader {
+    /** The maximum length of a name or a path component. */
+    private static final int kMaxStringLength = 64 * 1024;
+
+    private final PathParser pathParser;
+
+    /** Constructs a new reader, with its own {@link PathParser}. */
+    public TorrentReader() {
+        this(new PathParser());
+    }
+
+    /**
+     * Constructs a new reader.
+     *
+     * @param pathParser the path parser that parses the files, and caches the directory context of their torrents
+     */
+    public TorrentReader(PathParser pathParser) {
+        this.pathParser = pathParser;
+    }
+
+    /**
+     * Reads the name and the file list of a torrent.
+     *
+     * @param in the bencoded metadata; buffered unless it already is. Not closed.
+     * @return the files of the torrent
+     */
+    public static TorrentFiles readFiles(InputStream in) throws IOException {
+        BencodeReader reader = new BencodeReader(in instanceof BufferedInputStream
+                                                 ? in
+                                                 : new BufferedInputStream(in, 1 << 16));
+        reader.expect('d');
+        while (!reader.atEnd()) {
+            if (reader.readString().equals("info")) return readInfo(reader);
+            reader.skipValue();
+        }
+
+        throw new IOException("Invalid torrent: no info dictionary");
+    }
+
+    /**
+     * Parses the media files of the torrent at {@code torrent}.
+     *
+     * @param torrent the path of the {@code .torrent} file
+     * @param sink    receives the path of every media file, relative to the torrent, and its elements
+     * @return the number of parsed files
+     */
+    public long parse(Path torrent, ResultSink sink) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(torrent), 1 << 16)) {
+            return parse(in, sink);
+        }
+    }
+
+    /**
+     * Parses the media files of a torrent.
+     *
+     * @param in   the bencoded metadata; not closed
+     * @param sink receives the path of every media file, relative to the torrent, and its elements
+     * @return the number of parsed files
+     */
+    public long parse(InputStream in, ResultSink sink) throws IOException {
+        TorrentFiles files = readFiles(in);
+        long count = 0;
+        for (String path : files.getPaths()) {
+            if (!LibraryCrawler.isMediaFile(path)) continue;
+            sink.accept(path, pathParser.parse(path));
+            count++;
+        }
+
+        return count;
+    }
+
+    /** The name and the file list of a torrent. */
+    public static class TorrentFiles {
+        private final String name;
+        private final List<String> paths;
+
+        TorrentFiles(String name, List<String> paths) {
+            this.name = name;
+            this.paths = Collections.unmodifiableList(paths);
+        }
+
+        /** Returns the top-level name of the torrent: its directory, or its only file. */
+        public String getName() {
+            return name;
+        }
+
+        /** Returns the paths of the files, prefixed with the name of the torrent and separated by '/'. */
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        @Override
+        public String toString() {
+            return "TorrentFiles{" +
+                    "name='" + name + '\'' +
+                    ", paths=" + paths +
+                    '}';
+        }
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** Reads the {@code info} dictionary. Keys are sorted, so the files come before the name. */
+    private static TorrentFiles readInfo(BencodeReader reader) throws IOException {
+        reader.expect('d');
+        String name = null;
+        String utf8Name = null;
+        List<String> files = null;
+        while (!reader.atEnd()) {
+            switch (reader.readString()) {
+                case "files":
+                    files = readFileList(reader);
+                    break;
+                case "name":
+                    name = reader.readString();
+                    break;
+                case "name.utf-8":
+                    utf8Name = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+
+        if (utf8Name != null) name = utf8Name;
+        if (name == null) throw new IOException("Invalid torrent: no name");
+        if (files == null) return new TorrentFiles(name, Collections.singletonList(name));
+
+        List<String> paths = new ArrayList<>(files.size());
+        for (String file : files) paths.add(name + '/' + file);
+        return new TorrentFiles(name, paths);
+    }
+
+    /** Reads {@code info.files}; returns the path of every file that isn't padding. */
+    private static List<String> readFileList(BencodeReader reader) throws IOException {
+        List<String> files = new ArrayList<>();
+        reader.expect('l');
+        while (!reader.atEnd()) {
+            reader.expect('d');
+            String path = null;
+            String utf8Path = null;
+            boolean padding = false;
+            while (!reader.atEnd()) {
+                switch (reader.readString()) {
+                    case "path":
+                        path = readPath(reader);
+                        break;
+                    case "path.utf-8":
+                        utf8Path = readPath(reader);
+                        break;
+                    case "attr":
+                        padding = reader.readString().indexOf('p') != -1;
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+
+            if (utf8Path != null) path = utf8Path;
+            if (path == null) throw new IOException("Invalid torrent: file without a path");
+            if (!padding) files.add(path);
+        }
+
+        return files;
+    }
+
+    /** Reads a list of path components, and joins them with '/'. */
+    private static String readPath(BencodeReader reader) throws IOException {
+        StringBuilder path = new StringBuilder();
+        reader.expect('l');
+        while (!reader.atEnd()) {
+            if (path.length() > 0) path.append('/');
+            path.append(reader.readString());
+        }
+
+        return path.toString();
+    }
+
+    /** A minimal streaming bencode reader. */
+    private static class BencodeReader {
+        private final InputStream in;
+        private byte[] buffer = new byte[256];
+        private int peeked = -1;
+
+        BencodeReader(InputStream in) {
+            this.in = in;
+        }
+
+        /** Returns whether or not the current list or dictionary is over; consumes its end if it is. */
+        boolean atEnd() throws IOException {
+            if (peek() != 'e') return false;
+            peeked = -1;
+            return true;
+        }
+
+        void expect(char c) throws IOException {
+            int b = read();
+            if (b != c) throw new IOException("Invalid torrent: expected '" + c + "', found '" + (char) b + "'");
+        }
+
+        /** Reads a byte string as UTF-8. */
+        String readString() throws IOException {
+            long length = readLength();
+            if (length > kMaxStringLength) throw new IOException("Invalid torrent: string too long: " + length);
+            if (buffer.length < length) buffer = new byte[(int) length];
+            for (int offset = 0; offset < length; ) {
+                int count = in.read(buffer, offset, (int) length - offset);
+                if (count < 0) throw new EOFException();
+                offset += count;
+            }
+
+            return StringHelper.fromUtf8(buffer, 0, (int) length);
+        }
+
+        /** Skips the next value, including everything nested inside of it. */
+        void skipValue() throws IOException {
+            int depth = 0;
+            do {
+                int b = peek();
+                if (b == 'i') {
+                    read();
+                    while (read() != 'e') ;
+                } else if (b == 'l' || b == 'd') {
+                    read();
+                    depth++;
+                } else if (b == 'e' && depth > 0) {
+                    read();
+                    depth--;
+                } else {
+                    skip(readLength());
+                }
+            } while (depth > 0);
+        }
+
+        /** Reads the length prefix of a byte string, including its ':'. */
+        private long readLength() throws IOException {
+            long length = 0;
+            int digits = 0;
+            for (int b; (b = read()) != ':'; digits++) {
+                if (b < '0' || b > '9' || digits > 18) throw new IOException("Invalid torrent: bad string length");
+                length = length * 10 + (b - '0');
+            }
+            if (digits == 0) throw new IOException("Invalid torrent: bad string length");
+
+            return length;
+        }
+
+        private void skip(long count) throws IOException {
+            while (count > 0) {
+                long skipped = in.skip(count);
+                if (skipped <= 0) {
+                    if (in.read() < 0) throw new EOFException();
+                    skipped = 1;
+                }
+                count -= skipped;
+            }
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -1) {
+                peeked = in.read();
+                if (peeked == -1) throw new EOFException();
+            }
+
+            return peeked;
+        }
+
+        private int read() throws IOException {
+            int b = peek();
+            peeked = -1;
+            return b;
+        }
+    }
+}
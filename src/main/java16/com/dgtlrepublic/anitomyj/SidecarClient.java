@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A client of a {@link SidecarServer}. Requests may be pipelined: {@link #send(List)} doesn't wait for the response,
+ * and {@link #receive()} returns the responses in the order their requests were sent. One thread may send while
+ * another receives, but neither method may be called by two threads at once.
+ *
+ * @author Paul Miller
+ */
+public class SidecarClient implements Closeable {
+    private static final int kInitialBufferSize = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(4);
+    private ByteBuffer request = ByteBuffer.allocate(kInitialBufferSize);
+    private ByteBuffer response = ByteBuffer.allocate(kInitialBufferSize);
+    private int nextRequestId = 0;
+
+    /**
+     * Constructs a new client, connected to the server listening on {@code socketPath}.
+     *
+     * @param socketPath the path of the socket
+     */
+    public SidecarClient(Path socketPath) throws IOException {
+        channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends a batch of filenames without waiting for the response.
+     *
+     * @param filenames the filenames
+     * @return the id of the request, which the matching {@link Response} carries
+     */
+    public int send(List<String> filenames) throws IOException {
+        int requestId = nextRequestId++;
+        request = SidecarProtocol.encodeRequest(request, requestId, filenames);
+        SidecarProtocol.writeFully(channel, request);
+        return requestId;
+    }
+
+    /** Waits for the response to the oldest request that hasn't been received yet. */
+    public Response receive() throws IOException {
+        header.clear();
+        SidecarProtocol.readFully(channel, header);
+        int length = header.getInt(0);
+        if (length < 8 || length > SidecarProtocol.kMaxFrameLength) throw new IOException("Invalid frame: " + length);
+
+        if (response.capacity() < length) response = ByteBuffer.allocate(Math.max(length, response.capacity() * 2));
+        response.clear().limit(length);
+        SidecarProtocol.readFully(channel, response);
+        response.flip();
+
+        int requestId = response.getInt();
+        return new Response(requestId, SidecarProtocol.decodeResults(response));
+    }
+
+    /**
+     * Parses a batch of filenames, and waits for the results. Mustn't be mixed with pipelined requests that haven't
+     * been received yet.
+     *
+     * @param filenames the filenames
+     * @return the parsed elements of every filename, in order; null for filenames that couldn't be parsed
+     */
+    public List<List<Element>> parse(List<String> filenames) throws IOException {
+        send(filenames);
+        return receive().getResults();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** The response to a single request. */
+    public static class Response {
+        private final int requestId;
+        private final List<List<Element>> results;
+
+        Response(int requestId, List<List<Element>> results) {
+            this.requestId = requestId;
+            this.results = results;
+        }
+
+        /** Returns the id of the request. */
+        public int getRequestId() {
+            return requestId;
+        }
+
+        /** Returns the parsed elements of every filename, in order; null for filenames that couldn't be parsed. */
+        public List<List<Element>> getResults() {
+            return results;
+        }
+
+        @Override
+        public String toString() {
+            return "Response{" +
+                    "requestId=" + requestId +
+                    ", results=" + results +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A load generator for a {@link SidecarServer}. Opens a number of connections, keeps up to {@code depth} request
+ * frames of {@code batch} filenames in flight on each, and reports the throughput and the latency percentiles of the
+ * frames once the run is over:
+ * <pre>
+ * Usage: SidecarLoadGenerator [options]
+ *   --socket PATH     the socket of a running server(default: an in-process server on a temporary socket)
+ *   --connections N   the number of connections(default: 4)
+ *   --batch N         the number of filenames per frame(default: 64)
+ *   --depth N         the number of frames in flight per connection(default: 8)
+ *   --seconds N       the duration of the run(default: 10)
+ *   --manifest FILE   the filenames to send, one per line(default: synthetic filenames)
+ * </pre>
+ *
+ * @author Paul Miller
+ */
+public class SidecarLoadGenerator {
+    private static final int kSyntheticCorpusSize = 10_000;
+
+    private SidecarLoadGenerator() {}
+
+    public static void main(String[] args) throws Exception {
+        Path socketPath = null;
+        Path manifest = null;
+        int connections = 4;
+        int batch = 64;
+        int depth = 8;
+        int seconds = 10;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--socket":
+                    socketPath = Paths.get(args[i + 1]);
+                    break;
+                case "--connections":
+                    connections = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--batch":
+                    batch = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--manifest":
+                    manifest = Paths.get(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Usage: SidecarLoadGenerator [--socket PATH] [--connections N] [--batch N] "
+                                               + "[--depth N] [--seconds N] [--manifest FILE]");
+                    System.exit(2);
+            }
+        }
+
+        List<String> corpus = manifest != null ? Files.readAllLines(manifest, StandardCharsets.UTF_8) : corpus();
+        SidecarServer server = null;
+        if (socketPath == null) {
+            socketPath = Files.createTempDirectory("anitomyj").resolve("sidecar.sock");
+            server = new SidecarServer(socketPath);
+            server.start();
+        }
+
+        try {
+            System.out.println(run(socketPath, corpus, connections, batch, depth, seconds * 1_000_000_000L));
+        } finally {
+            if (server != null) {
+                server.close();
+                Files.deleteIfExists(socketPath.getParent());
+            }
+        }
+    }
+
+    /**
+     * Runs the load against the server listening on {@code socketPath}.
+     *
+     * @param socketPath  the path of the socket
+     * @param corpus      the filenames to send, cycled through
+     * @param connections the number of connections
+     * @param batch       the number of filenames per frame
+     * @param depth       the number of frames in flight per connection
+     * @param nanos       the duration of the run
+     * @return the report
+     */
+    public static Report run(Path socketPath, List<String> corpus, int connections, int batch, int depth, long nanos)
+            throws IOException, InterruptedException {
+        List<List<String>> frames = new ArrayList<>();
+        for (int i = 0; i < corpus.size(); i += batch) {
+            frames.add(corpus.subList(i, Math.min(corpus.size(), i + batch)));
+        }
+
+        Connection[] workers = new Connection[connections];
+        long start = System.nanoTime();
+        long deadline = start + nanos;
+        for (int i = 0; i < connections; i++) {
+            workers[i] = new Connection(new SidecarClient(socketPath), frames, i, depth, deadline);
+            workers[i].start();
+        }
+
+        long frameCount = 0;
+        long nameCount = 0;
+        long[] latencies = new long[0];
+        IOException failure = null;
+        for (Connection worker : workers) {
+            worker.join();
+            if (worker.failure != null) failure = worker.failure;
+            frameCount += worker.frameCount;
+            nameCount += worker.nameCount;
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + (int) worker.frameCount);
+            System.arraycopy(worker.latencies, 0, latencies, offset, (int) worker.frameCount);
+        }
+        if (failure != null) throw failure;
+
+        Arrays.sort(latencies);
+        return new Report(System.nanoTime() - start, frameCount, nameCount, latencies);
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    private static List<String> corpus() {
+        String[] groups = {"HorribleSubs", "Coalgirls", "FFF", "Commie", "gg"};
+        String[] titles = {"Toradora!", "Kino no Tabi - The Beautiful World", "Fate Zero", "Shingeki no Kyojin S2",
+                           "Mahou Shoujo Madoka Magica", "Kimi no Na wa."};
+        String[] tags = {"[720p]", "[1080p][ABCD1234]", "(BD 1920x1080 x264 FLAC)", "[HEVC 10bit]", ""};
+        List<String> corpus = new ArrayList<>(kSyntheticCorpusSize);
+        for (int i = 0; i < kSyntheticCorpusSize; i++) {
+            corpus.add(String.format(Locale.ENGLISH,
+                                     "[%s] %s - %02d %s.mkv",
+                                     groups[i % groups.length],
+                                     titles[i / groups.length % titles.length],
+                                     i % 26 + 1,
+                                     tags[i / 7 % tags.length]));
+        }
+
+        return corpus;
+    }
+
+    /** A single connection: a sender and a receiver thread, with at most {@code depth} frames in flight. */
+    private static class Connection {
+        private final SidecarClient client;
+        private final List<List<String>> frames;
+        private final Semaphore window;
+        private final Semaphore sent = new Semaphore(0);
+        private final long deadline;
+        private final long[] sentAt;
+        private final Thread sender;
+        private final Thread receiver;
+
+        private volatile boolean done = false;
+        private volatile int sentCount = 0;
+        private long frameCount = 0;
+        private long nameCount = 0;
+        private long[] latencies = new long[1024];
+        private volatile IOException failure;
+
+        Connection(SidecarClient client, List<List<String>> frames, int index, int depth, long deadline) {
+            this.client = client;
+            this.frames = frames;
+            this.window = new Semaphore(depth);
+            this.deadline = deadline;
+            this.sentAt = new long[Integer.highestOneBit(depth) * 2];
+            this.sender = new Thread(() -> send(index), "anitomyj-load-sender-" + index);
+            this.receiver = new Thread(this::receive, "anitomyj-load-receiver-" + index);
+        }
+
+        void start() {
+            sender.start();
+            receiver.start();
+        }
+
+        void join() throws InterruptedException {
+            sender.join();
+            receiver.join();
+            try {
+                client.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        private void send(int index) {
+            try {
+                for (int i = index; System.nanoTime() < deadline; i++) {
+                    window.acquire();
+                    List<String> frame = frames.get(i % frames.size());
+                    int requestId = sentCount;
+                    sentAt[requestId & (sentAt.length - 1)] = System.nanoTime();
+                    client.send(frame);
+                    sentCount = requestId + 1;
+                    sent.release();
+                }
+            } catch (IOException e) {
+                failure = e;
+                try {
+                    client.close();
+                } catch (IOException ignored) {
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done = true;
+                sent.release();
+            }
+        }
+
+        private void receive() {
+            try {
+                while (true) {
+                    sent.acquireUninterruptibly();
+                    if (frameCount >= sentCount && done) return;
+
+                    SidecarClient.Response response = client.receive();
+                    long latency = System.nanoTime() - sentAt[response.getRequestId() & (sentAt.length - 1)];
+                    window.release();
+                    if (frameCount == latencies.length) latencies = Arrays.copyOf(latencies, latencies.length * 2);
+                    latencies[(int) frameCount++] = latency;
+                    nameCount += response.getResults().size();
+                }
+            } catch (IOException e) {
+                failure = e;
+                sender.interrupt();
+            }
+        }
+    }
+
+    /** The results of a run. */
+    public static class Report {
+        private final long nanos;
+        private final long frameCount;
+        private final long nameCount;
+        private final long[] latencies;
+
+        Report(long nanos, long frameCount, long nameCount, long[] latencies) {
+            this.nanos = nanos;
+            this.frameCount = frameCount;
+            this.nameCount = nameCount;
+            this.latencies = latencies;
+        }
+
+        /** Returns the number of frames that were answered. */
+        public long getFrameCount() {
+            return frameCount;
+        }
+
+        /** Returns the number of filenames that were parsed. */
+        public long getNameCount() {
+            return nameCount;
+        }
+
+        /** Returns the number of filenames parsed per second. */
+        public double getThroughput() {
+            return nanos > 0 ? nameCount * 1e9 / nanos : 0;
+        }
+
+        /**
+         * Returns a percentile of the frame latencies, in nanoseconds.
+         *
+         * @param percentile the percentile, between 0 and 100
+         */
+        public long getLatency(double percentile) {
+            if (latencies.length == 0) return 0;
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH,
+                                 "%d frames, %d names in %.3f s: %.0f names/s, latency p50 %.3f ms, p99 %.3f ms, "
+                                         + "p99.9 %.3f ms",
+                                 frameCount,
+                                 nameCount,
+                                 nanos / 1e9,
+                                 getThroughput(),
+                                 getLatency(50) / 1e6,
+                                 getLatency(99) / 1e6,
+                                 getLatency(99.9) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
+/**
+ * The framing of the {@link SidecarServer} protocol. Every frame starts with its length, so clients in any language
+ * can read whole frames before decoding them. All numbers are big-endian and unsigned:
+ * <pre>
+ * request:  u32 length, u32 requestId, u32 count, {u32 length, UTF-8 filename} * count
+ * response: u32 length, u32 requestId, u32 count, {u16 elementCount, {u8 category, u16 length, UTF-8 value} *
+ *           elementCount} * count
+ * </pre>
+ * The length doesn't include its own four bytes. Categories are {@link ElementCategory} ordinals. An element count of
+ * {@code 0xffff} means the filename couldn't be parsed(e.g. because it's longer than 65535 bytes), or that it has too
+ * many elements to encode. Clients may send any number of requests without waiting; responses come back in request
+ * order.
+ *
+ * @author Paul Miller
+ */
+class SidecarProtocol {
+    static final int kMaxFrameLength = 64 << 20;
+    static final int kMaxNameLength = 0xffff;
+    static final int kErrorEntry = 0xffff;
+
+    private static final ElementCategory[] kCategories = ElementCategory.values();
+
+    private SidecarProtocol() {}
+
+    /** Reads until {@code buffer} is full. */
+    static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException();
+        }
+    }
+
+    /** Writes the whole {@code buffer}. */
+    static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    /** Returns {@code buffer} if it has room for {@code length} more bytes; a larger copy otherwise. */
+    static ByteBuffer ensure(ByteBuffer buffer, int length) {
+        if (buffer.remaining() >= length) return buffer;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        buffer.flip();
+        return grown.put(buffer);
+    }
+
+    /** Encodes a request frame. */
+    static ByteBuffer encodeRequest(ByteBuffer buffer, int requestId, List<String> filenames) {
+        buffer.clear();
+        buffer.putInt(0).putInt(requestId).putInt(filenames.size());
+        for (String filename : filenames) {
+            byte[] bytes = filename.getBytes(StandardCharsets.UTF_8);
+            buffer = ensure(buffer, 4 + bytes.length);
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        buffer.putInt(0, buffer.position() - 4);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Encodes the results of a single filename into a response frame. Results of {@code kErrorEntry} or more elements
+     * are encoded as errors, since their count would read as one.
+     */
+    static ByteBuffer encodeResult(ByteBuffer buffer, List<Element> elements) {
+        buffer = ensure(buffer, 2);
+        if (elements == null || elements.size() >= kErrorEntry) {
+            buffer.putShort((short) kErrorEntry);
+            return buffer;
+        }
+
+        buffer.putShort((short) elements.size());
+        for (Element element : elements) {
+            byte[] bytes = element.getValue().getBytes(StandardCharsets.UTF_8);
+            buffer = ensure(buffer, 3 + bytes.length);
+            buffer.put((byte) element.getCategory().ordinal()).putShort((short) bytes.length).put(bytes);
+        }
+
+        return buffer;
+    }
+
+    /** Decodes the results of a response frame, positioned after its request id. */
+    static List<List<Element>> decodeResults(ByteBuffer frame) throws IOException {
+        int count = frame.getInt();
+        List<List<Element>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int elementCount = frame.getShort() & 0xffff;
+            if (elementCount == kErrorEntry) {
+                results.add(null);
+                continue;
+            }
+
+            List<Element> elements = new ArrayList<>(elementCount);
+            for (int j = 0; j < elementCount; j++) {
+                int category = frame.get() & 0xff;
+                int length = frame.getShort() & 0xffff;
+                if (category >= kCategories.length) throw new IOException("Invalid category: " + category);
+                elements.add(new Element(kCategories[category],
+                                         StringHelper.fromUtf8(frame.array(), frame.position(), length)));
+                frame.position(frame.position() + length);
+            }
+            results.add(elements);
+        }
+
+        return results;
+    }
+}
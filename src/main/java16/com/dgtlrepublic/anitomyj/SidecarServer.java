@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A long-lived parsing sidecar that listens on a Unix domain socket, for local callers outside of the JVM that parse
+ * too many filenames for {@link ParseServer}'s HTTP overhead. It speaks the length-prefixed binary protocol described
+ * in {@link SidecarProtocol}: each request frame carries a batch of filenames, and clients may pipeline any number of
+ * frames on a connection without waiting for the responses, which come back in order.
+ * <p>
+ * Every filename is parsed within a {@link ParseBudget}, {@link #kDefaultBudget} unless configured otherwise; the
+ * protocol doesn't mark a truncated result, but the server counts them.
+ * <p>
+ * Each connection is served by its own thread, a virtual one where the runtime supports them. Requires Java 16 or
+ * later; e.g. {@code java -cp anitomyJ.jar com.dgtlrepublic.anitomyj.SidecarServer --socket /run/anitomyj.sock}.
+ *
+ * @author Paul Miller
+ */
+public class SidecarServer implements Closeable {
+    /** The default budget of a single parse. */
+    public static final ParseBudget kDefaultBudget = new ParseBudget(4096, 1024, 100, TimeUnit.MILLISECONDS);
+
+    private static final int kInitialBufferSize = 64 * 1024;
+
+    private final Path socketPath;
+    private final ParseBudget budget;
+    private final ServerSocketChannel server;
+    private final ExecutorService executor;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final LongAdder connectionCount = new LongAdder();
+    private final LongAdder frameCount = new LongAdder();
+    private final LongAdder parsedCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder truncatedCount = new LongAdder();
+    private volatile boolean closed = false;
+
+    /**
+     * Constructs a new server with the default parse budget, bound to {@code socketPath}.
+     *
+     * @param socketPath the path of the socket
+     * @throws BindException if another server is listening on {@code socketPath}
+     */
+    public SidecarServer(Path socketPath) throws IOException {
+        this(socketPath, kDefaultBudget);
+    }
+
+    /**
+     * Constructs a new server, bound to {@code socketPath}. A stale socket file left behind by a previous server, i.e.
+     * one that refuses connections, is replaced; any other existing file is an error.
+     *
+     * @param socketPath the path of the socket
+     * @param budget     the budget of a single parse
+     * @throws BindException if another server is listening on {@code socketPath}
+     */
+    public SidecarServer(Path socketPath, ParseBudget budget) throws IOException {
+        this.socketPath = socketPath;
+        this.budget = Objects.requireNonNull(budget);
+        if (Files.exists(socketPath, LinkOption.NOFOLLOW_LINKS)
+                && Files.readAttributes(socketPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+            if (isListening(socketPath)) throw new BindException("Another server is listening on " + socketPath);
+            Files.delete(socketPath);
+        }
+
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+
+        ExecutorService virtual = AsyncParser.newVirtualThreadExecutor();
+        executor = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "anitomyj-sidecar");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path socketPath = null;
+        int maxInputLength = kDefaultBudget.getMaxInputLength();
+        int maxTokenCount = kDefaultBudget.getMaxTokenCount();
+        long maxParseMillis = TimeUnit.NANOSECONDS.toMillis(kDefaultBudget.getMaxParseTimeNanos());
+        boolean usage = false;
+        for (int i = 0; i < args.length && !usage; i++) {
+            if (i + 1 == args.length) {
+                usage = true;
+                break;
+            }
+            switch (args[i]) {
+                case "--socket":
+                    socketPath = Paths.get(args[++i]);
+                    break;
+                case "--max-input-length":
+                    maxInputLength = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-tokens":
+                    maxTokenCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-parse-millis":
+                    maxParseMillis = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    usage = true;
+            }
+        }
+        if (usage || socketPath == null) {
+            System.err.println("Usage: SidecarServer --socket PATH [--max-input-length N] [--max-tokens N]"
+                                       + " [--max-parse-millis N]");
+            System.exit(2);
+        }
+
+        ParseBudget budget = new ParseBudget(maxInputLength, maxTokenCount, maxParseMillis, TimeUnit.MILLISECONDS);
+        SidecarServer server = new SidecarServer(socketPath, budget);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.err.println("anitomyj: listening on " + socketPath);
+    }
+
+    /** Starts accepting connections. */
+    public void start() {
+        Thread acceptor = new Thread(this::accept, "anitomyj-sidecar-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /** Stops the server, closes every connection, and removes the socket file. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException ignored) {
+        }
+        for (SocketChannel connection : connections) {
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+            }
+        }
+        executor.shutdownNow();
+        try {
+            Files.deleteIfExists(socketPath);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /** Returns the path of the socket. */
+    public Path getSocketPath() {
+        return socketPath;
+    }
+
+    /** Returns the number of connections accepted so far. */
+    public long getConnectionCount() {
+        return connectionCount.sum();
+    }
+
+    /** Returns the number of request frames served so far. */
+    public long getFrameCount() {
+        return frameCount.sum();
+    }
+
+    /** Returns the number of filenames parsed so far, including errors. */
+    public long getParsedCount() {
+        return parsedCount.sum();
+    }
+
+    /** Returns the number of filenames that couldn't be parsed. */
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /** Returns the number of filenames whose parse was cut short by the budget. */
+    public long getTruncatedCount() {
+        return truncatedCount.sum();
+    }
+
+    /** Returns the budget of a single parse. */
+    public ParseBudget getBudget() {
+        return budget;
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /** Returns whether or not a server accepts connections on {@code socketPath}. */
+    private static boolean isListening(Path socketPath) throws IOException {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socketPath)).close();
+            return true;
+        } catch (ConnectException e) {
+            return false;
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            SocketChannel connection;
+            try {
+                connection = server.accept();
+            } catch (IOException e) {
+                if (closed) return;
+                continue;
+            }
+
+            connectionCount.increment();
+            connections.add(connection);
+            executor.execute(() -> serve(connection));
+        }
+    }
+
+    /** Serves the frames of a single connection, in order, until the client disconnects. */
+    private void serve(SocketChannel connection) {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        ByteBuffer frame = ByteBuffer.allocate(kInitialBufferSize);
+        ByteBuffer response = ByteBuffer.allocate(kInitialBufferSize);
+        List<Element> elements = new ArrayList<>();
+        List<Token> tokens = new ArrayList<>();
+
+        try (SocketChannel channel = connection) {
+            while (!closed) {
+                header.clear();
+                if (channel.read(header) < 0) return;
+                SidecarProtocol.readFully(channel, header);
+                int length = header.getInt(0);
+                if (length < 8 || length > SidecarProtocol.kMaxFrameLength) return;
+
+                if (frame.capacity() < length) frame = ByteBuffer.allocate(Math.max(length, frame.capacity() * 2));
+                frame.clear().limit(length);
+                SidecarProtocol.readFully(channel, frame);
+                frame.flip();
+
+                int requestId = frame.getInt();
+                int count = frame.getInt();
+                response.clear();
+                response.putInt(0).putInt(requestId).putInt(count);
+                for (int i = 0; i < count; i++) {
+                    int nameLength = frame.getInt();
+                    if (nameLength < 0 || nameLength > frame.remaining()) return;
+                    List<Element> result = null;
+                    if (nameLength <= SidecarProtocol.kMaxNameLength) {
+                        String filename = StringHelper.fromUtf8(frame.array(), frame.position(), nameLength);
+                        result = parse(filename, elements, tokens);
+                    }
+                    frame.position(frame.position() + nameLength);
+
+                    parsedCount.increment();
+                    if (result == null || result.size() >= SidecarProtocol.kErrorEntry) errorCount.increment();
+                    response = SidecarProtocol.encodeResult(response, result);
+                }
+
+                response.putInt(0, response.position() - 4);
+                response.flip();
+                frameCount.increment();
+                SidecarProtocol.writeFully(channel, response);
+            }
+        } catch (EOFException | ClosedChannelException ignored) {
+        } catch (IOException | RuntimeException ignored) {
+            // a malformed frame or a broken connection; the client sees the connection close
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    /** Parses a single filename within the budget into the reused lists; returns null if the parser failed. */
+    private List<Element> parse(String filename, List<Element> elements, List<Token> tokens) {
+        try {
+            if (AnitomyJ.parseInto(filename, budget, elements, tokens)) truncatedCount.increment();
+            return elements;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SidecarServer{" +
+                "socketPath=" + socketPath +
+                ", connectionCount=" + connectionCount +
+                ", frameCount=" + frameCount +
+                ", parsedCount=" + parsedCount +
+                ", errorCount=" + errorCount +
+                ", truncatedCount=" + truncatedCount +
+                '}';
+    }
+}
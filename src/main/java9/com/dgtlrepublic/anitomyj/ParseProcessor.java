@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.anitomyj;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link Flow.Processor} stage that parses filenames into {@link ParseResult}s, e.g.
+ * <pre>
+ * feedPoller.subscribe(parseProcessor);
+ * parseProcessor.subscribe(matcher);
+ * </pre>
+ * Filenames are parsed on an {@link Executor}, by up to {@code parallelism} tasks at once, each of which takes up to
+ * {@code batchSize} queued filenames. Results are emitted in input order, or as soon as they're parsed.
+ * <p>
+ * The processor never holds more than {@code bufferSize} filenames: queued, being parsed, or parsed and waiting for
+ * downstream demand. It only requests more filenames from upstream when there's room, so a slow subscriber throttles
+ * parsing instead of growing a queue. Only a single subscriber is supported.
+ * <p>
+ * Requires Java 9 or later.
+ *
+ * @author Paul Miller
+ */
+public class ParseProcessor implements Flow.Processor<String, ParseResult> {
+    /** The default maximum number of filenames held by the processor. */
+    public static final int kDefaultBufferSize = 1024;
+
+    /** The default maximum number of filenames parsed by a single task. */
+    public static final int kDefaultBatchSize = 32;
+
+    private final Executor executor;
+    private final int parallelism;
+    private final int bufferSize;
+    private final int batchSize;
+    private final boolean ordered;
+    private final ParseBudget budget;
+    private final int replenishThreshold;
+
+    /** Serializes {@link #drain()}, without holding a lock while signalling. */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /** Guarded by {@code this}. */
+    private final ArrayDeque<Item> queued = new ArrayDeque<>();
+    private final ArrayDeque<Item> output = new ArrayDeque<>();
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super ParseResult> downstream;
+    private boolean subscribed = false;
+    private long upstreamRequested = 0;
+    private long demand = 0;
+    private int buffered = 0;
+    private int inFlight = 0;
+    private boolean upstreamDone = false;
+    private boolean cancelUpstream = false;
+    private boolean cancelled = false;
+    private boolean terminated = false;
+    private Throwable error;
+
+    /**
+     * Constructs a new, ordered processor that parses on the common fork/join pool, with one task per processor.
+     */
+    public ParseProcessor() {
+        this(ForkJoinPool.commonPool(),
+             Runtime.getRuntime().availableProcessors(),
+             kDefaultBufferSize,
+             kDefaultBatchSize,
+             true,
+             ParseBudget.kBudgetUnlimited);
+    }
+
+    /**
+     * Constructs a new processor.
+     *
+     * @param executor    the executor that runs the parses
+     * @param parallelism the maximum number of parse tasks at once
+     * @param bufferSize  the maximum number of filenames held by the processor
+     * @param batchSize   the maximum number of filenames parsed by a single task
+     * @param ordered     whether or not results are emitted in input order
+     * @param budget      the limits of each parse
+     */
+    public ParseProcessor(Executor executor,
+                          int parallelism,
+                          int bufferSize,
+                          int batchSize,
+                          boolean ordered,
+                          ParseBudget budget) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        if (bufferSize < 1) throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        this.executor = Objects.requireNonNull(executor);
+        this.parallelism = parallelism;
+        this.bufferSize = bufferSize;
+        this.batchSize = batchSize;
+        this.ordered = ordered;
+        this.budget = Objects.requireNonNull(budget);
+        this.replenishThreshold = Math.max(1, bufferSize / 4);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ParseResult> subscriber) {
+        Objects.requireNonNull(subscriber);
+        boolean accepted;
+        synchronized (this) {
+            accepted = downstream == null;
+            if (accepted) downstream = subscriber;
+        }
+
+        if (!accepted) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {}
+
+                @Override
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("ParseProcessor only supports a single subscriber"));
+            return;
+        }
+
+        subscriber.onSubscribe(new Subscription());
+        synchronized (this) {
+            subscribed = true;
+        }
+
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription);
+        boolean accepted;
+        synchronized (this) {
+            accepted = upstream == null && !upstreamDone;
+            if (accepted) upstream = subscription;
+        }
+
+        if (!accepted) {
+            subscription.cancel();
+            return;
+        }
+
+        drain();
+    }
+
+    @Override
+    public void onNext(String filename) {
+        Objects.requireNonNull(filename);
+        synchronized (this) {
+            if (upstreamDone || cancelled) return;
+            Item item = new Item(filename);
+            upstreamRequested--;
+            buffered++;
+            queued.add(item);
+            if (ordered) output.add(item);
+        }
+
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Objects.requireNonNull(throwable);
+        synchronized (this) {
+            if (upstreamDone) return;
+            upstreamDone = true;
+            if (error == null) error = throwable;
+        }
+
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            upstreamDone = true;
+        }
+
+        drain();
+    }
+
+    /** Returns the maximum number of filenames held by the processor. */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /** Returns the number of filenames held by the processor: queued, being parsed, or waiting for demand. */
+    public synchronized int getBufferedCount() {
+        return buffered;
+    }
+
+    /** Returns the number of filenames waiting to be parsed. */
+    public synchronized int getQueuedCount() {
+        return queued.size();
+    }
+
+    /** Returns the number of parse tasks that are currently running. */
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    /** Returns the number of results that the subscriber requested, but hasn't received yet. */
+    public synchronized long getPendingDemand() {
+        return demand;
+    }
+
+    /** Returns the fraction of the buffer in use, from 0 to 1. */
+    public double getBufferOccupancy() {
+        return getBufferedCount() / (double) bufferSize;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ParseProcessor{" +
+                "buffered=" + buffered +
+                ", bufferSize=" + bufferSize +
+                ", queued=" + queued.size() +
+                ", inFlight=" + inFlight +
+                ", demand=" + demand +
+                ", ordered=" + ordered +
+                '}';
+    }
+
+    /************ P R I V A T E  A P I ********** */
+
+    /**
+     * Emits the parsed results that downstream asked for, starts parse tasks, requests more filenames from upstream, and
+     * signals termination. Runs on one thread at a time; callers that find it running leave the work to that thread.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) return;
+
+        int missed = 1;
+        do {
+            emit();
+
+            List<Item[]> batches = null;
+            Flow.Subscription request = null;
+            Flow.Subscription cancel = null;
+            long requestCount = 0;
+            Flow.Subscriber<? super ParseResult> subscriber = null;
+            Throwable failure = null;
+            boolean complete = false;
+            synchronized (this) {
+                if (cancelUpstream && upstream != null) {
+                    cancel = upstream;
+                    upstream = null;
+                    upstreamDone = true;
+                }
+
+                if (cancelled) {
+                    queued.clear();
+                    output.clear();
+                } else if (error != null) {
+                    if (subscribed && !terminated) {
+                        terminated = true;
+                        subscriber = downstream;
+                        failure = error;
+                        queued.clear();
+                        output.clear();
+                        if (upstream != null && !upstreamDone) {
+                            cancel = upstream;
+                            upstream = null;
+                        }
+                    }
+                } else {
+                    while (inFlight < parallelism && !queued.isEmpty()) {
+                        Item[] batch = new Item[Math.min(batchSize, queued.size())];
+                        for (int i = 0; i < batch.length; i++) batch[i] = queued.poll();
+                        if (batches == null) batches = new ArrayList<>();
+                        batches.add(batch);
+                        inFlight++;
+                    }
+
+                    long free = bufferSize - buffered - upstreamRequested;
+                    if (upstream != null && !upstreamDone && free > 0
+                            && (free >= replenishThreshold || upstreamRequested == 0)) {
+                        request = upstream;
+                        requestCount = free;
+                        upstreamRequested += free;
+                    }
+
+                    if (upstreamDone && buffered == 0 && subscribed && !terminated) {
+                        terminated = true;
+                        subscriber = downstream;
+                        complete = true;
+                    }
+                }
+            }
+
+            if (cancel != null) cancel.cancel();
+            if (batches != null) {
+                for (Item[] batch : batches) submit(batch);
+            }
+            if (request != null) request.request(requestCount);
+            if (failure != null) subscriber.onError(failure);
+            if (complete) subscriber.onComplete();
+
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /** Emits parsed results while there's demand. */
+    private void emit() {
+        while (true) {
+            Flow.Subscriber<? super ParseResult> subscriber;
+            Item item;
+            synchronized (this) {
+                if (cancelled || terminated || error != null || !subscribed || demand == 0) return;
+                item = output.peek();
+                if (item == null || item.result == null) return;
+                output.poll();
+                demand--;
+                buffered--;
+                subscriber = downstream;
+            }
+
+            subscriber.onNext(item.result);
+        }
+    }
+
+    private void submit(Item[] batch) {
+        try {
+            executor.execute(() -> parse(batch));
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    /** Parses a batch of filenames; runs on the executor. */
+    private void parse(Item[] batch) {
+        ParseResult[] results = new ParseResult[batch.length];
+        try {
+            for (int i = 0; i < batch.length; i++) results[i] = AnitomyJ.parse(batch[i].filename, budget);
+        } catch (RuntimeException e) {
+            fail(e);
+            return;
+        }
+
+        synchronized (this) {
+            inFlight--;
+            for (int i = 0; i < batch.length; i++) {
+                batch[i].result = results[i];
+                if (!ordered) output.add(batch[i]);
+            }
+        }
+
+        drain();
+    }
+
+    /** Fails the stream, and cancels upstream. */
+    private void fail(Throwable throwable) {
+        synchronized (this) {
+            inFlight--;
+            if (error == null) error = throwable;
+            cancelUpstream = true;
+        }
+
+        drain();
+    }
+
+    /** The subscription of the downstream subscriber. */
+    private class Subscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            synchronized (ParseProcessor.this) {
+                if (n <= 0) {
+                    if (error == null) {
+                        error = new IllegalArgumentException("non-positive subscription request: " + n);
+                    }
+                    cancelUpstream = true;
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (ParseProcessor.this) {
+                cancelled = true;
+                cancelUpstream = true;
+            }
+
+            drain();
+        }
+    }
+
+    /** A single filename, and its result once it's parsed. */
+    private static class Item {
+        final String filename;
+        ParseResult result;
+
+        Item(String filename) {
+            this.filename = filename;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.benchmark;
+
+import java.util.function.IntFunction;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+
+/**
+ * Measures how parse time grows with the length of a filename and the number of brackets in it. Parse time should grow
+ * linearly, i.e. the time per character should stay roughly constant as the inputs double in size.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<deps> ParseScalingBenchmark}.
+ *
+ * @author Paul Miller
+ */
+public class ParseScalingBenchmark {
+    private static final int kWarmupRounds = 3;
+
+    public static void main(String[] args) {
+        run("words", n -> "[Group] " + repeat("Word ", n) + "- 01 [1080p].mkv");
+        run("brackets", n -> repeat("[a]", n) + ".mkv");
+        run("delimiters", n -> "Title" + repeat("_.", n) + "01.mkv");
+        run("single characters", n -> repeat("a.", n) + "01.mkv");
+        run("numbers", n -> "Title " + repeat("01 ", n) + ".mkv");
+        run("keywords", n -> "Title " + repeat("[x264 2001]", n) + ".mkv");
+    }
+
+    private static void run(String name, IntFunction<String> generator) {
+        System.out.println(name + ":");
+        for (int round = 0; round <= kWarmupRounds; round++) {
+            for (int n = 256; n <= 32768; n *= 2) {
+                String filename = generator.apply(n);
+                int iterations = Math.max(1, 262144 / n);
+
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) AnitomyJ.parse(filename);
+                long elapsed = (System.nanoTime() - start) / iterations;
+
+                if (round == kWarmupRounds) {
+                    System.out.println(String.format("  length %8d: %10d ns/parse, %6.1f ns/char",
+                                                     filename.length(),
+                                                     elapsed,
+                                                     (double) elapsed / filename.length()));
+                }
+            }
+        }
+    }
+
+    private static String repeat(String string, int count) {
+        StringBuilder builder = new StringBuilder(string.length() * count);
+        for (int i = 0; i < count; i++) builder.append(string);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.benchmark;
+
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseAnimeTitle;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseEpisodeNumber;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseEpisodeTitle;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseIsolatedNumbers;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseKeywords;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseReleaseGroup;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseValidation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.ParserPhase;
+import com.dgtlrepublic.anitomyj.ParserPipeline;
+import com.dgtlrepublic.model.test.TestCases;
+
+/**
+ * Compares the default {@link ParserPipeline} against a pipeline with a single stage that calls every built-in phase
+ * inline, the way the parser did before it had a pipeline. The two should be within noise of each other. Also measures
+ * a pipeline of lambda stages wrapping the phases, which is what a pipeline of custom stages costs.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<deps> ParserPipelineBenchmark}.
+ *
+ * @author Paul Miller
+ */
+public class ParserPipelineBenchmark {
+    private static final int kCorpusSize = 100_000;
+    private static final int kRounds = 5;
+
+    public static void main(String[] args) throws IOException {
+        List<String> corpus = corpus();
+
+        ParserPipeline inline = new ParserPipeline(Collections.singletonList(
+                parser -> kPhaseKeywords.process(parser)
+                        && kPhaseIsolatedNumbers.process(parser)
+                        && kPhaseEpisodeNumber.process(parser)
+                        && kPhaseAnimeTitle.process(parser)
+                        && kPhaseReleaseGroup.process(parser)
+                        && kPhaseEpisodeTitle.process(parser)
+                        && kPhaseValidation.process(parser)));
+
+        ParserPipeline wrapped = new ParserPipeline(Collections.emptyList());
+        for (ParserPhase phase : ParserPhase.values()) wrapped = wrapped.append(parser -> phase.process(parser));
+
+        for (int round = 1; round <= kRounds; round++) {
+            run("default", round, corpus, ParserPipeline.getDefault());
+            run("inline", round, corpus, inline);
+            run("wrapped", round, corpus, wrapped);
+        }
+    }
+
+    private static void run(String name, int round, List<String> corpus, ParserPipeline pipeline) {
+        long start = System.nanoTime();
+        for (String filename : corpus) AnitomyJ.parse(filename, pipeline);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ENGLISH, "round %d %-8s %8.3f s %12.0f names/s",
+                                         round, name, seconds, corpus.size() / seconds));
+    }
+
+    private static List<String> corpus() throws IOException {
+        List<String> fileNames = TestCases.fileNames();
+        List<String> corpus = new ArrayList<>(kCorpusSize);
+        while (corpus.size() < kCorpusSize) {
+            for (int i = 0; i < fileNames.size() && corpus.size() < kCorpusSize; i++) corpus.add(fileNames.get(i));
+        }
+
+        return corpus;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.ElementWriter;
+import com.dgtlrepublic.anitomyj.PipelinedParser;
+import com.dgtlrepublic.model.test.TestCases;
+
+/**
+ * Compares the {@link PipelinedParser} against a fork/join batch parse followed by serialization, on the same corpus
+ * (the test cases, repeated). Both write JSON Lines through an {@link ElementWriter} into a discarding writer.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<deps> PipelineBenchmark [threads]}.
+ *
+ * @author Paul Miller
+ */
+public class PipelineBenchmark {
+    private static final int kCorpusSize = 500_000;
+    private static final int kBatchSize = 256;
+    private static final int kRounds = 5;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        List<String> corpus = corpus();
+
+        for (int round = 1; round <= kRounds; round++) {
+            long start = System.nanoTime();
+            forkJoin(corpus, threads);
+            report("fork/join", round, corpus.size(), start);
+
+            start = System.nanoTime();
+            ElementWriter writer = new ElementWriter(new NullWriter(), ElementWriter.Format.kFormatJson);
+            new PipelinedParser(Math.max(1, threads - 2), PipelinedParser.kDefaultCapacity)
+                    .parse(corpus.iterator(), writer::write);
+            report("pipelined", round, corpus.size(), start);
+        }
+    }
+
+    /** Parses the corpus in fork/join batches, then writes the results in input order. */
+    private static void forkJoin(List<String> corpus, int threads) throws IOException {
+        @SuppressWarnings("unchecked")
+        List<Element>[] results = new List[corpus.size()];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new BatchTask(corpus, results, 0, corpus.size()));
+        } finally {
+            pool.shutdown();
+        }
+
+        ElementWriter writer = new ElementWriter(new NullWriter(), ElementWriter.Format.kFormatJson);
+        for (int i = 0; i < results.length; i++) writer.write(corpus.get(i), results[i]);
+    }
+
+    private static void report(String name, int round, int count, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("round %d %-10s %8.3f s %12.0f names/s", round, name, seconds, count / seconds));
+    }
+
+    private static List<String> corpus() throws IOException {
+        List<Map> testCases = TestCases.load();
+        List<String> corpus = new ArrayList<>(kCorpusSize);
+        while (corpus.size() < kCorpusSize) {
+            for (int i = 0; i < testCases.size() && corpus.size() < kCorpusSize; i++) {
+                corpus.add((String) testCases.get(i).get("file_name"));
+            }
+        }
+
+        return corpus;
+    }
+
+    private static class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> corpus;
+        private final List<Element>[] results;
+        private final int begin;
+        private final int end;
+
+        BatchTask(List<String> corpus, List<Element>[] results, int begin, int end) {
+            this.corpus = corpus;
+            this.results = results;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - begin <= kBatchSize) {
+                for (int i = begin; i < end; i++) results[i] = AnitomyJ.parse(corpus.get(i));
+                return;
+            }
+
+            int middle = (begin + end) >>> 1;
+            invokeAll(new BatchTask(corpus, results, begin, middle), new BatchTask(corpus, results, middle, end));
+        }
+    }
+
+    private static class NullWriter extends Writer {
+        @Override
+        public void write(char[] buffer, int offset, int length) {}
+
+        @Override
+        public Writer append(CharSequence sequence) {
+            return this;
+        }
+
+        @Override
+        public Writer append(CharSequence sequence, int begin, int end) {
+            return this;
+        }
+
+        @Override
+        public Writer append(char c) {
+            return this;
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.TokenClassifier;
+
+/**
+ * Measures the {@link TokenClassifier} memo table on a realistic corpus: weekly releases of a few dozen shows by a
+ * handful of groups, in the usual naming templates, so that tokens like "01", "1080p", "x264" or "v2" repeat the way they
+ * do in a real library. Parses the corpus with the table disabled and enabled, and reports the hit rates.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<deps> TokenClassifierBenchmark}.
+ *
+ * @author Paul Miller
+ */
+public class TokenClassifierBenchmark {
+    private static final int kRounds = 5;
+
+    public static void main(String[] args) {
+        List<String> corpus = corpus();
+        TokenClassifier classifier = TokenClassifier.getInstance();
+
+        for (int round = 1; round <= kRounds; round++) {
+            classifier.setEnabled(false);
+            long start = System.nanoTime();
+            for (String filename : corpus) AnitomyJ.parse(filename);
+            report("disabled", round, corpus.size(), start);
+
+            classifier.setEnabled(true);
+            classifier.clear();
+            start = System.nanoTime();
+            for (String filename : corpus) AnitomyJ.parse(filename);
+            report("enabled", round, corpus.size(), start);
+            System.out.println(String.format(Locale.ENGLISH, "        hit rate %.3f, %s", classifier.getHitRate(),
+                                             classifier));
+        }
+    }
+
+    private static void report(String name, int round, int count, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ENGLISH, "round %d %-9s %8.3f s %12.0f names/s",
+                                         round, name, seconds, count / seconds));
+    }
+
+    private static List<String> corpus() {
+        String[] groups = {"HorribleSubs", "Erai-raws", "SubsPlease", "Commie", "FFF", "Coalgirls"};
+        String[] templates = {"[%s] %s - %02d [1080p].mkv",
+                              "[%s] %s - %02d (1080p) [%08X].mkv",
+                              "[%s] %s - %02dv2 [720p][%08X].mkv",
+                              "[%s] %s - %02d (BD 1920x1080 x264 FLAC) [%08X].mkv",
+                              "[%s] %s S02E%02d [WEB 1080p HEVC AAC].mkv",
+                              "[%s] %s - %02d [BD 720p AAC] [%08X].mp4"};
+        List<String> corpus = new ArrayList<>();
+        for (int show = 0; show < 40; show++) {
+            String title = "Show Title Number " + show;
+            for (int episode = 1; episode <= 24; episode++) {
+                for (int release = 0; release < 3; release++) {
+                    int group = (show + release) % groups.length;
+                    int template = (show * 7 + release) % templates.length;
+                    corpus.add(String.format(Locale.ENGLISH, templates[template], groups[group], title, episode,
+                                             (show * 31 + episode) * 2654435761L & 0xffffffffL));
+                }
+            }
+        }
+
+        return corpus;
+    }
+}
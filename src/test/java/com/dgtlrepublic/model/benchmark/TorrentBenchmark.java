@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.TorrentReader;
+
+/**
+ * Measures the {@link TorrentReader} on a corpus of local test torrents: batch packs of a few hundred episodes, with
+ * realistic piece hashes. Compares reading the file lists alone, parsing every path on its own, and parsing them with
+ * the torrent name as shared context.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<deps> TorrentBenchmark [directory]}. Without a
+ * directory, a synthetic corpus is generated in a temporary one.
+ *
+ * @author Paul Miller
+ */
+public class TorrentBenchmark {
+    private static final int kTorrentCount = 200;
+    private static final int kEpisodeCount = 250;
+    private static final int kRounds = 5;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : generate();
+        List<Path> torrents = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.torrent")) {
+            stream.forEach(torrents::add);
+        }
+
+        for (int round = 1; round <= kRounds; round++) {
+            long files = 0;
+            long start = System.nanoTime();
+            for (Path torrent : torrents) {
+                try (InputStream in = Files.newInputStream(torrent)) {
+                    files += TorrentReader.readFiles(in).getPaths().size();
+                }
+            }
+            report("read", round, torrents.size(), files, start);
+
+            files = 0;
+            start = System.nanoTime();
+            for (Path torrent : torrents) {
+                try (InputStream in = Files.newInputStream(torrent)) {
+                    for (String path : TorrentReader.readFiles(in).getPaths()) {
+                        AnitomyJ.parse(path.substring(path.lastIndexOf('/') + 1));
+                        files++;
+                    }
+                }
+            }
+            report("read+parse", round, torrents.size(), files, start);
+
+            long[] parsed = {0};
+            start = System.nanoTime();
+            TorrentReader reader = new TorrentReader();
+            for (Path torrent : torrents) reader.parse(torrent, (filename, elements) -> parsed[0]++);
+            report("context", round, torrents.size(), parsed[0], start);
+        }
+    }
+
+    private static void report(String name, int round, int torrents, long files, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("round %d %-10s %8.3f s %10.0f torrents/s %12.0f files/s",
+                                         round, name, seconds, torrents / seconds, files / seconds));
+    }
+
+    /** Writes {@value #kTorrentCount} batch torrents to a temporary directory. */
+    private static Path generate() throws IOException {
+        Path directory = Files.createTempDirectory("anitomyj-torrents");
+        directory.toFile().deleteOnExit();
+        byte[] pieces = new byte[20 * 8192];
+        for (int i = 0; i < kTorrentCount; i++) {
+            String name = String.format("[Group %d] Show Name %d (BD 1080p FLAC)", i % 7, i);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            write(out, "d8:announce");
+            string(out, "http://tracker.example.com/announce");
+            write(out, "4:infod5:filesl");
+            for (int episode = 1; episode <= kEpisodeCount; episode++) {
+                write(out, "d6:lengthi" + (1L << 30) + "e4:pathl");
+                string(out, String.format("[Group %d] Show Name %d - %03d (BD 1080p FLAC) [%08X].mkv",
+                                          i % 7, i, episode, episode * 2654435761L & 0xffffffffL));
+                write(out, "ee");
+            }
+            write(out, "e4:name");
+            string(out, name);
+            write(out, "12:piece lengthi1048576e6:pieces" + pieces.length + ":");
+            out.write(pieces);
+            write(out, "ee");
+
+            Path torrent = directory.resolve(i + ".torrent");
+            Files.write(torrent, out.toByteArray());
+            torrent.toFile().deleteOnExit();
+        }
+
+        return directory;
+    }
+
+    private static void string(ByteArrayOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        write(out, bytes.length + ":");
+        out.write(bytes);
+    }
+
+    private static void write(ByteArrayOutputStream out, String ascii) throws IOException {
+        out.write(ascii.getBytes(StandardCharsets.US_ASCII));
+    }
+}
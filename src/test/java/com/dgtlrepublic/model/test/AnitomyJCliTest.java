@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJCli;
+
+/**
+ * Verifies the output of the command line parser.
+ *
+ * @author Paul Miller
+ */
+public class AnitomyJCliTest {
+    private static final String kInput = "[Group] Title - 01 [1080p].mkv\n" +
+            "Title \"Quoted\" - 02.mkv\n" +
+            "[Group] Title - 03 [AAC 5.1].mkv\n";
+
+    @Test
+    public void writesJsonLines() {
+        List<String> lines = run("--threads", "1");
+        assertEquals(3, lines.size());
+        assertEquals("{\"file_name\":\"[Group] Title - 01 [1080p].mkv\"," +
+                             "\"kElementAnimeTitle\":\"Title\"," +
+                             "\"kElementEpisodeNumber\":\"01\"," +
+                             "\"kElementFileExtension\":\"mkv\"," +
+                             "\"kElementFileName\":\"[Group] Title - 01 [1080p]\"," +
+                             "\"kElementReleaseGroup\":\"Group\"," +
+                             "\"kElementVideoResolution\":\"1080p\"}",
+                     lines.get(0));
+        assertTrue(lines.get(1), lines.get(1).contains("\"kElementAnimeTitle\":\"Title \\\"Quoted\\\"\""));
+        assertTrue(lines.get(2), lines.get(2).contains("\"kElementAudioTerm\":[\"AAC\",\"5.1\"]"));
+    }
+
+    @Test
+    public void projectsFields() {
+        assertEquals(Arrays.asList("{\"file_name\":\"[Group] Title - 01 [1080p].mkv\",\"kElementEpisodeNumber\":\"01\"}",
+                                   "{\"file_name\":\"Title \\\"Quoted\\\" - 02.mkv\",\"kElementEpisodeNumber\":\"02\"}",
+                                   "{\"file_name\":\"[Group] Title - 03 [AAC 5.1].mkv\",\"kElementEpisodeNumber\":\"03\"}"),
+                     run("--threads", "4", "--fields", "EpisodeNumber"));
+    }
+
+    @Test
+    public void writesCsv() {
+        assertEquals(Arrays.asList("file_name,kElementAnimeTitle,kElementEpisodeNumber",
+                                   "[Group] Title - 01 [1080p].mkv,Title,01",
+                                   "\"Title \"\"Quoted\"\" - 02.mkv\",\"Title \"\"Quoted\"\"\",02",
+                                   "[Group] Title - 03 [AAC 5.1].mkv,Title,03"),
+                     run("--threads", "2", "--format", "csv", "--fields", "AnimeTitle,EpisodeNumber"));
+    }
+
+    @Test
+    public void ordersByCompletion() {
+        List<String> ordered = run("--threads", "1");
+        List<String> completed = run("--threads", "4", "--order", "completion");
+        Collections.sort(ordered);
+        Collections.sort(completed);
+        assertEquals(ordered, completed);
+    }
+
+    @Test
+    public void rejectsInvalidArguments() {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = AnitomyJCli.run(new String[] {"--fields", "NoSuchField"},
+                                       new ByteArrayInputStream(new byte[0]),
+                                       new ByteArrayOutputStream(),
+                                       new PrintStream(err));
+        assertEquals(2, exitCode);
+    }
+
+    private static List<String> run(String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = AnitomyJCli.run(args,
+                                       new ByteArrayInputStream(kInput.getBytes(StandardCharsets.UTF_8)),
+                                       out,
+                                       new PrintStream(err));
+        assertEquals(0, exitCode);
+        assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).contains("3 lines, 3 parsed, 0 errors"));
+        return new ArrayList<>(Arrays.asList(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n")));
+    }
+}
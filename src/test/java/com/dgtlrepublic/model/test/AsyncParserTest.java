@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.model.test.TestCases.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.AsyncParser;
+import com.dgtlrepublic.anitomyj.Element;
+
+/**
+ * Verifies that the {@link AsyncParser} returns the same results as the synchronous parser, in order.
+ *
+ * @author Paul Miller
+ */
+public class AsyncParserTest {
+    @Test
+    public void parsesAsynchronously() throws Exception {
+        String fileName = "[Group] Title - 01 [1080p].mkv";
+        assertEquals(describe(AnitomyJ.parse(fileName)), describe(AnitomyJ.parseAsync(fileName).get()));
+    }
+
+    @Test
+    public void parsesBatchesInOrder() throws Exception {
+        List<String> fileNames = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) fileNames.add(String.format("[Group] Title %d - %02d [720p].mkv", i % 7, i));
+
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncParser parser = new AsyncParser(command -> {
+                tasks.incrementAndGet();
+                executor.execute(command);
+            }, 16);
+
+            List<List<Element>> results = parser.parseAllAsync(fileNames).get();
+            assertEquals(fileNames.size(), results.size());
+            for (int i = 0; i < fileNames.size(); i++) {
+                assertEquals(describe(AnitomyJ.parse(fileNames.get(i))), describe(results.get(i)));
+            }
+            assertEquals(7, tasks.get());
+            assertTrue(parser.parseAllAsync(new ArrayList<>()).get().isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
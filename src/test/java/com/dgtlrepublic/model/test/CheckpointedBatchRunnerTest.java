@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.CheckpointedBatchRunner;
+import com.dgtlrepublic.anitomyj.ElementWriter;
+import com.dgtlrepublic.anitomyj.ElementWriter.Format;
+import com.dgtlrepublic.anitomyj.PipelinedParser;
+
+/**
+ * Verifies that an interrupted {@link CheckpointedBatchRunner} job resumes with exactly-once output.
+ *
+ * @author Paul Miller
+ */
+public class CheckpointedBatchRunnerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resumesFromCheckpoint() throws Exception {
+        for (Format format : Format.values()) {
+            Path manifest = manifest();
+            Path output = folder.getRoot().toPath().resolve("out-" + format);
+            CheckpointedBatchRunner runner = new CheckpointedBatchRunner(format, new PipelinedParser(2, 8), 10);
+
+            assertEquals(25, runner.run(manifest, output, 25));
+            assertFalse(Files.exists(output));
+            assertTrue(Files.exists(CheckpointedBatchRunner.getCheckpointPath(output)));
+
+            /** a crash after the last checkpoint leaves uncommitted output behind */
+            Files.write(CheckpointedBatchRunner.getPartialPath(output),
+                        "{\"file_name\":\"torn".getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.APPEND);
+
+            assertEquals(100, runner.run(manifest, output));
+            assertEquals(expected(manifest, format), new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+            assertFalse(Files.exists(CheckpointedBatchRunner.getCheckpointPath(output)));
+            assertFalse(Files.exists(CheckpointedBatchRunner.getPartialPath(output)));
+        }
+    }
+
+    @Test
+    public void restartsWhenTheFormatChanges() throws Exception {
+        Path manifest = manifest();
+        Path output = folder.getRoot().toPath().resolve("out");
+        PipelinedParser parser = new PipelinedParser(2, 8);
+
+        new CheckpointedBatchRunner(Format.kFormatJson, parser, 10).run(manifest, output, 50);
+        assertEquals(100, new CheckpointedBatchRunner(Format.kFormatCsv, parser, 10).run(manifest, output));
+        assertEquals(expected(manifest, Format.kFormatCsv),
+                     new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+    }
+
+    private Path manifest() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) lines.add(String.format("[Gröup] Title %d - %02d [1080p].mkv", i % 9, i));
+        Path manifest = folder.newFile().toPath();
+        Files.write(manifest, lines, StandardCharsets.UTF_8);
+        return manifest;
+    }
+
+    private static String expected(Path manifest, Format format) throws Exception {
+        StringBuilder builder = new StringBuilder();
+        ElementWriter writer = new ElementWriter(builder, format);
+        writer.writeHeader();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            writer.write(line, AnitomyJ.parse(line));
+        }
+
+        return builder.toString();
+    }
+}
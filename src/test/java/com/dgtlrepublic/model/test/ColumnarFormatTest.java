@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodeNumber;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementReleaseGroup;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.ColumnarFormat;
+import com.dgtlrepublic.anitomyj.ColumnarFormat.ColumnType;
+import com.dgtlrepublic.anitomyj.ColumnarReader;
+import com.dgtlrepublic.anitomyj.ColumnarReader.Column;
+import com.dgtlrepublic.anitomyj.ColumnarWriter;
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
+/**
+ * Verifies that the {@link ColumnarWriter} and {@link ColumnarReader} round-trip every test case.
+ *
+ * @author Paul Miller
+ */
+public class ColumnarFormatTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsTestCases() throws Exception {
+        List<Map> testCases = TestCases.load();
+        List<List<Element>> rows = new ArrayList<>();
+        for (Map testCase : testCases) rows.add(AnitomyJ.parse((String) testCase.get("file_name")));
+
+        Path file = folder.getRoot().toPath().resolve("test-cases.anic");
+        try (ColumnarWriter writer = new ColumnarWriter(Files.newOutputStream(file), 16)) {
+            for (List<Element> row : rows) writer.write(row);
+        }
+
+        try (ColumnarReader reader = new ColumnarReader(file)) {
+            assertEquals(rows.size(), reader.getRowCount());
+            assertEquals((rows.size() + 15) / 16, reader.getRowGroupCount());
+
+            int first = 0;
+            for (int group = 0; group < reader.getRowGroupCount(); group++) {
+                for (ElementCategory category : ElementCategory.values()) {
+                    Column column = reader.getColumn(group, category);
+                    for (int row = 0; row < column.size(); row++) {
+                        assertEquals(category + " of " + rows.get(first + row),
+                                     expected(rows.get(first + row), category),
+                                     column.getValues(row));
+                    }
+                }
+                first += reader.getRowCount(group);
+            }
+        }
+    }
+
+    @Test
+    public void writesStatisticsAndDictionaries() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("episodes.anic");
+        try (ColumnarWriter writer = new ColumnarWriter(Files.newOutputStream(file), 4)) {
+            for (int episode = 1; episode <= 10; episode++) {
+                writer.write(AnitomyJ.parse(String.format("[Group%d] Title - %02d [1080p].mkv", episode % 2, episode)));
+            }
+            writer.write(AnitomyJ.parse("[Group0] Title - 11-12 [1080p].mkv"));
+        }
+
+        try (ColumnarReader reader = new ColumnarReader(file)) {
+            assertEquals(3, reader.getRowGroupCount());
+            assertEquals(ColumnType.kColumnInteger, reader.getColumnType(kElementEpisodeNumber));
+            assertEquals(OptionalInt.of(5), reader.getMinimum(1, kElementEpisodeNumber));
+            assertEquals(OptionalInt.of(8), reader.getMaximum(1, kElementEpisodeNumber));
+            assertFalse(reader.getMinimum(1, kElementReleaseGroup).isPresent());
+            assertEquals(2, reader.getDictionary(kElementReleaseGroup).size());
+
+            Column episodes = reader.getColumn(2, kElementEpisodeNumber);
+            assertTrue(episodes.isInteger(0));
+            assertEquals(9, episodes.getInt(0));
+            assertEquals("09", episodes.getString(0));
+            assertTrue(episodes.isInteger(1));
+            assertEquals("10", episodes.getString(1));
+            assertFalse(episodes.isInteger(2));
+            assertEquals("11" + ColumnarFormat.kValueSeparator + "12", episodes.getString(2));
+
+            Column groups = reader.getColumn(2, kElementReleaseGroup);
+            assertEquals("Group1", groups.getString(0));
+            assertEquals(groups.getCode(1), groups.getCode(2));
+        }
+    }
+
+    /** Returns the values of {@code category}. */
+    private static List<String> expected(List<Element> elements, ElementCategory category) {
+        List<String> values = new ArrayList<>();
+        for (Element element : elements) {
+            if (element.getCategory() == category) values.add(element.getValue());
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeTitle;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAudioTerm;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodeNumber;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementFileChecksum;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementSource;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementVideoResolution;
+import static com.dgtlrepublic.model.test.TestCases.describe;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+
+/**
+ * Verifies that parsing only a subset of element categories yields the same values as a full parse.
+ *
+ * @author Paul Miller
+ */
+public class DemandParsingTest {
+    @Test
+    public void demandParsingMatchesFullParse() throws Exception {
+        List<Map> testCases = TestCases.load();
+
+        List<EnumSet<ElementCategory>> demands = new ArrayList<>();
+        for (ElementCategory category : ElementCategory.values()) demands.add(EnumSet.of(category));
+        demands.add(EnumSet.of(kElementAnimeTitle, kElementEpisodeNumber, kElementFileChecksum));
+        demands.add(EnumSet.of(kElementSource, kElementAudioTerm, kElementVideoResolution));
+
+        for (Map testCase : testCases) {
+            String fileName = (String) testCase.get("file_name");
+            List<Element> full = AnitomyJ.parse(fileName);
+
+            for (EnumSet<ElementCategory> demand : demands) {
+                assertEquals(String.format("[%s] %s", fileName, demand),
+                             describe(full.stream()
+                                              .filter(e -> demand.contains(e.getCategory()))
+                                              .collect(Collectors.toList())),
+                             describe(AnitomyJ.parse(fileName, demand)));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeTitle;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAudioTerm;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodeNumber;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.ElementWriter;
+import com.dgtlrepublic.anitomyj.ElementWriter.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Verifies the escaping of the {@link ElementWriter}.
+ *
+ * @author Paul Miller
+ */
+public class ElementWriterTest {
+    private static final List<Element> kElements = Arrays.asList(new Element(kElementEpisodeNumber, "01"),
+                                                                 new Element(kElementAudioTerm, "AAC"),
+                                                                 new Element(kElementAnimeTitle, "A \"B\", C\\D\n\u0001 "),
+                                                                 new Element(kElementAudioTerm, "5.1;2.0"));
+
+    @Test
+    public void writesValidJson() throws Exception {
+        StringBuilder out = new StringBuilder();
+        new ElementWriter(out, Format.kFormatJson).write("file\t.mkv", kElements);
+
+        Map json = new ObjectMapper().readValue(out.toString(), Map.class);
+        assertEquals("file\t.mkv", json.get("file_name"));
+        assertEquals("A \"B\", C\\D\n\u0001 ", json.get("kElementAnimeTitle"));
+        assertEquals(Arrays.asList("AAC", "5.1;2.0"), json.get("kElementAudioTerm"));
+        assertEquals("01", json.get("kElementEpisodeNumber"));
+        assertEquals('\n', out.charAt(out.length() - 1));
+    }
+
+    @Test
+    public void writesQuotedCsv() throws Exception {
+        StringBuilder out = new StringBuilder();
+        ElementWriter writer = new ElementWriter(out,
+                                                 Format.kFormatCsv,
+                                                 EnumSet.of(kElementAnimeTitle, kElementAudioTerm, kElementEpisodeNumber));
+        writer.writeHeader();
+        writer.write("a,b.mkv", kElements);
+        writer.write("c.mkv", null);
+
+        assertEquals("file_name,kElementAnimeTitle,kElementAudioTerm,kElementEpisodeNumber\n" +
+                             "\"a,b.mkv\",\"A \"\"B\"\", C\\\\D\n\u0001 \",\"AAC;5.1\\;2.0\",01\n" +
+                             "c.mkv,,,\n",
+                     out.toString());
+    }
+
+    @Test
+    public void matchesParserOutput() throws Exception {
+        String fileName = "[Group] Title - 01 [1080p].mkv";
+        StringBuilder out = new StringBuilder();
+        new ElementWriter(out, Format.kFormatJson).write(fileName, AnitomyJ.parse(fileName));
+
+        Map json = new ObjectMapper().readValue(out.toString(), Map.class);
+        assertEquals("Title", json.get("kElementAnimeTitle"));
+        assertEquals("Group", json.get("kElementReleaseGroup"));
+        assertEquals("1080p", json.get("kElementVideoResolution"));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.anitomyj.EpisodePatternDispatcher.EpisodePattern.kFractionalEpisode;
+import static com.dgtlrepublic.anitomyj.EpisodePatternDispatcher.EpisodePattern.kNumberSign;
+import static com.dgtlrepublic.anitomyj.EpisodePatternDispatcher.EpisodePattern.kSeasonAndEpisode;
+import static com.dgtlrepublic.anitomyj.EpisodePatternDispatcher.EpisodePattern.kSingleEpisode;
+import static com.dgtlrepublic.anitomyj.EpisodePatternDispatcher.EpisodePattern.kTypeAndEpisode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.EpisodePatternDispatcher;
+import com.dgtlrepublic.anitomyj.EpisodePatternDispatcher.EpisodePattern;
+
+/**
+ * Verifies that the {@link EpisodePatternDispatcher} may reorder its patterns: no word is accepted by two reorderable
+ * patterns, and the parse results don't depend on the order.
+ *
+ * @author Paul Miller
+ */
+public class EpisodePatternDispatcherTest {
+    /** Fragments that episode words are made of. */
+    private static final List<String> kFragments = Arrays.asList(
+            "1", "01", "123", "2016", "v", "V", "x", "X", "e", "E", "s", "S", "#", "-", "~", "&", "+", ".", ".5", "a",
+            "C", "d", "\u8A71", "OVA", "ED", "EP");
+
+    @Test
+    public void reorderablePatternsAreMutuallyExclusive() throws Exception {
+        Set<String> words = new LinkedHashSet<>();
+        for (String fileName : fileNames()) words.addAll(Arrays.asList(fileName.split("[ _\\[\\]()|]+")));
+        generate("", 4, words);
+
+        EnumSet<EpisodePattern> accepted = EnumSet.noneOf(EpisodePattern.class);
+        for (String word : words) {
+            EpisodePattern previous = null;
+            for (EpisodePattern pattern : EpisodePattern.values()) {
+                if (!pattern.isReorderable() || !pattern.accepts(word)) continue;
+                assertTrue(word + " is accepted by " + previous + " and " + pattern, previous == null);
+                previous = pattern;
+                accepted.add(pattern);
+            }
+        }
+
+        // Every reorderable pattern was exercised
+        assertEquals(EnumSet.complementOf(EnumSet.of(kTypeAndEpisode)), accepted);
+    }
+
+    @Test
+    public void orderDoesNotChangeResults() throws Exception {
+        List<String> fileNames = fileNames();
+        EpisodePatternDispatcher dispatcher = EpisodePatternDispatcher.getInstance();
+        List<String> expected = fileNames.stream()
+                .map(fileName -> AnitomyJ.parse(fileName).toString())
+                .collect(Collectors.toList());
+
+        // Skew the counts towards patterns that come last by default, until the order is recomputed
+        long hits = dispatcher.getHitCount(kNumberSign);
+        for (int i = 1; i <= 10 * EpisodePatternDispatcher.kReorderInterval; i++) {
+            AnitomyJ.parse(String.format("[Group] Title #%02d [720p].mkv", i % 50 + 1));
+            AnitomyJ.parse(String.format("[Group] Title S01E%02d [720p].mkv", i % 50 + 1));
+        }
+
+        List<EpisodePattern> order = dispatcher.getOrder();
+        assertTrue(dispatcher.toString(), order.indexOf(kSeasonAndEpisode) < order.indexOf(kSingleEpisode));
+        assertTrue(dispatcher.toString(), order.indexOf(kNumberSign) < order.indexOf(kFractionalEpisode));
+        assertEquals(3, order.indexOf(kTypeAndEpisode));
+        assertEquals(10 * EpisodePatternDispatcher.kReorderInterval, dispatcher.getHitCount(kNumberSign) - hits);
+
+        for (int i = 0; i < fileNames.size(); i++) {
+            assertEquals(fileNames.get(i), expected.get(i), AnitomyJ.parse(fileNames.get(i)).toString());
+        }
+    }
+
+    private static List<String> fileNames() throws Exception {
+        return TestCases.fileNames();
+    }
+
+    /** Adds every concatenation of up to {@code depth} fragments to {@code words}. */
+    private static void generate(String prefix, int depth, Set<String> words) {
+        if (!prefix.isEmpty()) words.add(prefix);
+        if (depth == 0) return;
+        for (String fragment : kFragments) generate(prefix + fragment, depth - 1, words);
+    }
+}
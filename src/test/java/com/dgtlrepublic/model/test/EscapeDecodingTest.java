@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementFileName;
+import static com.dgtlrepublic.model.test.TestCases.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.Options;
+import com.dgtlrepublic.anitomyj.StringHelper;
+
+/**
+ * Verifies the decoding of percent-encoding and HTML character references in filenames from URLs and web pages.
+ *
+ * @author Paul Miller
+ */
+public class EscapeDecodingTest {
+    @Test
+    public void decodesEscapes() {
+        assertEquals("[Group] Tiger & Bunny - 01.mkv",
+                     StringHelper.decodeEscapes("%5BGroup%5D%20Tiger%20&amp;%20Bunny%20-%2001.mkv"));
+        assertEquals("Título - 01", StringHelper.decodeEscapes("T%C3%ADtulo - 01"));
+        assertEquals("Título - 01", StringHelper.decodeEscapes("T%EDtulo - 01"));
+
+        /** invalid bytes are decoded one at a time, without affecting the rest of the run */
+        assertEquals("éé ã\u0081 \uD83D\uDC31", StringHelper.decodeEscapes("%C3%A9%E9 %E3%81 %F0%9F%90%B1"));
+        assertEquals("\u00ed\u00a0\u0080", StringHelper.decodeEscapes("%ED%A0%80"));
+        assertEquals("\"A\" <B> 'C' D é 🐱",
+                     StringHelper.decodeEscapes("&quot;A&quot; &lt;B&gt; &#39;C&apos;&nbsp;D &#xE9; &#128049;"));
+
+        /** lone '&' and '+', and incomplete escapes, are left as is */
+        assertEquals("Tiger & Bunny+01 100% &foo; &#; &amp",
+                     StringHelper.decodeEscapes("Tiger & Bunny+01 100% &foo; &#; &amp"));
+        String plain = "[Group] Title - 01 [1080p].mkv";
+        assertSame(plain, StringHelper.decodeEscapes(plain));
+    }
+
+    @Test
+    public void parsesDecodedFilenames() {
+        Options options = new Options().withDecodeEscapes(true);
+        String[][] cases = {
+                {"%5BGroup%5D%20Tiger%20&amp;%20Bunny%20-%2001%20%5B1080p%5D.mkv",
+                        "[Group] Tiger & Bunny - 01 [1080p].mkv"},
+                {"[Group]+Title+-+02+[720p].mkv", "[Group]+Title+-+02+[720p].mkv"},
+                {"Title%20-%2003%20(BD%201920x1080%20FLAC)%2Emkv", "Title - 03 (BD 1920x1080 FLAC).mkv"},
+        };
+        for (String[] testCase : cases) {
+            assertEquals(testCase[0],
+                         describe(AnitomyJ.parse(testCase[1])),
+                         describe(AnitomyJ.parse(testCase[0], options)));
+        }
+
+        List<Element> elements = AnitomyJ.parse("Title%20-%2001.mkv", options);
+        assertEquals("Title - 01", elements.stream()
+                                           .filter(element -> element.getCategory() == kElementFileName)
+                                           .findFirst().get().getValue());
+
+        assertEquals(describe(AnitomyJ.parse("Title%20-%2001.mkv")),
+                     describe(AnitomyJ.parse("Title%20-%2001.mkv", new Options())));
+    }
+}
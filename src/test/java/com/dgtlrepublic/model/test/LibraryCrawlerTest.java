@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeSeason;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeYear;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementEpisodeNumber;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.LibraryCrawler;
+
+/**
+ * Verifies that the {@link LibraryCrawler} finds and parses every media file of a tree, and nothing else.
+ *
+ * @author Paul Miller
+ */
+public class LibraryCrawlerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void crawlsMediaFiles() throws Exception {
+        Path root = folder.getRoot().toPath();
+        for (int season = 1; season <= 3; season++) {
+            Path directory = Files.createDirectories(root.resolve("Show Name (2016)/Season " + season));
+            for (int episode = 1; episode <= 12; episode++) {
+                Files.createFile(directory.resolve(String.format("[Group] Show Name - %02d.mkv", episode)));
+                Files.createFile(directory.resolve(String.format("[Group] Show Name - %02d.ass", episode)));
+            }
+        }
+        Files.createFile(root.resolve("notes.txt"));
+
+        /** a directory named like a media file is descended into, not parsed */
+        Path extras = Files.createDirectories(root.resolve("Show Name (2016)/Extras S01.mkv"));
+        Files.createFile(extras.resolve("[Group] Show Name - NCOP.mkv"));
+
+        Map<Path, List<Element>> parsed = new ConcurrentHashMap<>();
+        LibraryCrawler.Progress progress = new LibraryCrawler(4, 5).crawl(root, parsed::put);
+
+        assertEquals(37, parsed.size());
+        assertEquals(37, progress.getMediaFiles());
+        assertEquals(74, progress.getFiles());
+        assertEquals(6, progress.getDirectories());
+        assertFalse(parsed.containsKey(extras));
+        assertTrue(parsed.containsKey(extras.resolve("[Group] Show Name - NCOP.mkv")));
+        assertEquals(0, progress.getErrors());
+
+        List<Element> elements = parsed.get(root.resolve("Show Name (2016)/Season 2/[Group] Show Name - 07.mkv"));
+        assertTrue(elements.toString(), elements.stream().anyMatch(e -> e.getCategory() == kElementEpisodeNumber
+                && e.getValue().equals("07")));
+        assertTrue(elements.toString(), elements.stream().anyMatch(e -> e.getCategory() == kElementAnimeSeason
+                && e.getValue().equals("2")));
+        assertTrue(elements.toString(), elements.stream().anyMatch(e -> e.getCategory() == kElementAnimeYear
+                && e.getValue().equals("2016")));
+    }
+
+    @Test
+    public void parsesLargeDirectoriesInParallel() throws Exception {
+        Path directory = Files.createDirectories(folder.getRoot().toPath().resolve("Show Name"));
+        for (int episode = 1; episode <= 200; episode++) {
+            Files.createFile(directory.resolve(String.format("[Group] Show Name - %03d.mkv", episode)));
+        }
+
+        /** the first parsed file waits until another worker parses a file, which only happens if batches are forked */
+        Map<Path, List<Element>> parsed = new ConcurrentHashMap<>();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch overlap = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean(true);
+        LibraryCrawler.Progress progress = new LibraryCrawler(4, 10).crawl(directory, (path, elements) -> {
+            parsed.put(path, elements);
+            threads.add(Thread.currentThread());
+            if (threads.size() > 1) overlap.countDown();
+            if (first.compareAndSet(true, false)) {
+                try {
+                    overlap.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        assertEquals(200, parsed.size());
+        assertEquals(200, progress.getMediaFiles());
+        assertEquals(1, progress.getDirectories());
+        assertTrue(threads.toString(), threads.size() > 1);
+    }
+
+    @Test
+    public void rejectsNonMediaFiles() {
+        assertTrue(LibraryCrawler.isMediaFile("Title - 01.mkv"));
+        assertTrue(LibraryCrawler.isMediaFile("Title - 01.MP4"));
+        assertFalse(LibraryCrawler.isMediaFile("Title - 01.ass"));
+        assertFalse(LibraryCrawler.isMediaFile("Title - 01.flac"));
+        assertFalse(LibraryCrawler.isMediaFile("Title - 01"));
+        assertFalse(LibraryCrawler.isMediaFile("Title.mkv."));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.MappedManifestReader;
+
+/**
+ * Verifies that the {@link MappedManifestReader} parses every line exactly once, across chunk and window boundaries.
+ *
+ * @author Paul Miller
+ */
+public class MappedManifestReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parsesEveryLine() throws Exception {
+        List<Map> testCases = TestCases.load();
+        List<String> fileNames = new ArrayList<>();
+        StringBuilder manifest = new StringBuilder();
+        for (int i = 0; i < testCases.size(); i++) {
+            String fileName = (String) testCases.get(i).get("file_name");
+            if (fileName.isEmpty() || fileNames.contains(fileName)) continue;
+            fileNames.add(fileName);
+            manifest.append(fileName).append(i % 3 == 0 ? "\r\n" : "\n");
+            if (i % 10 == 0) manifest.append('\n');
+        }
+        manifest.setLength(manifest.length() - 1);
+
+        Path path = folder.newFile("manifest.txt").toPath();
+        Files.write(path, manifest.toString().getBytes(StandardCharsets.UTF_8));
+
+        /** small chunks and windows, so that every line is near a boundary */
+        for (MappedManifestReader reader : Arrays.asList(new MappedManifestReader(),
+                                                         new MappedManifestReader(4, 100, 1000))) {
+            Map<String, List<Element>> parsed = new ConcurrentHashMap<>();
+            assertEquals(fileNames.size(), reader.parse(path, parsed::put));
+            assertEquals(fileNames.size(), parsed.size());
+            for (String fileName : fileNames) {
+                assertEquals(fileName, AnitomyJ.parse(fileName).toString(), parsed.get(fileName).toString());
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsLinesLongerThanTheWindow() throws Exception {
+        Path path = folder.newFile("manifest.txt").toPath();
+        char[] line = new char[2000];
+        Arrays.fill(line, 'a');
+        Files.write(path, (new String(line) + "\nTitle - 01.mkv\n").getBytes(StandardCharsets.UTF_8));
+        new MappedManifestReader(1, 100, 1000).forEachLine(path, buffer -> { });
+    }
+}
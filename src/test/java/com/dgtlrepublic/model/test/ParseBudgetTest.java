@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.model.test.TestCases.value;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+import com.dgtlrepublic.anitomyj.ParseBudget;
+import com.dgtlrepublic.anitomyj.ParseResult;
+
+/**
+ * Verifies that a {@link ParseBudget} truncates parses that exceed it, and leaves the others alone.
+ *
+ * @author Paul Miller
+ */
+public class ParseBudgetTest {
+    private static final String kFileName = "[HorribleSubs] Shingeki no Kyojin - 01 [1080p].mkv";
+
+    @Test
+    public void withinBudget() {
+        ParseResult result = AnitomyJ.parse(kFileName, new ParseBudget(256, 64, 1, TimeUnit.MINUTES));
+        assertFalse(result.isTruncated());
+        assertEquals(AnitomyJ.parse(kFileName).toString(), result.getElements().toString());
+    }
+
+    @Test
+    public void inputLengthExceeded() {
+        ParseResult result = AnitomyJ.parse(kFileName, new ParseBudget(15, 64, 0, TimeUnit.NANOSECONDS));
+        assertTrue(result.isTruncated());
+        assertEquals("[HorribleSubs] ", value(result.getElements(), ElementCategory.kElementFileName));
+        assertEquals("mkv", value(result.getElements(), ElementCategory.kElementFileExtension));
+    }
+
+    @Test
+    public void extensionNotCounted() {
+        ParseResult result = AnitomyJ.parse("Title - 01.mkv", new ParseBudget(10, 64, 0, TimeUnit.NANOSECONDS));
+        assertFalse(result.isTruncated());
+        assertEquals("Title - 01", value(result.getElements(), ElementCategory.kElementFileName));
+    }
+
+    @Test
+    public void tokenCountExceeded() {
+        StringBuilder fileName = new StringBuilder("Title");
+        for (int i = 0; i < 10000; i++) fileName.append(" [a]");
+
+        ParseResult result = AnitomyJ.parse(fileName.toString(), new ParseBudget(1 << 20, 100, 0, TimeUnit.SECONDS));
+        assertTrue(result.isTruncated());
+        assertEquals("Title", value(result.getElements(), ElementCategory.kElementAnimeTitle));
+    }
+
+    @Test
+    public void parseTimeExceeded() {
+        ParseResult result = AnitomyJ.parse(kFileName, new ParseBudget(256, 64, 1, TimeUnit.NANOSECONDS));
+        assertTrue(result.isTruncated());
+        assertEquals(null, value(result.getElements(), ElementCategory.kElementAnimeTitle));
+    }
+
+    @Test
+    public void tokenizeTimeExceeded() {
+        StringBuilder fileName = new StringBuilder("Title");
+        for (int i = 0; i < 100000; i++) fileName.append(" a");
+
+        ParseResult result = AnitomyJ.parse(fileName.toString(),
+                                            new ParseBudget(1 << 20, 1 << 20, 1, TimeUnit.NANOSECONDS));
+        assertTrue(result.isTruncated());
+        assertEquals(null, value(result.getElements(), ElementCategory.kElementAnimeTitle));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.ParseServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Verifies the endpoints and the admission control of the {@link ParseServer}.
+ *
+ * @author Paul Miller
+ */
+public class ParseServerTest {
+    private ParseServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ParseServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, null);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void parsesSingleNames() throws Exception {
+        String fileName = "[Group] Title & More - 01 [1080p].mkv";
+        HttpURLConnection connection = open("/parse?name=" + URLEncoder.encode(fileName, "UTF-8"));
+        assertEquals(200, connection.getResponseCode());
+
+        Map json = new ObjectMapper().readValue(read(connection.getInputStream()), Map.class);
+        assertEquals(fileName, json.get("file_name"));
+        assertEquals("Title & More", json.get("kElementAnimeTitle"));
+        assertEquals("01", json.get("kElementEpisodeNumber"));
+        assertNull(json.get("truncated"));
+    }
+
+    @Test
+    public void streamsBatches() throws Exception {
+        HttpURLConnection connection = open("/batch");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write("[A] One - 01.mkv\n[B] Two - 02.mkv\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] lines = read(connection.getInputStream()).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("One", new ObjectMapper().readValue(lines[0], Map.class).get("kElementAnimeTitle"));
+        assertEquals("Two", new ObjectMapper().readValue(lines[1], Map.class).get("kElementAnimeTitle"));
+    }
+
+    @Test
+    public void limitsBatches() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 70 * 1024; i++) body.append('a');
+        body.append("\r\n");
+        for (int i = 1; i <= 10000; i++) body.append("[A] One - ").append(i).append(".mkv\r\n");
+
+        HttpURLConnection connection = open("/batch");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(0);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] lines = read(connection.getInputStream()).split("\n");
+        assertEquals(10001, lines.length);
+        Map tooLong = new ObjectMapper().readValue(lines[0], Map.class);
+        assertEquals(64 * 1024, ((String) tooLong.get("file_name")).length());
+        assertEquals(true, tooLong.get("error"));
+        Map last = new ObjectMapper().readValue(lines[9999], Map.class);
+        assertEquals("[A] One - 9999.mkv", last.get("file_name"));
+        Map overflow = new ObjectMapper().readValue(lines[10000], Map.class);
+        assertNull(overflow.get("file_name"));
+        assertTrue(((String) overflow.get("error")).contains("too many lines"));
+    }
+
+    @Test
+    public void truncatesOverBudget() throws Exception {
+        StringBuilder fileName = new StringBuilder("[Group] Title - 01");
+        for (int i = 0; i < 8 * 1024; i++) fileName.append(" x");
+        fileName.append(".mkv");
+
+        HttpURLConnection connection = open("/parse");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(fileName.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(200, connection.getResponseCode());
+
+        Map json = new ObjectMapper().readValue(read(connection.getInputStream()), Map.class);
+        assertEquals(true, json.get("truncated"));
+        assertEquals("Group", json.get("kElementReleaseGroup"));
+        assertEquals(1, server.getTruncatedCount());
+
+        String metrics = read(open("/metrics").getInputStream());
+        assertTrue(metrics, metrics.contains("anitomyj_parse_truncated_total 1\n"));
+    }
+
+    @Test
+    public void rejectsRequestsOverTheLimit() throws Exception {
+        /** keep a batch request open, so it holds the only permit */
+        HttpURLConnection batch = open("/batch");
+        batch.setDoOutput(true);
+        batch.setChunkedStreamingMode(0);
+        OutputStream out = batch.getOutputStream();
+        out.write("[A] One - 01.mkv\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        for (int i = 0; i < 500 && server.getInFlightCount() == 0; i++) Thread.sleep(10);
+        assertEquals(1, server.getInFlightCount());
+
+        HttpURLConnection rejected = open("/parse?name=x.mkv");
+        assertEquals(429, rejected.getResponseCode());
+
+        out.close();
+        assertEquals(200, batch.getResponseCode());
+        read(batch.getInputStream());
+
+        String metrics = read(open("/metrics").getInputStream());
+        assertTrue(metrics, metrics.contains("anitomyj_requests_rejected_total 1\n"));
+        assertTrue(metrics, metrics.contains("anitomyj_parsed_total 1\n"));
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL("http://" + server.getAddress().getHostString() + ":"
+                                                   + server.getAddress().getPort() + path).openConnection();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read; (read = in.read(buffer)) != -1; ) out.write(buffer, 0, read);
+        in.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementAnimeTitle;
+import static com.dgtlrepublic.anitomyj.Element.ElementCategory.kElementReleaseGroup;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseAnimeTitle;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseEpisodeTitle;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseKeywords;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseReleaseGroup;
+import static com.dgtlrepublic.anitomyj.ParserPhase.kPhaseValidation;
+import static com.dgtlrepublic.model.test.TestCases.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.ParserPhase;
+import com.dgtlrepublic.anitomyj.ParserPipeline;
+import com.dgtlrepublic.anitomyj.ParserStage;
+import com.dgtlrepublic.anitomyj.TokenView;
+
+/**
+ * Verifies the {@link ParserPipeline} methods, custom {@link ParserStage}s, and that the default pipeline still parses
+ * every test case as expected.
+ *
+ * @author Paul Miller
+ */
+public class ParserPipelineTest {
+    private static final String kFileName = "[Group] Title - 01 - Episode Title [1080p].mkv";
+
+    @Test
+    public void derivesPipelines() {
+        ParserPipeline pipeline = ParserPipeline.getDefault();
+        ParserStage first = parser -> true;
+        ParserStage last = parser -> true;
+        ParserStage before = parser -> true;
+        ParserStage after = parser -> true;
+
+        assertEquals(Arrays.asList(ParserPhase.values()), pipeline.getStages());
+
+        ParserPipeline derived = pipeline.prepend(first)
+                .append(last)
+                .insertBefore(kPhaseReleaseGroup, before)
+                .insertAfter(kPhaseReleaseGroup, after)
+                .without(kPhaseEpisodeTitle);
+        List<ParserStage> stages = derived.getStages();
+        assertEquals(first, stages.get(0));
+        assertEquals(last, stages.get(stages.size() - 1));
+        assertEquals(before, stages.get(stages.indexOf(kPhaseReleaseGroup) - 1));
+        assertEquals(after, stages.get(stages.indexOf(kPhaseReleaseGroup) + 1));
+        assertFalse(stages.contains(kPhaseEpisodeTitle));
+        assertEquals(ParserPhase.values().length + 3, stages.size());
+
+        // The original is left untouched
+        assertEquals(Arrays.asList(ParserPhase.values()), pipeline.getStages());
+
+        try {
+            derived.without(kPhaseEpisodeTitle);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            stages.add(last);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void runsCustomStages() {
+        // A stage that sets the release group first, so that the built-in phase skips it
+        ParserPipeline known = ParserPipeline.getDefault().insertBefore(kPhaseReleaseGroup, parser -> {
+            parser.getElements().add(new Element(kElementReleaseGroup, "Known"));
+            return true;
+        });
+        assertTrue(describe(AnitomyJ.parse(kFileName, known)).contains("kElementReleaseGroup=Known"));
+        assertFalse(describe(AnitomyJ.parse(kFileName, known)).contains("kElementReleaseGroup=Group"));
+
+        // A stage that rewrites the elements found by the built-in phases
+        ParserPipeline upper = ParserPipeline.getDefault().append(parser -> {
+            List<Element> elements = parser.getElements();
+            for (int i = 0; i < elements.size(); i++) {
+                Element element = elements.get(i);
+                if (element.getCategory() == kElementAnimeTitle) {
+                    elements.set(i, new Element(kElementAnimeTitle, element.getValue().toUpperCase(Locale.ENGLISH)));
+                }
+            }
+            return true;
+        });
+        assertTrue(describe(AnitomyJ.parse(kFileName, upper)).contains("kElementAnimeTitle=TITLE"));
+
+        // A stage that reads the tokens, but can't change them
+        List<String> enclosed = new ArrayList<>();
+        ParserPipeline reader = ParserPipeline.getDefault().append(parser -> {
+            for (TokenView token : parser.getTokenViews()) {
+                if (token.isEnclosed() && !token.isBracket()) enclosed.add(token.getContent());
+            }
+            try {
+                parser.getTokenViews().clear();
+                fail();
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+            return true;
+        });
+        AnitomyJ.parse(kFileName, reader);
+        assertEquals(Arrays.asList("Group", "1080p"), enclosed);
+
+        // A stage that stops the pipeline once the keywords are found
+        ParserPipeline stopped = ParserPipeline.getDefault().insertAfter(kPhaseKeywords, parser -> false);
+        List<String> elements = describe(AnitomyJ.parse(kFileName, stopped));
+        assertFalse(elements.toString(), elements.stream().anyMatch(e -> e.startsWith("kElementAnimeTitle=")));
+        assertTrue(elements.toString(), elements.contains("kElementVideoResolution=1080p"));
+    }
+
+    @Test
+    public void identifiesTokens() {
+        // A stage that claims an unbracketed release group before the title is searched for
+        ParserPipeline known = ParserPipeline.getDefault().insertBefore(kPhaseAnimeTitle, parser -> {
+            for (TokenView token : parser.getTokenViews()) {
+                if (token.isUnknown() && token.getContent().equals("Known")) {
+                    parser.identify(token, kElementReleaseGroup);
+                    try {
+                        parser.identify(token, kElementReleaseGroup);
+                        fail();
+                    } catch (IllegalArgumentException e) {
+                        // expected
+                    }
+                    break;
+                }
+            }
+            return true;
+        });
+
+        assertTrue(describe(AnitomyJ.parse("Known Title - 01 [720p].mkv")).contains("kElementAnimeTitle=Known Title"));
+        assertTrue(describe(AnitomyJ.parse("Title - 01 [720p] Known.mkv")).contains("kElementEpisodeTitle=Known"));
+
+        List<String> leading = describe(AnitomyJ.parse("Known Title - 01 [720p].mkv", known));
+        assertTrue(leading.toString(), leading.contains("kElementReleaseGroup=Known"));
+        assertTrue(leading.toString(), leading.contains("kElementAnimeTitle=Title"));
+        assertFalse(leading.toString(), leading.contains("kElementAnimeTitle=Known Title"));
+
+        List<String> trailing = describe(AnitomyJ.parse("Title - 01 [720p] Known.mkv", known));
+        assertTrue(trailing.toString(), trailing.contains("kElementReleaseGroup=Known"));
+        assertTrue(trailing.toString(), trailing.contains("kElementAnimeTitle=Title"));
+        assertFalse(trailing.toString(), trailing.contains("kElementEpisodeTitle=Known"));
+
+        // Tokens of another parse are rejected
+        List<TokenView> previous = new ArrayList<>();
+        AnitomyJ.parse(kFileName, ParserPipeline.getDefault().prepend(parser -> {
+            previous.addAll(parser.getTokenViews());
+            return true;
+        }));
+        ParserPipeline foreign = ParserPipeline.getDefault().prepend(parser -> {
+            try {
+                parser.identify(previous.get(0), kElementReleaseGroup);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            return true;
+        });
+        AnitomyJ.parse(kFileName, foreign);
+    }
+
+    @Test
+    public void defaultPipelineParsesTestCases() throws Exception {
+        ParserPipeline rebuilt = ParserPipeline.getDefault()
+                .without(kPhaseValidation)
+                .append(kPhaseValidation);
+        for (Map testCase : TestCases.load()) {
+            String fileName = (String) testCase.get("file_name");
+            List<Element> elements = AnitomyJ.parse(fileName, ParserPipeline.getDefault());
+            assertEquals(fileName, describe(AnitomyJ.parse(fileName)), describe(elements));
+            assertEquals(fileName, describe(elements), describe(AnitomyJ.parse(fileName, rebuilt)));
+
+            if (Boolean.TRUE.equals(testCase.get("ignore"))) continue;
+            Map<String, List<String>> values = new HashMap<>();
+            for (Element element : elements) {
+                values.computeIfAbsent(element.getCategory().name(), k -> new ArrayList<>()).add(element.getValue());
+            }
+
+            Map<?, ?> expected = (Map<?, ?>) testCase.getOrDefault("results", new HashMap<>());
+            for (Map.Entry<?, ?> entry : expected.entrySet()) {
+                List<String> actual = values.getOrDefault(entry.getKey(), new ArrayList<>());
+                boolean found = entry.getValue() instanceof Collection
+                                ? actual.containsAll((Collection<?>) entry.getValue())
+                                : actual.contains(entry.getValue());
+                assertTrue(fileName + ": " + entry + " not in " + actual, found);
+            }
+        }
+    }
+}
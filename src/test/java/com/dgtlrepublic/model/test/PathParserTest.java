@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.model.test.TestCases.value;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+import com.dgtlrepublic.anitomyj.PathParser;
+
+/**
+ * Verifies that the {@link PathParser} uses directories as context, and parses each directory once.
+ *
+ * @author Paul Miller
+ */
+public class PathParserTest {
+    @Test
+    public void directoriesProvideFallbacks() {
+        PathParser parser = new PathParser();
+
+        List<Element> elements = parser.parse("/library/Show Name (2016)/Season 2/[Group] Other Name - 05.mkv");
+        assertEquals("Other Name", value(elements, ElementCategory.kElementAnimeTitle));
+        assertEquals("05", value(elements, ElementCategory.kElementEpisodeNumber));
+        assertEquals("2", value(elements, ElementCategory.kElementAnimeSeason));
+        assertEquals("2016", value(elements, ElementCategory.kElementAnimeYear));
+
+        elements = parser.parse("D:\\library\\Show Name (2016)\\Specials\\05.mkv");
+        assertEquals("Show Name", value(elements, ElementCategory.kElementAnimeTitle));
+        assertEquals("05", value(elements, ElementCategory.kElementEpisodeNumber));
+        assertEquals("2016", value(elements, ElementCategory.kElementAnimeYear));
+
+        elements = parser.parse("/library/Show Name/Specials/OVA 01.mkv");
+        assertEquals("Show Name", value(elements, ElementCategory.kElementAnimeTitle));
+        assertEquals("OVA", value(elements, ElementCategory.kElementAnimeType));
+        assertEquals("01", value(elements, ElementCategory.kElementEpisodeNumber));
+
+        elements = parser.parse("[Group] Show Name - 05.mkv");
+        assertEquals("Show Name", value(elements, ElementCategory.kElementAnimeTitle));
+        assertEquals(null, value(elements, ElementCategory.kElementAnimeYear));
+    }
+
+    @Test
+    public void directoriesAreParsedOnce() {
+        PathParser parser = new PathParser();
+        for (int episode = 1; episode <= 500; episode++) {
+            parser.parse(String.format("/library/Show Name (2016)/[Group] Show Name - %03d.mkv", episode));
+        }
+
+        assertEquals(1, parser.getMissCount());
+        assertEquals(499, parser.getHitCount());
+    }
+}
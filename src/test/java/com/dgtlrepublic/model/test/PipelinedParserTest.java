@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.model.test.TestCases.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.PipelinedParser;
+
+/**
+ * Verifies that the {@link PipelinedParser} writes the same results as the sequential parser, in input order.
+ *
+ * @author Paul Miller
+ */
+public class PipelinedParserTest {
+    @Test
+    public void parsesInOrder() throws Exception {
+        List<String> testCases = TestCases.fileNames();
+        List<String> fileNames = new ArrayList<>();
+        for (int round = 0; round < 20; round++) {
+            fileNames.addAll(testCases);
+        }
+
+        List<String> fileNamesOut = new ArrayList<>();
+        List<List<String>> results = new ArrayList<>();
+        long count = new PipelinedParser(3, 8).parse(fileNames.iterator(), (fileName, elements) -> {
+            fileNamesOut.add(fileName);
+            results.add(describe(elements));
+        });
+
+        assertEquals(fileNames.size(), count);
+        assertEquals(fileNames, fileNamesOut);
+        for (int i = 0; i < fileNames.size(); i++) {
+            assertEquals(fileNames.get(i), describe(AnitomyJ.parse(fileNames.get(i))), results.get(i));
+        }
+    }
+
+    @Test
+    public void propagatesSinkFailures() throws Exception {
+        List<String> fileNames = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) fileNames.add("[Group] Title - " + i + ".mkv");
+
+        try {
+            new PipelinedParser(2, 4).parse(fileNames.iterator(), (fileName, elements) -> {
+                if (fileName.contains(" 500.")) throw new IOException("disk full");
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.model.test.TestCases.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.ParserPipeline;
+import com.dgtlrepublic.anitomyj.ReleaseGroupTemplates;
+
+/**
+ * Verifies that filenames parsed with a learned {@link ReleaseGroupTemplates} template equal the full parse.
+ *
+ * @author Paul Miller
+ */
+public class ReleaseGroupTemplatesTest {
+    private static final String[] kFormats = {
+            "[HorribleSubs] Shingeki no Kyojin - %02d [1080p].mkv",
+            "[Commie] Kill la Kill - %02d [BD 720p AAC] [%08X].mkv",
+            "[FFF] Nisekoi - %02d [%08X].mkv",
+            "[Coalgirls]_Toradora!_%02d_(1280x720_Blu-Ray_FLAC)_[%08X].mkv",
+            "[gg]_Kimi_ni_Todoke_2nd_Season_-_%02d_[%08X].mkv",
+            "[Group] Title - %02d - Episode Title [1080p].mkv",
+            "[UTW]_Fate_Zero_-_%02d_[BD][h264-720p][%08X].mkv",
+            "[Group] Title %s - 01 [1080p].mkv",
+            "[Group] Title - %s [1080p].mkv",
+    };
+
+    @Test
+    public void templatesMatchFullParse() throws Exception {
+        ReleaseGroupTemplates templates = new ReleaseGroupTemplates(3, 64, 8, 1000, 1000);
+        ParserPipeline pipeline = templates.install(ParserPipeline.getDefault());
+
+        List<String> fileNames = new ArrayList<>();
+        for (int episode = 1; episode <= 24; episode++) {
+            for (String format : kFormats) {
+                Object value = format.contains("%s") ? (episode % 2 == 0 ? "Word" : "S" + episode) : episode;
+                fileNames.add(String.format(format, value, 0x1000000 * episode + 0xABCDEF));
+            }
+        }
+
+        List<Map> testCases = TestCases.load();
+        for (Map testCase : testCases) {
+            for (int i = 0; i < 4; i++) fileNames.add((String) testCase.get("file_name"));
+        }
+
+        for (String fileName : fileNames) {
+            assertEquals(fileName, describe(AnitomyJ.parse(fileName)), describe(AnitomyJ.parse(fileName, pipeline)));
+        }
+
+        assertTrue(templates.toString(), templates.getLearnedCount() > 0);
+        assertTrue(templates.toString(), templates.getHitCount() > 0);
+        assertTrue(templates.toString(), templates.getHitCount() + templates.getMissCount() <= fileNames.size());
+        assertTrue(templates.toString(), templates.getInvalidatedCount() <= templates.getLearnedCount());
+    }
+
+    @Test
+    public void isolatedResolutionsAreNotEpisodeNumbers() {
+        ReleaseGroupTemplates templates = new ReleaseGroupTemplates(3, 64, 8, 1000, 1000);
+        ParserPipeline pipeline = templates.install(ParserPipeline.getDefault());
+
+        for (int episode = 1; episode <= 12; episode++) {
+            AnitomyJ.parse(String.format("[Grp] Title [%02d][%08X].mkv", episode, 0xABCD1200 + episode), pipeline);
+            AnitomyJ.parse(String.format("[Grp] Title (%02d).mkv", episode), pipeline);
+        }
+        assertTrue(templates.getHitCount() > 0);
+
+        for (String fileName : new String[]{"[Grp] Title [720][ABCD1234].mkv", "[Grp] Title (480).mkv",
+                                            "[Grp] Title (1998).mkv"}) {
+            List<String> elements = describe(AnitomyJ.parse(fileName, pipeline));
+            assertEquals(fileName, describe(AnitomyJ.parse(fileName)), elements);
+            assertFalse(fileName, elements.stream().anyMatch(e -> e.startsWith("kElementEpisodeNumber=")));
+        }
+    }
+}
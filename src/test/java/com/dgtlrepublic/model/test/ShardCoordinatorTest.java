@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.model.test.TestCases.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.ShardCoordinator;
+
+/**
+ * Verifies that the {@link ShardCoordinator} returns the results of its worker processes in manifest order, and
+ * retries shards whose worker failed.
+ *
+ * @author Paul Miller
+ */
+public class ShardCoordinatorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parsesInManifestOrder() throws Exception {
+        List<String> fileNames = fileNames();
+        check(new ShardCoordinator(2, 50), fileNames);
+    }
+
+    @Test
+    public void retriesFailedWorkers() throws Exception {
+        assumeTrue(new File("/bin/sh").canExecute());
+
+        /** the first worker exits before saying hello */
+        File marker = new File(folder.getRoot(), "started");
+        List<String> command = new ArrayList<>(Arrays.asList("/bin/sh", "-c",
+                                                             "if [ ! -f \"$0\" ]; then touch \"$0\"; exit 1; fi; "
+                                                                     + "exec \"$@\"",
+                                                             marker.getPath()));
+        command.addAll(ShardCoordinator.defaultWorkerCommand());
+
+        check(new ShardCoordinator(command, 1, 100), fileNames());
+    }
+
+    private static void check(ShardCoordinator coordinator, List<String> fileNames) throws Exception {
+        List<String> fileNamesOut = new ArrayList<>();
+        List<List<String>> results = new ArrayList<>();
+        long count = coordinator.run(fileNames.iterator(), (fileName, elements) -> {
+            fileNamesOut.add(fileName);
+            results.add(describe(elements));
+        });
+
+        assertEquals(fileNames.size(), count);
+        assertEquals(fileNames, fileNamesOut);
+        for (int i = 0; i < fileNames.size(); i++) {
+            assertEquals(fileNames.get(i), describe(AnitomyJ.parse(fileNames.get(i))), results.get(i));
+        }
+    }
+
+    private static List<String> fileNames() throws Exception {
+        List<String> testCases = TestCases.fileNames();
+        List<String> fileNames = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            fileNames.addAll(testCases);
+        }
+
+        return fileNames;
+    }
+}
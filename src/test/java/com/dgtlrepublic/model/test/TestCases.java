@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Shared helpers for the tests and benchmarks: loads <i>test-cases.json</i>, describes parse results in a comparable
+ * form, and looks up element values.
+ *
+ * @author Paul Miller
+ */
+public class TestCases {
+    private TestCases() {}
+
+    /** Returns every test case of <i>test-cases.json</i>. */
+    public static List<Map> load() throws IOException {
+        return new ObjectMapper().readValue(new File(TestCases.class.getResource("/test-cases.json").getPath()),
+                                            new TypeReference<List<Map>>() { });
+    }
+
+    /** Returns the file name of every test case, in order. */
+    public static List<String> fileNames() throws IOException {
+        return load().stream().map(testCase -> (String) testCase.get("file_name")).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the {@code category=value} pairs of {@code elements}, in order. {@link Element#equals(Object)} only
+     * compares categories, so results are compared through this instead.
+     */
+    public static List<String> describe(List<Element> elements) {
+        return elements.stream().map(e -> e.getCategory() + "=" + e.getValue()).collect(Collectors.toList());
+    }
+
+    /** Returns the value of the first element of a {@code category}; null if there's none. */
+    public static String value(List<Element> elements, ElementCategory category) {
+        for (Element element : elements) {
+            if (element.getCategory() == category) return element.getValue();
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.model.test.TestCases.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.TieredParser;
+
+/**
+ * Verifies that the first tier of the {@link TieredParser} is equivalent to the full parser.
+ *
+ * @author Paul Miller
+ */
+public class TieredParserTest {
+    @Test
+    public void fastPathMatchesFullParse() throws Exception {
+        List<String> fileNames = new ArrayList<>(TestCases.fileNames());
+        fileNames.addAll(Arrays.asList("[HorribleSubs] Shingeki no Kyojin - 01 [1080p].mkv",
+                                       "[Commie] Kill la Kill - 24 [BD 720p AAC] [0F7D7A8D].mkv",
+                                       "[FFF] Nisekoi - 03 [D9A2ED56].mkv",
+                                       "[Group Name] Some Title! - 123 [1920x1080 x264 FLAC][ABCD1234].mp4",
+                                       "Steins Gate - 08 (BD 1080p).mkv",
+                                       "Non Non Biyori - 01 (BD 1080p Hi10P FLAC) [DEADBEEF].mkv",
+                                       "[Group] Title - 01 [1080p][720p].mkv",
+                                       "[Group] Title - 01 [H.264 1080p].mkv",
+                                       "[Group] Special Title - 01 [1080p].mkv",
+                                       "[Thora] Title - 01 [1080p].mkv",
+                                       "[Group] Title - 01 [1080p 1080p].mkv",
+                                       "[Group] Title - 01 [ABCD1234][12345678].mkv",
+                                       "[Group] Title - 01v2 [1080p].mkv",
+                                       "[Group] Title - 01 - Episode Title [1080p].mkv"));
+
+        TieredParser parser = new TieredParser();
+        int matched = 0;
+        for (String fileName : fileNames) {
+            List<Element> fastPath = parser.parseFastPath(fileName);
+            if (fastPath == null) continue;
+            assertEquals(fileName, describe(AnitomyJ.parse(fileName)), describe(fastPath));
+            matched++;
+        }
+
+        assertEquals(matched, parser.getFastPathCount());
+        assertTrue(parser.toString(), parser.getFastPathCount() > 0);
+        assertEquals(0, parser.getFallbackCount());
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.TokenClassifier;
+
+/**
+ * Verifies that memoized token classifications give the same results as classifying every token from scratch.
+ *
+ * @author Paul Miller
+ */
+public class TokenClassifierTest {
+    @Test
+    public void memoizedResultsMatch() throws Exception {
+        List<String> fileNames = TestCases.fileNames();
+
+        TokenClassifier classifier = TokenClassifier.getInstance();
+        List<String> expected = new ArrayList<>();
+        try {
+            classifier.setEnabled(false);
+            for (String fileName : fileNames) expected.add(AnitomyJ.parse(fileName).toString());
+        } finally {
+            classifier.setEnabled(true);
+        }
+
+        classifier.clear();
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < fileNames.size(); i++) {
+                assertEquals(fileNames.get(i), expected.get(i), AnitomyJ.parse(fileNames.get(i)).toString());
+            }
+        }
+
+        assertTrue(classifier.toString(), classifier.getHitRate() > 0.5);
+        assertTrue(classifier.toString(), classifier.getPatternHitCount() > 0);
+        assertTrue(classifier.size() <= TokenClassifier.kDefaultMaxEntries);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.ParserHelper;
+import com.dgtlrepublic.anitomyj.ParserPipeline;
+import com.dgtlrepublic.anitomyj.StringHelper;
+import com.dgtlrepublic.anitomyj.TokenShape;
+import com.dgtlrepublic.anitomyj.TokenView;
+
+/**
+ * Verifies that every answer of a {@link TokenShape} is the same as the one of the string helper it replaces.
+ *
+ * @author Paul Miller
+ */
+public class TokenShapeTest {
+    private static final List<String> kEdgeCases = Arrays.asList(
+            "", "0", "01", "+1", "-1", "+", "-", "1-", "2147483647", "2147483648", "-2147483648", "-2147483649",
+            "99999999999", "١٢", "１２", "1080p", "1080P", "720p", "10p", "1920x1080", "1920X1080",
+            "1920×1080", "19x1080", "x1080", "ABCDEF01", "abcdef0g", "DEADBEEF", "deadbee", "v2", "01v2", "S01E02",
+            "日本", "日a", "a日本", "éè", "ɐ", " ", "a b", "1.5");
+
+    @Test
+    public void matchesStringHelpers() throws Exception {
+        List<Map> testCases = TestCases.load();
+        List<String> words = new ArrayList<>(kEdgeCases);
+        for (Map testCase : testCases) {
+            words.addAll(Arrays.asList(((String) testCase.get("file_name")).split("[ _.\\[\\]()&+,|-]+")));
+        }
+
+        for (String word : words) {
+            TokenShape shape = TokenShape.of(word);
+            assertEquals(word, StringHelper.isNumericString(word), shape.isNumeric());
+            assertEquals(word, StringHelper.isAlphanumericString(word), shape.isAlphanumeric());
+            assertEquals(word, StringHelper.isHexadecimalString(word), shape.isHexadecimal());
+            assertEquals(word, ParserHelper.isCrc32(word), shape.isCrc32());
+            assertEquals(word, ParserHelper.isResolution(word), shape.isResolution());
+            assertEquals(word, ParserHelper.indexOfFirstDigit(word), shape.indexOfFirstDigit());
+            assertEquals(word, StringHelper.stringToInt(word), shape.toInt());
+            assertEquals(word, parseInt(word), StringHelper.stringToInt(word));
+            if (!word.isEmpty()) assertEquals(word, StringHelper.isMostlyLatinString(word), shape.isMostlyLatin());
+        }
+    }
+
+    @Test
+    public void followsTokenContent() {
+        // The episode number phase splits "ED02" into the keyword "ED" and the number "02"
+        Map<String, TokenShape> shapes = new HashMap<>();
+        AnitomyJ.parse("[Group] Title ED02 [1080p].mkv", ParserPipeline.getDefault().append(parser -> {
+            for (TokenView token : parser.getTokenViews()) shapes.put(token.getContent(), token.getShape());
+            return true;
+        }));
+
+        assertEquals(-1, shapes.get("Title").indexOfFirstDigit());
+        assertEquals(true, shapes.get("02").isNumeric());
+        assertEquals(2, shapes.get("02").toInt());
+    }
+
+    private static int parseInt(String string) {
+        try {
+            return Integer.parseInt(string);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
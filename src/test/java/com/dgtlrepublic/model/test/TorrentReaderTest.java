@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.model.test.TestCases.value;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.Element.ElementCategory;
+import com.dgtlrepublic.anitomyj.TorrentReader;
+
+/**
+ * Verifies that the {@link TorrentReader} extracts the file lists of torrents, and parses them with the torrent name
+ * as context.
+ *
+ * @author Paul Miller
+ */
+public class TorrentReaderTest {
+    @Test
+    public void readsBatchTorrents() throws Exception {
+        List<Object> files = new ArrayList<>();
+        for (int episode = 1; episode <= 12; episode++) {
+            files.add(file(1 << 28, "Season 2", String.format("%02d.mkv", episode)));
+        }
+        files.add(file(1024, "Season 2", "Extras", "Notes.txt"));
+        Map<String, Object> padding = file(12345, ".pad", "12345");
+        padding.put("attr", "p");
+        files.add(padding);
+
+        byte[] torrent = torrent("Show Name (2016)", files);
+        TorrentReader.TorrentFiles torrentFiles = TorrentReader.readFiles(new ByteArrayInputStream(torrent));
+        assertEquals("Show Name (2016)", torrentFiles.getName());
+        assertEquals(13, torrentFiles.getPaths().size());
+        assertEquals("Show Name (2016)/Season 2/01.mkv", torrentFiles.getPaths().get(0));
+
+        Map<String, List<Element>> parsed = new LinkedHashMap<>();
+        assertEquals(12, new TorrentReader().parse(new ByteArrayInputStream(torrent), parsed::put));
+        List<Element> elements = parsed.get("Show Name (2016)/Season 2/07.mkv");
+        assertEquals("Show Name", value(elements, ElementCategory.kElementAnimeTitle));
+        assertEquals("07", value(elements, ElementCategory.kElementEpisodeNumber));
+        assertEquals("2", value(elements, ElementCategory.kElementAnimeSeason));
+        assertEquals("2016", value(elements, ElementCategory.kElementAnimeYear));
+    }
+
+    @Test
+    public void readsSingleFileTorrents() throws Exception {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("length", 1L << 30);
+        info.put("name", "[Group] Show Name - 05 [1080p].mkv");
+        info.put("piece length", 1L << 20);
+        info.put("pieces", new byte[20 * 1024]);
+
+        Map<String, List<Element>> parsed = new LinkedHashMap<>();
+        assertEquals(1, new TorrentReader().parse(new ByteArrayInputStream(encode(torrent(info))), parsed::put));
+        List<Element> elements = parsed.get("[Group] Show Name - 05 [1080p].mkv");
+        assertEquals("05", value(elements, ElementCategory.kElementEpisodeNumber));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedTorrents() throws Exception {
+        byte[] torrent = torrent("Show Name", Arrays.asList(file(1, "01.mkv")));
+        TorrentReader.readFiles(new ByteArrayInputStream(Arrays.copyOf(torrent, torrent.length / 2)));
+    }
+
+    private static Map<String, Object> file(long length, String... path) {
+        Map<String, Object> file = new LinkedHashMap<>();
+        file.put("length", length);
+        file.put("path", Arrays.asList(path));
+        return file;
+    }
+
+    private static byte[] torrent(String name, List<Object> files) throws IOException {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("files", files);
+        info.put("name", name);
+        info.put("piece length", 1L << 20);
+        info.put("pieces", new byte[20 * 4096]);
+        return encode(torrent(info));
+    }
+
+    private static Map<String, Object> torrent(Map<String, Object> info) {
+        Map<String, Object> torrent = new LinkedHashMap<>();
+        torrent.put("announce", "http://tracker.example.com/announce");
+        torrent.put("announce-list", Arrays.asList(Arrays.asList("http://tracker.example.com/announce")));
+        torrent.put("creation date", 1470000000L);
+        torrent.put("info", info);
+        torrent.put("url-list", Arrays.asList("http://example.com/"));
+        return torrent;
+    }
+
+    /** Bencodes strings, byte arrays, longs, lists and maps(whose keys are expected in sorted order). */
+    private static byte[] encode(Object value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encode(value, out);
+        return out.toByteArray();
+    }
+
+    private static void encode(Object value, ByteArrayOutputStream out) throws IOException {
+        if (value instanceof String) {
+            encode(((String) value).getBytes(StandardCharsets.UTF_8), out);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.write((bytes.length + ":").getBytes(StandardCharsets.US_ASCII));
+            out.write(bytes);
+        } else if (value instanceof Long) {
+            out.write(("i" + value + "e").getBytes(StandardCharsets.US_ASCII));
+        } else if (value instanceof List) {
+            out.write('l');
+            for (Object item : (List<?>) value) encode(item, out);
+            out.write('e');
+        } else {
+            out.write('d');
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                encode(entry.getKey(), out);
+                encode(entry.getValue(), out);
+            }
+            out.write('e');
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.StringHelper;
+
+/**
+ * Verifies that UTF-8 encoded filenames decode to the strings they were encoded from.
+ *
+ * @author Paul Miller
+ */
+public class Utf8DecodingTest {
+    @Test
+    public void decodesUtf8() throws Exception {
+        List<Map> testCases = TestCases.load();
+
+        for (Map testCase : testCases) {
+            String fileName = (String) testCase.get("file_name");
+
+            /** surround the filename with padding, so that offsets are exercised */
+            byte[] encoded = fileName.getBytes(StandardCharsets.UTF_8);
+            byte[] padded = new byte[encoded.length + 6];
+            System.arraycopy(encoded, 0, padded, 3, encoded.length);
+            assertEquals(fileName, StringHelper.fromUtf8(padded, 3, encoded.length));
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(padded.length);
+            direct.put(padded).position(3).limit(3 + encoded.length);
+            assertEquals(fileName, StringHelper.fromUtf8(direct));
+            assertEquals(3, direct.position());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.model.test.TestCases.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.text.Normalizer;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.Options;
+import com.dgtlrepublic.anitomyj.StringHelper;
+
+/**
+ * Verifies that fullwidth and compatibility characters are folded like NFKC would, and that ASCII input is left alone.
+ *
+ * @author Paul Miller
+ */
+public class WidthFoldingTest {
+    @Test
+    public void foldsLikeNfkc() {
+        String fullwidth = "［Ｇｒｏｕｐ］　Ｔｉｔｌｅ　－　０１　（ＢＤ　１０８０ｐ）．ｍｋｖ ｶﾀｶﾅ ①";
+        assertEquals(Normalizer.normalize(fullwidth, Normalizer.Form.NFKC), StringHelper.foldWidth(fullwidth));
+
+        /** halfwidth (semi-)voiced sound marks are composed with the kana before them */
+        fullwidth = "ｶﾞｷﾞﾊﾟｳﾞ かﾞ ﾞ ｱﾟ";
+        assertEquals(Normalizer.normalize(fullwidth, Normalizer.Form.NFKC), StringHelper.foldWidth(fullwidth));
+
+        /** characters that NFKC expands are left as is */
+        assertEquals("Title ½", StringHelper.foldWidth("Ｔｉｔｌｅ ½"));
+
+        String ascii = "[Group] Title - 01 [1080p].mkv";
+        assertTrue(StringHelper.isAsciiString(ascii));
+        assertSame(ascii, StringHelper.foldWidth(ascii));
+        String japanese = "[Group] 進撃の巨人 - 01.mkv";
+        assertFalse(StringHelper.isAsciiString(japanese));
+        assertSame(japanese, StringHelper.foldWidth(japanese));
+    }
+
+    @Test
+    public void parsesFoldedFilenames() {
+        Options options = new Options().withFoldWidth(true);
+        assertEquals(describe(AnitomyJ.parse("[Group] Title - 01 (BD 1080p).mkv")),
+                     describe(AnitomyJ.parse("［Ｇｒｏｕｐ］　Ｔｉｔｌｅ　－　０１　（ＢＤ　１０８０ｐ）．ｍｋｖ", options)));
+
+        /** escapes are decoded before folding */
+        assertEquals(describe(AnitomyJ.parse("Title - 02.mkv")),
+                     describe(AnitomyJ.parse("Title%20-%20%EF%BC%90%EF%BC%92.mkv", options.withDecodeEscapes(true))));
+        assertEquals(describe(AnitomyJ.parse("Title ガ - 03.mkv")),
+                     describe(AnitomyJ.parse("Title%20ｶ%EF%BE%9E%20-%20%EF%BC%90%EF%BC%93.mkv",
+                                             options.withDecodeEscapes(true))));
+    }
+}
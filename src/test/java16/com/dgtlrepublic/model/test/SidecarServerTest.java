@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.model.test.TestCases.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.BindException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.SidecarClient;
+import com.dgtlrepublic.anitomyj.SidecarLoadGenerator;
+import com.dgtlrepublic.anitomyj.SidecarServer;
+
+/**
+ * Verifies that the {@link SidecarServer} answers pipelined batches in order, with the same results as the parser.
+ *
+ * @author Paul Miller
+ */
+public class SidecarServerTest {
+    private static final List<String> kFileNames = Arrays.asList("[Group] Title - 01 [1080p].mkv",
+                                                                 "Título [Grupo] - 02 (BD 1920x1080 FLAC).mp4",
+                                                                 "[Group] Title - 03 [AAC 5.1].mkv");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path socketPath;
+    private SidecarServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        socketPath = folder.getRoot().toPath().resolve("sidecar.sock");
+        server = new SidecarServer(socketPath);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+        assertFalse(Files.exists(socketPath));
+    }
+
+    @Test
+    public void parsesBatches() throws Exception {
+        try (SidecarClient client = new SidecarClient(socketPath)) {
+            List<List<Element>> results = client.parse(kFileNames);
+            assertEquals(kFileNames.size(), results.size());
+            for (int i = 0; i < kFileNames.size(); i++) {
+                assertEquals(describe(AnitomyJ.parse(kFileNames.get(i))), describe(results.get(i)));
+            }
+            assertTrue(client.parse(Collections.emptyList()).isEmpty());
+        }
+    }
+
+    @Test
+    public void answersPipelinedFramesInOrder() throws Exception {
+        try (SidecarClient client = new SidecarClient(socketPath)) {
+            for (String filename : kFileNames) client.send(Collections.singletonList(filename));
+            for (int i = 0; i < kFileNames.size(); i++) {
+                SidecarClient.Response response = client.receive();
+                assertEquals(i, response.getRequestId());
+                assertEquals(describe(AnitomyJ.parse(kFileNames.get(i))), describe(response.getResults().get(0)));
+            }
+        }
+        assertEquals(3, server.getFrameCount());
+        assertEquals(3, server.getParsedCount());
+    }
+
+    @Test
+    public void rejectsOversizedNames() throws Exception {
+        char[] name = new char[70_000];
+        Arrays.fill(name, 'a');
+        try (SidecarClient client = new SidecarClient(socketPath)) {
+            List<List<Element>> results = client.parse(Arrays.asList(new String(name), kFileNames.get(0)));
+            assertNull(results.get(0));
+            assertEquals(describe(AnitomyJ.parse(kFileNames.get(0))), describe(results.get(1)));
+        }
+        assertEquals(1, server.getErrorCount());
+    }
+
+    @Test
+    public void truncatesOverBudget() throws Exception {
+        StringBuilder name = new StringBuilder("[Group] Title - 01");
+        for (int i = 0; i < 8 * 1024; i++) name.append(" x");
+        name.append(".mkv");
+        try (SidecarClient client = new SidecarClient(socketPath)) {
+            List<Element> result = client.parse(Collections.singletonList(name.toString())).get(0);
+            assertTrue(describe(result).contains("kElementReleaseGroup=Group"));
+        }
+        assertEquals(1, server.getTruncatedCount());
+        assertEquals(0, server.getErrorCount());
+    }
+
+    @Test
+    public void keepsLiveSockets() throws Exception {
+        try {
+            new SidecarServer(socketPath);
+            fail();
+        } catch (BindException e) {
+            assertTrue(Files.exists(socketPath));
+        }
+        try (SidecarClient client = new SidecarClient(socketPath)) {
+            assertEquals(1, client.parse(kFileNames.subList(0, 1)).size());
+        }
+    }
+
+    @Test
+    public void replacesStaleSockets() throws Exception {
+        Path stalePath = folder.getRoot().toPath().resolve("stale.sock");
+        ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(UnixDomainSocketAddress.of(stalePath)).close();
+        assertTrue(Files.exists(stalePath));
+
+        SidecarServer staleServer = new SidecarServer(stalePath);
+        staleServer.start();
+        try (SidecarClient client = new SidecarClient(stalePath)) {
+            assertEquals(1, client.parse(kFileNames.subList(0, 1)).size());
+        } finally {
+            staleServer.close();
+        }
+    }
+
+    @Test
+    public void generatesLoad() throws Exception {
+        SidecarLoadGenerator.Report report = SidecarLoadGenerator.run(socketPath, kFileNames, 2, 2, 4, 200_000_000L);
+        assertTrue(report.toString(), report.getFrameCount() > 0);
+        assertEquals(report.getFrameCount(), server.getFrameCount());
+        assertTrue(report.getLatency(99) >= report.getLatency(50));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014-2016, Eren Okka
+ * Copyright (c) 2016, Paul Miller
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package com.dgtlrepublic.model.test;
+
+import static com.dgtlrepublic.model.test.TestCases.describe;
+import static com.dgtlrepublic.model.test.TestCases.value;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.dgtlrepublic.anitomyj.AnitomyJ;
+import com.dgtlrepublic.anitomyj.Element;
+import com.dgtlrepublic.anitomyj.ParseBudget;
+import com.dgtlrepublic.anitomyj.ParseProcessor;
+import com.dgtlrepublic.anitomyj.ParseResult;
+
+/**
+ * Verifies that the {@link ParseProcessor} parses every filename, respects demand, and never overfills its buffer.
+ *
+ * @author Paul Miller
+ */
+public class ParseProcessorTest {
+    private static final int kFileCount = 500;
+    private static final int kBufferSize = 16;
+
+    @Test
+    public void parsesInOrder() throws Exception {
+        List<String> fileNames = fileNames();
+        List<ParseResult> results = run(fileNames, true);
+        assertEquals(fileNames.size(), results.size());
+        for (int i = 0; i < fileNames.size(); i++) {
+            assertEquals(describe(AnitomyJ.parse(fileNames.get(i))), describe(results.get(i).getElements()));
+        }
+    }
+
+    @Test
+    public void parsesOutOfOrder() throws Exception {
+        List<String> fileNames = fileNames();
+        List<ParseResult> results = run(fileNames, false);
+        assertEquals(new HashSet<>(fileNames),
+                     results.stream().map(r -> value(r.getElements(), Element.ElementCategory.kElementFileName) + ".mkv")
+                            .collect(Collectors.toSet()));
+    }
+
+    private static List<ParseResult> run(List<String> fileNames, boolean ordered) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ParseProcessor processor = new ParseProcessor(executor,
+                                                          4,
+                                                          kBufferSize,
+                                                          4,
+                                                          ordered,
+                                                          ParseBudget.kBudgetUnlimited);
+            List<ParseResult> results = new ArrayList<>();
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            processor.subscribe(new Flow.Subscriber<ParseResult>() {
+                Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(ParseResult item) {
+                    if (processor.getBufferedCount() > kBufferSize) {
+                        done.completeExceptionally(new AssertionError("Buffer overfilled: " + processor));
+                    }
+                    results.add(item);
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    done.completeExceptionally(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    done.complete(null);
+                }
+            });
+
+            try (SubmissionPublisher<String> publisher = new SubmissionPublisher<>(executor, 8)) {
+                publisher.subscribe(processor);
+                for (String fileName : fileNames) publisher.submit(fileName);
+            }
+
+            done.get(30, TimeUnit.SECONDS);
+            assertEquals(0, processor.getBufferedCount());
+            assertTrue(processor.getBufferOccupancy() == 0);
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<String> fileNames() {
+        List<String> fileNames = new ArrayList<>();
+        for (int i = 0; i < kFileCount; i++) fileNames.add(String.format("[Group] Title %d - %02d [720p].mkv", i, i % 24));
+        return fileNames;
+    }
+}